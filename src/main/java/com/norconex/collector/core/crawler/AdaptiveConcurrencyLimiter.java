@@ -0,0 +1,146 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.crawler;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits how many references are processed at once, adjusting the
+ * limit with an additive-increase/multiplicative-decrease (AIMD)
+ * algorithm. The limit grows slowly while processing times remain
+ * normal and the limit is reached. It shrinks quickly when a reference
+ * fails, or when the 90th percentile of recent processing times gets
+ * much higher than it used to be (a sign of saturation, where more
+ * concurrency only adds latency). Using a percentile over many
+ * references means a few slow ones (e.g., large documents) do not
+ * affect the limit.
+ * @since 3.2.0
+ */
+class AdaptiveConcurrencyLimiter {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    // How much the limit is reduced on errors or high latency.
+    static final double BACKOFF_RATIO = 0.9;
+    // How many times the usual latency percentile is considered too high.
+    static final double LATENCY_TOLERANCE = 2.0;
+    // Number of latency samples the percentile is computed from.
+    static final int WINDOW_SIZE = 50;
+    private static final double PERCENTILE = 0.9;
+    // Weight of new percentiles in the usual one.
+    private static final double SMOOTHING = 0.1;
+    private static final long WAIT_MILLIS = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private final long[] window = new long[WINDOW_SIZE];
+    private int windowCount;
+    // usual latency percentile, following slow changes
+    private double baseLatency;
+    // whether the last window percentile was too high
+    private boolean slow;
+
+    AdaptiveConcurrencyLimiter(int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        limit = this.minLimit;
+    }
+
+    /**
+     * Waits until processing one more reference is within the limit.
+     * @param cancelled returns <code>true</code> to stop waiting
+     * @return <code>true</code> if acquired, <code>false</code> if
+     *     cancelled
+     */
+    synchronized boolean acquire(BooleanSupplier cancelled) {
+        while (inFlight >= getLimit()) {
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+            try {
+                wait(WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases what was acquired, adjusting the limit based on how it
+     * went.
+     * @param latencyNanos processing time (including commit), or a
+     *     negative value if nothing was processed (not affecting the
+     *     limit)
+     * @param success whether processing was successful
+     */
+    synchronized void release(long latencyNanos, boolean success) {
+        boolean limitReached = inFlight >= getLimit();
+        inFlight--;
+        if (latencyNanos >= 0) {
+            int oldLimit = getLimit();
+            if (!success) {
+                backOff();
+            } else {
+                if (limitReached && !slow) {
+                    // about one more per "round" of the current limit
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+                window[windowCount++] = latencyNanos;
+                if (windowCount == WINDOW_SIZE) {
+                    checkLatency();
+                }
+            }
+            if (oldLimit != getLimit()) {
+                LOG.debug("Concurrency limit changed from {} to {}.",
+                        oldLimit, getLimit());
+            }
+        }
+        notifyAll();
+    }
+
+    // Backs off if the window percentile is too high compared to the
+    // usual one, which then gets closer to it.
+    private void checkLatency() {
+        Arrays.sort(window);
+        long percentile = window[(int) (WINDOW_SIZE * PERCENTILE)];
+        windowCount = 0;
+        if (baseLatency == 0) {
+            baseLatency = percentile;
+            return;
+        }
+        slow = percentile > baseLatency * LATENCY_TOLERANCE;
+        if (slow) {
+            backOff();
+        }
+        baseLatency = baseLatency * (1 - SMOOTHING) + percentile * SMOOTHING;
+    }
+    private void backOff() {
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+}
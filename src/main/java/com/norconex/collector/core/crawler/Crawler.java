@@ -32,18 +32,23 @@ import static java.util.Optional.ofNullable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.NullInputStream;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.mutable.MutableLong;
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -97,7 +102,9 @@ public abstract class Crawler {
     private static final Logger LOG =
             LoggerFactory.getLogger(Crawler.class);
 
-    private static final int MINIMUM_DELAY = 1;
+    // Safety net: idle threads re-check for work at least this often
+    // even if not signaled.
+    private static final long MAX_IDLE_WAIT_MILLIS = 1000;
 
     private final CrawlerConfig config;
     private final Collector collector;
@@ -161,6 +168,10 @@ public abstract class Crawler {
         getEventManager().fire(
                 new CrawlerEvent.Builder(CRAWLER_STOP_BEGIN, this).build());
         stopped = true;
+        if (crawlDocInfoService != null) {
+            // wake up idle crawler threads so they notice right away
+            crawlDocInfoService.signalStateChange();
+        }
         LOG.info("Stopping the crawler.");
     }
 
@@ -424,11 +435,13 @@ public abstract class Crawler {
 
         //--- Process start/queued references ----------------------------------
         LOG.info("Crawling references...");
-        processReferences(new ProcessFlags());
-
-        if (!isStopped()) {
-            handleOrphans();
-        }
+        // Orphans are handled by the same crawler threads, as soon as
+        // there are no more references to crawl.
+        processReferences(new ProcessFlags(), phase -> {
+            if (!isStopped()) {
+                handleOrphans(phase);
+            }
+        });
 
         LOG.debug("Removing empty directories");
         FileUtil.deleteEmptyDirs(getDownloadDir().toFile());
@@ -439,6 +452,10 @@ public abstract class Crawler {
     }
 
     protected void handleOrphans() {
+        handleOrphans(null);
+    }
+    // "phase" is the one of running crawler threads, if any
+    private void handleOrphans(ProcessPhase phase) {
 
         OrphansStrategy strategy = config.getOrphansStrategy();
         if (strategy == null) {
@@ -449,12 +466,12 @@ public abstract class Crawler {
         // If PROCESS, we do not care to validate if really orphan since
         // all cache items will be reprocessed regardless
         if (strategy == OrphansStrategy.PROCESS) {
-            reprocessCacheOrphans();
+            reprocessCacheOrphans(phase);
             return;
         }
 
         if (strategy == OrphansStrategy.DELETE) {
-            deleteCacheOrphans();
+            deleteCacheOrphans(phase);
         }
         // else, ignore (i.e. don't do anything)
         //TODO log how many where ignored (cache count)
@@ -469,6 +486,11 @@ public abstract class Crawler {
     }
 
     protected void reprocessCacheOrphans() {
+        reprocessCacheOrphans(null);
+    }
+    // With running crawler threads (all idle), they switch to processing
+    // orphans as they get queued.
+    private void reprocessCacheOrphans(ProcessPhase phase) {
         if (isMaxDocuments()) {
             LOG.info("Max documents reached. "
                     + "Not reprocessing orphans (if any).");
@@ -476,46 +498,100 @@ public abstract class Crawler {
         }
         LOG.info("Reprocessing any cached/orphan references...");
 
-        MutableLong count = new MutableLong();
-        crawlDocInfoService.forEachCached((k, v) -> {
+        ProcessFlags flags = new ProcessFlags().orphan();
+        if (phase != null) {
+            phase.setFlags(flags);
+        }
+
+        // Cached references are split in key ranges queued in parallel.
+        LongAdder count = new LongAdder();
+        crawlDocInfoService.forEachCachedParallel(
+                getCrawlerConfig().getNumThreads(), (k, v) -> {
             executeQueuePipeline(v);
             count.increment();
             return true;
         });
 
-        if (count.longValue() > 0) {
-            processReferences(new ProcessFlags().orphan());
+        if (phase == null && count.sum() > 0) {
+            processReferences(flags);
         }
-        LOG.info("Reprocessed {} cached/orphan references.", count);
+        LOG.info("Queued {} cached/orphan references for reprocessing.",
+                count);
     }
 
     protected abstract void executeQueuePipeline(CrawlDocInfo ref);
 
     protected void deleteCacheOrphans() {
+        deleteCacheOrphans(null);
+    }
+    private void deleteCacheOrphans(ProcessPhase phase) {
         LOG.info("Deleting orphan references (if any)...");
 
-        MutableLong count = new MutableLong();
-        crawlDocInfoService.forEachCached((k, v) -> {
+        ProcessFlags flags = new ProcessFlags().delete();
+        if (phase != null) {
+            phase.setFlags(flags);
+        }
+
+        LongAdder count = new LongAdder();
+        crawlDocInfoService.forEachCachedParallel(
+                getCrawlerConfig().getNumThreads(), (k, v) -> {
             crawlDocInfoService.queue(v);
             count.increment();
             return true;
         });
-        if (count.longValue() > 0) {
-            processReferences(new ProcessFlags().delete());
+        if (phase == null && count.sum() > 0) {
+            processReferences(flags);
         }
-        LOG.info("Deleted {} orphan references.", count);
+        LOG.info("Queued {} orphan references for deletion.", count);
+    }
+
+    private boolean isIdle() {
+        return crawlDocInfoService.getActiveCount() == 0
+                && crawlDocInfoService.isQueueEmpty();
     }
 
     protected void processReferences(final ProcessFlags flags) {
+        processReferences(flags, null);
+    }
+
+    // "whenDrained" is invoked once by the first thread to find no more
+    // references queued or being processed (i.e., in-flight documents can
+    // no longer find cached ones). It can queue more references (e.g.
+    // orphans), which are processed by the same threads: they wait for
+    // it instead of ending.
+    private void processReferences(final ProcessFlags flags,
+            Consumer<ProcessPhase> whenDrained) {
         int numThreads = getCrawlerConfig().getNumThreads();
+        ExecutorService execService = null;
+        if (getCrawlerConfig().isVirtualThreads()) {
+            execService = newVirtualThreadExecutor();
+            if (execService != null) {
+                numThreads = getCrawlerConfig().getMaxVirtualThreads();
+            }
+        }
+        if (execService == null) {
+            execService = Executors.newFixedThreadPool(numThreads);
+        }
         final CountDownLatch latch = new CountDownLatch(numThreads);
-        ExecutorService execService = Executors.newFixedThreadPool(numThreads);
+        AdaptiveConcurrencyLimiter limiter = null;
+        if (getCrawlerConfig().isAdaptiveThreads()) {
+            limiter = new AdaptiveConcurrencyLimiter(
+                    getCrawlerConfig().getMinThreads(), numThreads);
+        }
+        PipelineStage commitStage = null;
+        int commitThreads = getCrawlerConfig().getCommitThreads();
+        if (commitThreads > 0) {
+            commitStage = new PipelineStage(getId(), "commit",
+                    commitThreads, getCrawlerConfig().getCommitQueueSize());
+        }
+        final ProcessPhase phase = new ProcessPhase(
+                flags, whenDrained, limiter, commitStage);
         try {
             for (int i = 0; i < numThreads; i++) {
                 final int threadIndex = i + 1;
                 LOG.debug("Crawler thread #{} starting...", threadIndex);
                 execService.execute(new ProcessReferencesRunnable(
-                        latch, flags, threadIndex));
+                        latch, phase, threadIndex));
             }
             latch.await();
         } catch (InterruptedException e) {
@@ -523,6 +599,23 @@ public abstract class Crawler {
              throw new CollectorException(e);
         } finally {
             execService.shutdown();
+            if (commitStage != null) {
+                // references remain active until committed
+                commitStage.close();
+            }
+        }
+    }
+
+    // Virtual threads require Java 21 or higher, so they are obtained
+    // by reflection. Returns null when not supported.
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOG.warn("Virtual threads are not supported by this Java "
+                    + "version. Using platform threads instead.");
+            return null;
         }
     }
 
@@ -534,15 +627,33 @@ public abstract class Crawler {
 
     // return <code>true</code> if more references to process
     protected ReferenceProcessStatus processNextReference(
-            final ProcessFlags flags) {
+            final ProcessPhase phase, final ProcessFlags flags,
+            final Deque<CrawlDocInfo> claimed) {
 
         if (!flags.delete && isMaxDocuments()) {
             LOG.info("Maximum documents reached: {}",
                     getCrawlerConfig().getMaxDocuments());
             return ReferenceProcessStatus.MAX_REACHED;
         }
-        Optional<CrawlDocInfo> queuedDocInfo =
-                crawlDocInfoService.pollQueue();
+        // Acquired before polling so references do not sit active
+        // while waiting for it.
+        AdaptiveConcurrencyLimiter limiter = phase.limiter;
+        if (limiter != null && !limiter.acquire(this::isStopped)) {
+            return ReferenceProcessStatus.OK;
+        }
+        // obtained before polling so we do not miss changes
+        long stateVersion = crawlDocInfoService.getStateVersion();
+        Optional<CrawlDocInfo> queuedDocInfo = Optional.ofNullable(
+                claimed.poll());
+        if (queuedDocInfo.isEmpty()) {
+            int batchSize = getCrawlerConfig().getPollBatchSize();
+            if (batchSize > 1) {
+                claimed.addAll(crawlDocInfoService.pollQueue(batchSize));
+                queuedDocInfo = Optional.ofNullable(claimed.poll());
+            } else {
+                queuedDocInfo = crawlDocInfoService.pollQueue();
+            }
+        }
 
         LOG.trace("Processing next reference from Queue: {}",
                 queuedDocInfo);
@@ -552,13 +663,33 @@ public abstract class Crawler {
                 watch = new StopWatch();
                 watch.start();
             }
-            processNextQueuedCrawlData(queuedDocInfo.get(), flags);
+            CrawlDocInfo docInfo = queuedDocInfo.get();
+            long start = System.nanoTime();
+            Runnable release = () -> {
+                if (limiter != null) {
+                    limiter.release(System.nanoTime() - start,
+                            docInfo.getState() != CrawlState.ERROR);
+                }
+            };
+            // released once committed, possibly on the commit stage
+            boolean handedOff = false;
+            try {
+                handedOff = processNextQueuedCrawlData(
+                        docInfo, phase, flags, release);
+            } finally {
+                if (!handedOff) {
+                    release.run();
+                }
+            }
             if (LOG.isDebugEnabled()) {
                 watch.stop();
                 LOG.debug("{} to process: {}", watch,
                         queuedDocInfo.get().getReference());
             }
         } else {
+            if (limiter != null) {
+                limiter.release(-1, true);
+            }
             long activeCount = crawlDocInfoService.getActiveCount();
             boolean queueEmpty = crawlDocInfoService.isQueueEmpty();
             if (LOG.isTraceEnabled()) {
@@ -569,7 +700,9 @@ public abstract class Crawler {
             if (activeCount == 0 && queueEmpty) {
                 return ReferenceProcessStatus.QUEUE_EMPTY;
             }
-            Sleeper.sleepMillis(MINIMUM_DELAY);
+            // Wait for references to be queued or processed.
+            crawlDocInfoService.awaitStateChange(
+                    stateVersion, MAX_IDLE_WAIT_MILLIS);
         }
         return ReferenceProcessStatus.OK;
     }
@@ -579,8 +712,10 @@ public abstract class Crawler {
         // default does nothing
     }
 
-    private void processNextQueuedCrawlData(
-            CrawlDocInfo docInfo, ProcessFlags flags) {
+    // Returns true if committing was handed off to the commit stage,
+    // which invokes "whenCommitted" once done.
+    private boolean processNextQueuedCrawlData(CrawlDocInfo docInfo,
+            ProcessPhase phase, ProcessFlags flags, Runnable whenCommitted) {
         String reference = docInfo.getReference();
 
         CrawlDocInfo cachedDocInfo =
@@ -603,13 +738,23 @@ public abstract class Crawler {
             if (flags.delete) {
                 deleteReference(doc);
                 finalizeDocumentProcessing(doc);
-                return;
+                return false;
             }
             LOG.debug("Processing reference: {}", reference);
 
             ImporterResponse response = executeImporterPipeline(context);
 
-            if (response != null) {
+            PipelineStage stage = phase.commitStage;
+            if (response != null && stage != null) {
+                stage.submit(() -> {
+                    try {
+                        commitImportResponse(response, doc);
+                    } finally {
+                        whenCommitted.run();
+                    }
+                });
+                return true;
+            } else if (response != null) {
                 processImportResponse(response, doc);//docInfo, cachedDocInfo);
             } else {
                 if (docInfo.getState().isNewOrModified()) {
@@ -628,35 +773,59 @@ public abstract class Crawler {
                 finalizeDocumentProcessing(doc);
             }
         } catch (Throwable e) {
-            //TODO do we really want to catch anything other than
-            // HTTPFetchException?  In case we want special treatment to the
-            // class?
-            docInfo.setState(CrawlState.ERROR);
-            getEventManager().fire(
-                    new CrawlerEvent.Builder(REJECTED_ERROR, this)
-                            .crawlDocInfo(docInfo)
-                            .exception(e)
-                            .build());
-            if (LOG.isDebugEnabled()) {
-                LOG.info("Could not process document: {} ({})",
-                        reference, e.getMessage(), e);
-            } else {
-                LOG.info("Could not process document: {} ({})",
-                        reference, e.getMessage());
+            // Rethrow exception is we want the crawler to stop
+            if (handleProcessingError(doc, e)) {
+                throw e;
+            }
+        }
+        return false;
+    }
+
+    // Runs on the commit stage, so errors cannot be thrown back to
+    // the crawler thread.
+    private void commitImportResponse(ImporterResponse response, CrawlDoc doc) {
+        try {
+            processImportResponse(response, doc);
+        } catch (Throwable e) {
+            if (handleProcessingError(doc, e)) {
+                LOG.error("Stopping crawler on exception.", e);
+                stop();
             }
-            finalizeDocumentProcessing(doc);
+        }
+    }
 
-            // Rethrow exception is we want the crawler to stop
-            List<Class<? extends Exception>> exceptionClasses =
-                    config.getStopOnExceptions();
-            if (CollectionUtils.isNotEmpty(exceptionClasses)) {
-                for (Class<? extends Exception> c : exceptionClasses) {
-                    if (c.isAssignableFrom(e.getClass())) {
-                        throw e;
-                    }
+    // returns true if the crawler should stop
+    private boolean handleProcessingError(CrawlDoc doc, Throwable e) {
+        //TODO do we really want to catch anything other than
+        // HTTPFetchException?  In case we want special treatment to the
+        // class?
+        CrawlDocInfo docInfo = doc.getDocInfo();
+        String reference = docInfo.getReference();
+        docInfo.setState(CrawlState.ERROR);
+        getEventManager().fire(
+                new CrawlerEvent.Builder(REJECTED_ERROR, this)
+                        .crawlDocInfo(docInfo)
+                        .exception(e)
+                        .build());
+        if (LOG.isDebugEnabled()) {
+            LOG.info("Could not process document: {} ({})",
+                    reference, e.getMessage(), e);
+        } else {
+            LOG.info("Could not process document: {} ({})",
+                    reference, e.getMessage());
+        }
+        finalizeDocumentProcessing(doc);
+
+        List<Class<? extends Exception>> exceptionClasses =
+                config.getStopOnExceptions();
+        if (CollectionUtils.isNotEmpty(exceptionClasses)) {
+            for (Class<? extends Exception> c : exceptionClasses) {
+                if (c.isAssignableFrom(e.getClass())) {
+                    return true;
                 }
             }
         }
+        return false;
     }
 
     private void processImportResponse(
@@ -889,17 +1058,93 @@ public abstract class Crawler {
         return true;
     }
 
+    // State shared by crawler threads for one processing of references.
+    // Flags can change while they run (e.g. from crawling to handling
+    // orphans).
+    private final class ProcessPhase {
+        // Read-locked while processing a reference, write-locked to change
+        // flags, so no reference queued after a change is processed with
+        // the previous flags.
+        private final ReadWriteLock flagsLock = new ReentrantReadWriteLock();
+        private ProcessFlags flags;
+        private Consumer<ProcessPhase> whenDrained;
+        private boolean draining;
+        // null when not adaptive
+        private final AdaptiveConcurrencyLimiter limiter;
+        // null when committing on crawler threads
+        private final PipelineStage commitStage;
+
+        private ProcessPhase(ProcessFlags flags,
+                Consumer<ProcessPhase> whenDrained,
+                AdaptiveConcurrencyLimiter limiter,
+                PipelineStage commitStage) {
+            this.flags = flags;
+            this.whenDrained = whenDrained;
+            this.limiter = limiter;
+            this.commitStage = commitStage;
+        }
+        private ReferenceProcessStatus processNext(
+                Deque<CrawlDocInfo> claimed) {
+            flagsLock.readLock().lock();
+            try {
+                return processNextReference(this, flags, claimed);
+            } finally {
+                flagsLock.readLock().unlock();
+            }
+        }
+        private void setFlags(ProcessFlags flags) {
+            flagsLock.writeLock().lock();
+            try {
+                this.flags = flags;
+            } finally {
+                flagsLock.writeLock().unlock();
+            }
+        }
+        // Invoked when no references are left. Returns true if done,
+        // false if more references may be queued.
+        private boolean drained() {
+            long stateVersion = crawlDocInfoService.getStateVersion();
+            Consumer<ProcessPhase> task;
+            synchronized (this) {
+                task = whenDrained;
+                whenDrained = null;
+                if (task != null) {
+                    draining = true;
+                } else if (!draining && isIdle()) {
+                    return true;
+                }
+            }
+            if (task == null) {
+                // other threads are processing or queuing more references
+                crawlDocInfoService.awaitStateChange(
+                        stateVersion, MAX_IDLE_WAIT_MILLIS);
+                return false;
+            }
+            try {
+                task.accept(this);
+            } finally {
+                synchronized (this) {
+                    draining = false;
+                }
+                crawlDocInfoService.signalStateChange();
+            }
+            return false;
+        }
+    }
+
     private final class ProcessReferencesRunnable implements Runnable {
-        private final ProcessFlags flags;
+        private final ProcessPhase phase;
         private final CountDownLatch latch;
         private final int threadIndex;
+        // references polled from the queue but not yet processed
+        private final Deque<CrawlDocInfo> claimed = new ArrayDeque<>();
 
         private ProcessReferencesRunnable(
                 CountDownLatch latch,
-                ProcessFlags flags,
+                ProcessPhase phase,
                 int threadIndex) {
             this.latch = latch;
-            this.flags = flags;
+            this.phase = phase;
             this.threadIndex = threadIndex;
         }
 
@@ -918,14 +1163,17 @@ public abstract class Crawler {
                 while (!isStopped()) {
                     try {
                         ReferenceProcessStatus status =
-                                processNextReference(flags);
+                                phase.processNext(claimed);
                         if (status == MAX_REACHED) {
                             stop();
                             break;
                         }
                         if (status == QUEUE_EMPTY) {
                             if (isQueueInitialized()) {
-                                break;
+                                if (phase.drained()) {
+                                    break;
+                                }
+                                continue;
                             }
                             LOG.info("References are still being queued. "
                                     + "Waiting for new references...");
@@ -942,6 +1190,7 @@ public abstract class Crawler {
             } catch (Exception e) {
                 LOG.error("Problem in thread execution.", e);
             } finally {
+                requeueClaimed();
                 latch.countDown();
                 getEventManager().fire(new CrawlerEvent.Builder(
                         CrawlerEvent.CRAWLER_RUN_THREAD_END, Crawler.this)
@@ -949,6 +1198,19 @@ public abstract class Crawler {
                             .build());
             }
         }
+        private void requeueClaimed() {
+            if (claimed.isEmpty()) {
+                return;
+            }
+            try {
+                crawlDocInfoService.requeue(claimed);
+            } catch (Exception e) {
+                LOG.error("Could not put back {} unprocessed references "
+                        + "in queue. They will be requeued when resuming.",
+                        claimed.size(), e);
+            }
+            claimed.clear();
+        }
     }
 
     @Override
@@ -30,8 +30,10 @@ import com.norconex.collector.core.checksum.impl.MD5DocumentChecksummer;
 import com.norconex.collector.core.filter.IDocumentFilter;
 import com.norconex.collector.core.filter.IMetadataFilter;
 import com.norconex.collector.core.filter.IReferenceFilter;
+import com.norconex.collector.core.queue.IQueuePrioritizer;
 import com.norconex.collector.core.spoil.ISpoiledReferenceStrategizer;
 import com.norconex.collector.core.spoil.impl.GenericSpoiledReferenceStrategizer;
+import com.norconex.collector.core.store.DataStoreDurability;
 import com.norconex.collector.core.store.IDataStoreEngine;
 import com.norconex.collector.core.store.impl.mvstore.MVStoreDataStoreEngine;
 import com.norconex.committer.core3.ICommitter;
@@ -56,8 +58,28 @@ import com.norconex.importer.ImporterConfig;
  * {@nx.xml #init
  *
  *   <numThreads>(maximum number of threads)</numThreads>
+ *   <virtualThreads>[false|true]</virtualThreads>
+ *   <maxVirtualThreads>
+ *     (maximum number of references processed at once with
+ *     virtual threads)
+ *   </maxVirtualThreads>
+ *   <adaptiveThreads>[false|true]</adaptiveThreads>
+ *   <minThreads>
+ *     (minimum number of references processed at once when adaptive)
+ *   </minThreads>
+ *   <commitThreads>
+ *     (number of threads committing imported documents, 0 to commit
+ *     them on the crawler threads)
+ *   </commitThreads>
+ *   <commitQueueSize>
+ *     (maximum number of imported documents waiting to be committed)
+ *   </commitQueueSize>
  *   <maxDocuments>(maximum number of documents to crawl)</maxDocuments>
  *   <orphansStrategy>[PROCESS|IGNORE|DELETE]</orphansStrategy>
+ *   <memoryQueue>[false|true]</memoryQueue>
+ *   <pollBatchSize>(references claimed at once per thread)</pollBatchSize>
+ *   <referenceIndex>[false|true]</referenceIndex>
+ *   <queuePrioritizer class="(IQueuePrioritizer implementation)" />
  *
  *   <stopOnExceptions>
  *     <!-- Repeatable -->
@@ -70,6 +92,13 @@ import com.norconex.importer.ImporterConfig;
  *   </eventListeners>
  *
  *   <dataStoreEngine class="(IDataStoreEngine implementation)" />
+ *   <dataStoreDurability>
+ *     [STRICT|PERIODIC|ON_CHECKPOINT]
+ *   </dataStoreDurability>
+ *   <dataStoreCheckpointInterval>
+ *     (how often to make data store writes durable)
+ *   </dataStoreCheckpointInterval>
+ *   <dataStoreStaged>[false|true]</dataStoreStaged>
  * }
  *
  * {@nx.xml #pipeline-queue
@@ -161,14 +190,33 @@ public abstract class CrawlerConfig implements IXMLConfigurable {
         IGNORE
     }
 
+    /** @since 3.2.0 */
+    public static final int DEFAULT_MAX_VIRTUAL_THREADS = 1000;
+    /** @since 3.2.0 */
+    public static final int DEFAULT_COMMIT_QUEUE_SIZE = 100;
+
     private String id;
     private int numThreads = 2;
+    private boolean virtualThreads;
+    private int maxVirtualThreads = DEFAULT_MAX_VIRTUAL_THREADS;
+    private boolean adaptiveThreads;
+    private int minThreads = 1;
+    private int commitThreads;
+    private int commitQueueSize = DEFAULT_COMMIT_QUEUE_SIZE;
     private int maxDocuments = -1;
     private OrphansStrategy orphansStrategy = OrphansStrategy.PROCESS;
+    private boolean memoryQueue;
+    private int pollBatchSize = 1;
+    private boolean referenceIndex;
+    private IQueuePrioritizer queuePrioritizer;
     private final List<Class<? extends Exception>> stopOnExceptions =
             new ArrayList<>();
 
     private IDataStoreEngine dataStoreEngine = new MVStoreDataStoreEngine();
+    private DataStoreDurability dataStoreDurability =
+            DataStoreDurability.PERIODIC;
+    private long dataStoreCheckpointInterval = 5000;
+    private boolean dataStoreStaged;
 
     private final List<IReferenceFilter> referenceFilters = new ArrayList<>();
     private final List<IMetadataFilter> metadataFilters = new ArrayList<>();
@@ -232,6 +280,162 @@ public abstract class CrawlerConfig implements IXMLConfigurable {
         this.numThreads = numThreads;
     }
 
+    /**
+     * <p>
+     * Gets whether references are processed by virtual threads instead
+     * of platform threads. Virtual threads are cheap to create and to
+     * block, making it possible to have thousands of documents being
+     * fetched, imported, or committed at once. When enabled,
+     * {@link #getMaxVirtualThreads()} replaces {@link #getNumThreads()}
+     * as the maximum number of references processed at once.
+     * </p><p>
+     * Requires Java 21 or higher. On older versions, platform threads
+     * are used, as if disabled.
+     * Default is <code>false</code>.
+     * </p>
+     * @return <code>true</code> if using virtual threads
+     * @since 3.2.0
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+    /**
+     * Sets whether references are processed by virtual threads instead
+     * of platform threads.
+     * @param virtualThreads <code>true</code> to use virtual threads
+     * @see #isVirtualThreads()
+     * @since 3.2.0
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+    /**
+     * Gets the maximum number of references processed at once when
+     * using virtual threads. Default is
+     * {@value #DEFAULT_MAX_VIRTUAL_THREADS}.
+     * @return maximum number of virtual threads
+     * @see #isVirtualThreads()
+     * @since 3.2.0
+     */
+    public int getMaxVirtualThreads() {
+        return maxVirtualThreads;
+    }
+    /**
+     * Sets the maximum number of references processed at once when
+     * using virtual threads.
+     * @param maxVirtualThreads maximum number of virtual threads
+     * @see #isVirtualThreads()
+     * @since 3.2.0
+     */
+    public void setMaxVirtualThreads(int maxVirtualThreads) {
+        this.maxVirtualThreads = maxVirtualThreads;
+    }
+
+    /**
+     * <p>
+     * Gets whether the number of references processed at once adapts
+     * to how well the crawl is going. Starting from
+     * {@link #getMinThreads()}, it grows slowly while processing times
+     * remain stable, up to {@link #getNumThreads()} (or
+     * {@link #getMaxVirtualThreads()} with virtual threads). It shrinks
+     * quickly when references fail or when most of them take much longer
+     * to process (and commit) than they used to, which usually means a
+     * bottleneck was hit (e.g., a slow committer or an overloaded
+     * site). A few slow references (e.g., large documents) do not
+     * affect it. The limit keeps adjusting as
+     * the mix of documents changes during a crawl.
+     * </p><p>
+     * Default is <code>false</code>, where the maximum is always used.
+     * </p>
+     * @return <code>true</code> if the number of threads is adaptive
+     * @since 3.2.0
+     */
+    public boolean isAdaptiveThreads() {
+        return adaptiveThreads;
+    }
+    /**
+     * Sets whether the number of references processed at once adapts
+     * to how well the crawl is going.
+     * @param adaptiveThreads <code>true</code> to adapt the number of
+     *     threads
+     * @see #isAdaptiveThreads()
+     * @since 3.2.0
+     */
+    public void setAdaptiveThreads(boolean adaptiveThreads) {
+        this.adaptiveThreads = adaptiveThreads;
+    }
+    /**
+     * Gets the minimum number of references processed at once when
+     * the number of threads is adaptive. Default is 1.
+     * @return minimum number of threads
+     * @see #isAdaptiveThreads()
+     * @since 3.2.0
+     */
+    public int getMinThreads() {
+        return minThreads;
+    }
+    /**
+     * Sets the minimum number of references processed at once when
+     * the number of threads is adaptive.
+     * @param minThreads minimum number of threads
+     * @see #isAdaptiveThreads()
+     * @since 3.2.0
+     */
+    public void setMinThreads(int minThreads) {
+        this.minThreads = Math.max(1, minThreads);
+    }
+
+    /**
+     * <p>
+     * Gets the number of threads committing imported documents.
+     * Those threads also finalize document processing. When greater
+     * than zero, crawler threads hand imported documents over to them
+     * and move on to the next reference, so fetching and importing
+     * are not slowed down by committers (and vice versa). Each can then
+     * be sized to its own bottleneck with {@link #getNumThreads()} and
+     * this option.
+     * </p><p>
+     * Default is zero, where crawler threads commit documents
+     * themselves.
+     * </p>
+     * @return number of commit threads
+     * @since 3.2.0
+     */
+    public int getCommitThreads() {
+        return commitThreads;
+    }
+    /**
+     * Sets the number of threads committing imported documents.
+     * @param commitThreads number of commit threads
+     * @see #getCommitThreads()
+     * @since 3.2.0
+     */
+    public void setCommitThreads(int commitThreads) {
+        this.commitThreads = commitThreads;
+    }
+    /**
+     * Gets the maximum number of imported documents waiting to be
+     * committed, when using commit threads. Once reached, crawler threads
+     * wait before handing over more documents.
+     * Default is {@value #DEFAULT_COMMIT_QUEUE_SIZE}.
+     * @return commit queue size
+     * @see #getCommitThreads()
+     * @since 3.2.0
+     */
+    public int getCommitQueueSize() {
+        return commitQueueSize;
+    }
+    /**
+     * Sets the maximum number of imported documents waiting to be
+     * committed, when using commit threads.
+     * @param commitQueueSize commit queue size
+     * @see #getCommitThreads()
+     * @since 3.2.0
+     */
+    public void setCommitQueueSize(int commitQueueSize) {
+        this.commitQueueSize = Math.max(1, commitQueueSize);
+    }
+
     /**
      * Gets the maximum number of documents that can be processed. It is
      * normal not all "processed" documents make it to your Committer
@@ -286,6 +490,126 @@ public abstract class CrawlerConfig implements IXMLConfigurable {
         this.orphansStrategy = orphansStrategy;
     }
 
+    /**
+     * <p>Gets whether queued references are also kept in memory.
+     * When <code>true</code>, crawler threads poll references from a
+     * concurrent in-memory queue without locking, and
+     * moving polled references from the "queued" to the "active" data
+     * stores is performed in the background (write-behind).
+     * Newly queued references are still written to the data store right
+     * away so an interrupted crawl can be resumed.
+     * </p><p>
+     * Since the whole queue is held in memory, this is best suited
+     * to crawls where the queue size remains reasonable. When resuming,
+     * references polled but not yet moved to the "active" store
+     * may be processed again.
+     * Default is <code>false</code>.
+     * </p>
+     * @return <code>true</code> if the queue is held in memory
+     * @since 3.2.0
+     */
+    public boolean isMemoryQueue() {
+        return memoryQueue;
+    }
+    /**
+     * Sets whether queued references are also kept in memory.
+     * @param memoryQueue <code>true</code> to hold the queue in memory
+     * @see #isMemoryQueue()
+     * @since 3.2.0
+     */
+    public void setMemoryQueue(boolean memoryQueue) {
+        this.memoryQueue = memoryQueue;
+    }
+
+    /**
+     * <p>Gets the number of queued references each crawler thread
+     * claims at once. Claimed references are marked as "active" in
+     * a single data store operation and kept in a buffer local to the
+     * thread until processed. Claimed references not yet processed when
+     * the crawler stops are put back in the queue.
+     * </p><p>
+     * A larger value reduces contention on the data store when
+     * documents are processed quickly. Default is <code>1</code>.
+     * </p>
+     * @return poll batch size
+     * @since 3.2.0
+     */
+    public int getPollBatchSize() {
+        return pollBatchSize;
+    }
+    /**
+     * Sets the number of queued references each crawler thread
+     * claims at once. Values lower than one are treated as one.
+     * @param pollBatchSize poll batch size
+     * @see #getPollBatchSize()
+     * @since 3.2.0
+     */
+    public void setPollBatchSize(int pollBatchSize) {
+        this.pollBatchSize = Math.max(1, pollBatchSize);
+    }
+
+    /**
+     * <p>Gets whether to keep an in-memory index of the processing stage
+     * (queued, active, or processed) of every known reference.
+     * When <code>true</code>, checking if a newly discovered reference
+     * was already encountered no longer requires data store lookups.
+     * References are indexed by their 128-bit fingerprint, held
+     * outside the Java heap ("direct" memory) and taking between 23 and
+     * 45 bytes of memory each. That memory is not released until the
+     * crawler stops (e.g., about 9 GB for 400 million references, up to
+     * about 18 GB while the index grows). Make sure the
+     * <code>-XX:MaxDirectMemorySize</code> JVM option allows for it, as
+     * the crawler fails when it runs out.
+     * </p><p>
+     * The index is built from the data store when the crawler starts.
+     * Default is <code>false</code>.
+     * </p>
+     * @return <code>true</code> if references are indexed in memory
+     * @since 3.2.0
+     */
+    public boolean isReferenceIndex() {
+        return referenceIndex;
+    }
+    /**
+     * Sets whether to keep an in-memory index of the processing stage
+     * of every known reference.
+     * @param referenceIndex <code>true</code> to index references in memory
+     * @see #isReferenceIndex()
+     * @since 3.2.0
+     */
+    public void setReferenceIndex(boolean referenceIndex) {
+        this.referenceIndex = referenceIndex;
+    }
+
+    /**
+     * <p>Gets the queue prioritizer, deciding which queued references
+     * get processed first (e.g., to refresh the most important content
+     * first when a crawl is time-boxed). References of a same priority
+     * are processed in the order they were queued.
+     * </p><p>
+     * Each priority is kept in its own data store (or stage). A crawl
+     * must be resumed with the same prioritizer it started with, else
+     * some queued references may be missed.
+     * Default is <code>null</code> (references are processed in the
+     * order they were queued).
+     * </p>
+     * @return queue prioritizer
+     * @since 3.2.0
+     */
+    public IQueuePrioritizer getQueuePrioritizer() {
+        return queuePrioritizer;
+    }
+    /**
+     * Sets the queue prioritizer, deciding which queued references
+     * get processed first.
+     * @param queuePrioritizer queue prioritizer
+     * @see #getQueuePrioritizer()
+     * @since 3.2.0
+     */
+    public void setQueuePrioritizer(IQueuePrioritizer queuePrioritizer) {
+        this.queuePrioritizer = queuePrioritizer;
+    }
+
     /**
      * Gets the exceptions we want to stop the crawler on.
      * By default the crawler will log exceptions from processing
@@ -353,6 +677,87 @@ public abstract class CrawlerConfig implements IXMLConfigurable {
         this.dataStoreEngine = dataStoreEngine;
     }
 
+    /**
+     * <p>Gets how soon data store writes are guaranteed to survive a
+     * crash. With <code>STRICT</code>, every write is persisted
+     * right away. With <code>PERIODIC</code>, the data store engine
+     * persists writes in the background, on top of regular checkpoints.
+     * With <code>ON_CHECKPOINT</code>, persisting writes may be deferred
+     * until the next checkpoint.
+     * </p><p>
+     * Relaxed durability levels increase write throughput, at the cost
+     * of having a few documents processed again when resuming after a crash.
+     * Default is <code>PERIODIC</code>.
+     * </p>
+     * @return data store durability
+     * @since 3.2.0
+     */
+    public DataStoreDurability getDataStoreDurability() {
+        return dataStoreDurability;
+    }
+    /**
+     * Sets how soon data store writes are guaranteed to survive a crash.
+     * @param dataStoreDurability data store durability
+     * @see #getDataStoreDurability()
+     * @since 3.2.0
+     */
+    public void setDataStoreDurability(
+            DataStoreDurability dataStoreDurability) {
+        this.dataStoreDurability = dataStoreDurability;
+    }
+
+    /**
+     * Gets how often data store writes are made durable (checkpoint),
+     * in milliseconds. Not used when the data store durability
+     * is <code>STRICT</code>. Default is 5 seconds.
+     * @return checkpoint interval
+     * @since 3.2.0
+     */
+    public long getDataStoreCheckpointInterval() {
+        return dataStoreCheckpointInterval;
+    }
+    /**
+     * Sets how often data store writes are made durable (checkpoint),
+     * in milliseconds. Zero or less only makes them durable when
+     * the crawler stops.
+     * @param dataStoreCheckpointInterval checkpoint interval
+     * @since 3.2.0
+     */
+    public void setDataStoreCheckpointInterval(
+            long dataStoreCheckpointInterval) {
+        this.dataStoreCheckpointInterval = dataStoreCheckpointInterval;
+    }
+
+    /**
+     * <p>Gets whether references of all processing stages (queued,
+     * active, processed, and cached) are kept in a single data store,
+     * with the stage of each reference updated in place.
+     * When <code>false</code>, each stage has its own data store and
+     * references are copied from one to the other as they are processed.
+     * </p><p>
+     * Only some data store engines support it (e.g., JDBC). Others
+     * keep using one data store per stage.
+     * Existing crawl data is not converted when changing this option.
+     * Default is <code>false</code>.
+     * </p>
+     * @return <code>true</code> if using a single staged data store
+     * @since 3.2.0
+     */
+    public boolean isDataStoreStaged() {
+        return dataStoreStaged;
+    }
+    /**
+     * Sets whether references of all processing stages are kept in a
+     * single data store.
+     * @param dataStoreStaged <code>true</code> to use a single staged
+     *     data store
+     * @see #isDataStoreStaged()
+     * @since 3.2.0
+     */
+    public void setDataStoreStaged(boolean dataStoreStaged) {
+        this.dataStoreStaged = dataStoreStaged;
+    }
+
     /**
      * Gets the spoiled state strategy resolver.
      * @return spoiled state strategy resolver
@@ -648,10 +1053,24 @@ public abstract class CrawlerConfig implements IXMLConfigurable {
     public void saveToXML(XML xml) {
         xml.setAttribute("id", id);
         xml.addElement("numThreads", numThreads);
+        xml.addElement("virtualThreads", virtualThreads);
+        xml.addElement("maxVirtualThreads", maxVirtualThreads);
+        xml.addElement("adaptiveThreads", adaptiveThreads);
+        xml.addElement("minThreads", minThreads);
+        xml.addElement("commitThreads", commitThreads);
+        xml.addElement("commitQueueSize", commitQueueSize);
         xml.addElement("maxDocuments", maxDocuments);
         xml.addElementList("stopOnExceptions", "exception", stopOnExceptions);
         xml.addElement("orphansStrategy", orphansStrategy);
+        xml.addElement("memoryQueue", memoryQueue);
+        xml.addElement("pollBatchSize", pollBatchSize);
+        xml.addElement("referenceIndex", referenceIndex);
+        xml.addElement("queuePrioritizer", queuePrioritizer);
         xml.addElement("dataStoreEngine", dataStoreEngine);
+        xml.addElement("dataStoreDurability", dataStoreDurability);
+        xml.addElement(
+                "dataStoreCheckpointInterval", dataStoreCheckpointInterval);
+        xml.addElement("dataStoreStaged", dataStoreStaged);
         xml.addElementList("referenceFilters", "filter", referenceFilters);
         xml.addElementList("metadataFilters", "filter", metadataFilters);
         xml.addElementList("documentFilters", "filter", documentFilters);
@@ -679,9 +1098,23 @@ public abstract class CrawlerConfig implements IXMLConfigurable {
 
         setId(xml.getString("@id", id));
         setNumThreads(xml.getInteger("numThreads", numThreads));
+        setVirtualThreads(xml.getBoolean("virtualThreads", virtualThreads));
+        setMaxVirtualThreads(
+                xml.getInteger("maxVirtualThreads", maxVirtualThreads));
+        setAdaptiveThreads(
+                xml.getBoolean("adaptiveThreads", adaptiveThreads));
+        setMinThreads(xml.getInteger("minThreads", minThreads));
+        setCommitThreads(xml.getInteger("commitThreads", commitThreads));
+        setCommitQueueSize(
+                xml.getInteger("commitQueueSize", commitQueueSize));
         setOrphansStrategy(xml.getEnum(
                 "orphansStrategy", OrphansStrategy.class, orphansStrategy));
         setMaxDocuments(xml.getInteger("maxDocuments", maxDocuments));
+        setMemoryQueue(xml.getBoolean("memoryQueue", memoryQueue));
+        setPollBatchSize(xml.getInteger("pollBatchSize", pollBatchSize));
+        setReferenceIndex(xml.getBoolean("referenceIndex", referenceIndex));
+        setQueuePrioritizer(xml.getObjectImpl(IQueuePrioritizer.class,
+                "queuePrioritizer", queuePrioritizer));
         setStopOnExceptions(xml.getClassList(
                 "stopOnExceptions/exception", stopOnExceptions));
         setReferenceFilters(xml.getObjectListImpl(IReferenceFilter.class,
@@ -704,6 +1137,11 @@ public abstract class CrawlerConfig implements IXMLConfigurable {
         xml.checkDeprecated("crawlDataStoreEngine", "dataStoreEngine", true);
         setDataStoreEngine(xml.getObjectImpl(
                 IDataStoreEngine.class, "dataStoreEngine", dataStoreEngine));
+        setDataStoreDurability(xml.getEnum("dataStoreDurability",
+                DataStoreDurability.class, dataStoreDurability));
+        setDataStoreCheckpointInterval(xml.getDurationMillis(
+                "dataStoreCheckpointInterval", dataStoreCheckpointInterval));
+        setDataStoreStaged(xml.getBoolean("dataStoreStaged", dataStoreStaged));
         setCommitters(xml.getObjectListImpl(ICommitter.class,
                 "committers/committer", committers));
         setMetadataChecksummer(xml.getObjectImpl(IMetadataChecksummer.class,
@@ -0,0 +1,83 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.crawler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.core.monitor.MdcUtil;
+
+/**
+ * Runs tasks of one crawl processing stage on its own threads. Tasks
+ * are handed off through a bounded queue. When the queue is full,
+ * the thread handing off a task waits, slowing down earlier stages
+ * (back-pressure).
+ * @since 3.2.0
+ */
+class PipelineStage implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+
+    PipelineStage(
+            String crawlerId, String stageName, int numThreads, int queueSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(numThreads, numThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                r -> new Thread(() -> {
+                    MdcUtil.setCrawlerId(crawlerId);
+                    r.run();
+                }, crawlerId + "#" + stageName + "-"
+                        + threadCount.incrementAndGet()),
+                PipelineStage::waitForRoom);
+    }
+
+    void submit(Runnable task) {
+        executor.execute(task);
+    }
+
+    // Waits for all submitted tasks to complete.
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            throw new CollectorException(e);
+        }
+    }
+
+    private static void waitForRoom(
+            Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException(
+                    "Pipeline stage is closed.");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    }
+}
@@ -14,20 +14,47 @@
  */
 package com.norconex.collector.core.doc;
 
+import static com.norconex.collector.core.queue.IQueuePrioritizer.MAX_PRIORITY;
+
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiPredicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.norconex.collector.core.CollectorException;
 import com.norconex.collector.core.crawler.Crawler;
 import com.norconex.collector.core.crawler.CrawlerEvent;
 import com.norconex.collector.core.doc.CrawlDocInfo.Stage;
-import com.norconex.collector.core.store.IDataStore;
+import com.norconex.collector.core.queue.IQueuePrioritizer;
+import com.norconex.collector.core.store.DataStoreDurability;
 import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.IStagedDataStore;
+import com.norconex.collector.core.store.PerStageDataStore;
 import com.norconex.commons.lang.PercentFormatter;
 
 public class CrawlDocInfoService implements Closeable {
@@ -35,6 +62,21 @@ public class CrawlDocInfoService implements Closeable {
     private static final Logger LOG =
             LoggerFactory.getLogger(CrawlDocInfoService.class);
 
+    // Stage names, also the data store names when using one data store
+    // per stage.
+    private static final String QUEUED = "queued";
+    private static final String ACTIVE = "active";
+    private static final String PROCESSED = "processed";
+    private static final String CACHED = "cached";
+    // Queued references with a priority above zero are kept in their
+    // own stage, named after this prefix and the priority.
+    private static final String QUEUED_PRIORITY_PREFIX = QUEUED + "_";
+    // Name of the data store holding all stages, when supported.
+    private static final String STAGED_STORE_NAME = "crawldocinfo";
+    // Maximum number of data store operations waiting to be journaled.
+    // Once reached, crawler threads wait for the journal to catch up.
+    private static final int JOURNAL_QUEUE_SIZE = 1000;
+
 //    * The few stages a reference should have in most implementations are:</p>
 //    * <ul>
 //    *   <li><b>Queued:</b> References extracted from documents are first queued for
@@ -46,27 +88,67 @@ public class CrawlDocInfoService implements Closeable {
 //    *       cached on the next run.</li>
 //    * </ul>
 
-    //TODO Commit on every put() is required if we want to guarantee
-    // recovery on a cold JVM/OS/System crash. But do we care to reprocess
-    // a handful of docs?
-    //TODO if performance is too impacted, make it a configurable
-    //option to offer guarantee or not?
+    // Commit on every put() is only performed with a STRICT data store
+    // durability. Otherwise, data store engines are asked to make writes
+    // durable on regular checkpoints.
 
     //TODO so we can report better... have more states? processed is vague..
     //should we have rejected/accepted instead?
 
 //    private static final String PROP_STAGE = "processingStage";
 
-    // new ones
-    private IDataStore<CrawlDocInfo> queue;
-    private IDataStore<CrawlDocInfo> active;
-    //TODO split into rejected/accepted?
-    private IDataStore<CrawlDocInfo> processed;
-    private IDataStore<CrawlDocInfo> cached;
+    //TODO split processed into rejected/accepted?
+    private IStagedDataStore<CrawlDocInfo> store;
     private Class<? extends CrawlDocInfo> type;
 
+    // Optional queue priorities, each in its own stage. Queued stages
+    // are listed from highest to lowest priority. Only those which may
+    // hold references are listed, and visited when polling.
+    private IQueuePrioritizer prioritizer;
+    private volatile List<String> queuedStages = List.of(QUEUED);
+    private final Lock queuedStagesLock = new ReentrantLock();
+
     private final Crawler crawler;
 
+    // Optional in-memory queue: polled without locking, with
+    // "queued" -> "active" store moves journaled in the background.
+    // References in the queue are also kept in a map so the same one is
+    // never queued twice in memory, with the queued stage holding them.
+    private Queue<CrawlDocInfo> memoryQueue;
+    private Map<String, String> memoryQueued;
+    private Set<String> memoryActive;
+    private final AtomicLong memoryActiveCount = new AtomicLong();
+    private ThreadPoolExecutor journal;
+    // First journaled operation failure, stopping the crawler.
+    private volatile RuntimeException journalFailure;
+
+    // Lets crawler threads waiting for more work be woken up as soon as
+    // references are queued or processed.
+    private final Lock stateLock = new ReentrantLock();
+    private final Condition stateChanged = stateLock.newCondition();
+    private volatile long stateVersion;
+
+    // Polls references from the stores one caller at a time. Explicit
+    // locks are used instead of synchronizing around data store I/O,
+    // which would pin virtual threads to their carrier thread.
+    private final Lock pollLock = new ReentrantLock();
+
+    // Reference counts per stage, seeded from the stores when opening so
+    // frequent count requests do not query the stores. Saving a reference
+    // already in a stage is not detected (it would cost a store lookup
+    // each time), so counts are approximate until the next opening.
+    // The in-memory queue count is exact as the queue knows what it holds.
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder activeCount = new LongAdder();
+    private final LongAdder processedCount = new LongAdder();
+
+    // Optional in-memory index of each reference processing stage.
+    private ReferenceStageIndex stageIndex;
+
+    // Makes data store writes durable at regular intervals, unless
+    // durability is strict.
+    private ScheduledExecutorService checkpointer;
+
     private boolean open;
 
     public CrawlDocInfoService(
@@ -83,12 +165,8 @@ public class CrawlDocInfoService implements Closeable {
             throw new IllegalStateException("Already open.");
         }
 
-        IDataStoreEngine storeEngine = crawler.getDataStoreEngine();
-
-        queue = storeEngine.openStore("queued", type);
-        active = storeEngine.openStore("active", type);
-        processed = storeEngine.openStore("processed", type);
-        cached = storeEngine.openStore("cached", type);
+        store = openStore(crawler.getDataStoreEngine());
+        openPriorities();
 
         boolean resuming = !isQueueEmpty() || !isActiveEmpty();
 
@@ -97,17 +175,23 @@ public class CrawlDocInfoService implements Closeable {
             // Active -> Queued
             LOG.debug("Moving any {} active URLs back into queue.",
                     crawler.getId());
-            active.forEach((k, v) -> {
-                queue.save(k, v);
-                return true;
-            });
-            active.clear();
+            if (prioritizer == null) {
+                store.moveAll(ACTIVE, QUEUED);
+            } else {
+                Map<String, CrawlDocInfo> active = new LinkedHashMap<>();
+                store.forEach(ACTIVE, (k, v) -> {
+                    active.put(k, v);
+                    return true;
+                });
+                byQueuedStage(active).forEach(
+                        (stage, batch) -> store.moveAll(batch, ACTIVE, stage));
+            }
 
             if (LOG.isInfoEnabled()) {
                 //TODO use total count to track progress independently
-                long processedCount = getProcessedCount();
-                long totalCount =
-                        processedCount + queue.count() + cached.count();
+                long processedCount = store.count(PROCESSED);
+                long totalCount = processedCount
+                        + countQueuedStages() + store.count(CACHED);
                 LOG.info("RESUMING \"{}\" at {} ({}/{}).",
                         crawler.getId(),
                         PercentFormatter.format(
@@ -117,30 +201,17 @@ public class CrawlDocInfoService implements Closeable {
         } else {
             //TODO really clear cache or keep to have longer history of
             // each items?
-            cached.clear();
-            active.clear();
-            queue.clear();
+            store.clear(CACHED);
+            store.clear(ACTIVE);
+            queuedStages.forEach(store::clear);
+            queuedStages = List.of(QUEUED);
 
             // Valid Processed -> Cached
             LOG.debug("Caching any valid references from previous run.");
-
-            //TODO make swap a method on store engine?
-
-            // cached -> swap
-            storeEngine.renameStore(cached, "swap");
-            IDataStore<CrawlDocInfo> swap = cached;
-
-            // processed -> cached
-            storeEngine.renameStore(processed, "cached");
-            cached = processed;
-
-            // swap -> processed
-            storeEngine.renameStore(swap, "processed");
-            processed = swap;
-
+            store.moveAll(PROCESSED, CACHED);
 
             if (LOG.isInfoEnabled()) {
-                long cacheCount = cached.count();
+                long cacheCount = store.count(CACHED);
                 if (cacheCount > 0) {
                     LOG.info("STARTING an incremental crawl from previous {} "
                             + "valid references.", cacheCount);
@@ -150,18 +221,211 @@ public class CrawlDocInfoService implements Closeable {
             }
         }
 
+        queuedCount.reset();
+        queuedCount.add(countQueuedStages());
+        activeCount.reset();
+        activeCount.add(store.count(ACTIVE));
+        processedCount.reset();
+        processedCount.add(store.count(PROCESSED));
+
+        if (crawler.getCrawlerConfig().isMemoryQueue()) {
+            openMemoryQueue();
+        }
+        if (crawler.getCrawlerConfig().isReferenceIndex()) {
+            openStageIndex();
+        }
+        if (!isStrictDurability()) {
+            openCheckpointer();
+        }
+
         open = true;
         return resuming;
     }
 
+    // Single data store with in-place stage moves when enabled and
+    // supported, otherwise one data store per stage.
+    private IStagedDataStore<CrawlDocInfo> openStore(
+            IDataStoreEngine storeEngine) {
+        if (crawler.getCrawlerConfig().isDataStoreStaged()) {
+            Optional<IStagedDataStore<CrawlDocInfo>> staged =
+                    storeEngine.openStagedStore(STAGED_STORE_NAME, type);
+            if (staged.isPresent()) {
+                LOG.info("Using a single staged data store.");
+                return staged.get();
+            }
+            LOG.warn("Data store engine {} does not support staged data "
+                    + "stores. Using one data store per stage.",
+                    storeEngine.getClass().getSimpleName());
+        }
+        return new PerStageDataStore<>(
+                storeEngine, null, type, CrawlDocInfo::getReference);
+    }
+
+    // Existing queued stages are always included, so references queued
+    // with priorities in a previous run are not left behind when resuming
+    // without a prioritizer (or a different one). With one data store per
+    // stage, only those already existing are checked so none gets created.
+    // Others are listed when the prioritizer first queues to them.
+    private void openPriorities() {
+        prioritizer = crawler.getCrawlerConfig().getQueuePrioritizer();
+        Set<String> stored = store instanceof PerStageDataStore<?> ps
+                ? ps.getStoredStages() : null;
+        List<String> stages = new ArrayList<>();
+        for (int p = MAX_PRIORITY; p >= 0; p--) {
+            String stage = queuedStage(p);
+            if (p == 0 || ((stored == null || stored.contains(stage))
+                    && !store.isEmpty(stage))) {
+                stages.add(stage);
+            }
+        }
+        queuedStages = stages;
+        if (prioritizer != null) {
+            LOG.info("Using queue prioritizer: {}",
+                    prioritizer.getClass().getSimpleName());
+        }
+    }
+    // Lists a queued stage about to receive references, if not already.
+    private void useQueuedStage(String stage) {
+        if (queuedStages.contains(stage)) {
+            return;
+        }
+        queuedStagesLock.lock();
+        try {
+            List<String> used = queuedStages;
+            List<String> stages = new ArrayList<>();
+            for (int p = MAX_PRIORITY; p >= 0; p--) {
+                String s = queuedStage(p);
+                if (s.equals(stage) || used.contains(s)) {
+                    stages.add(s);
+                }
+            }
+            queuedStages = stages;
+        } finally {
+            queuedStagesLock.unlock();
+        }
+    }
+    private int priority(CrawlDocInfo docInfo) {
+        if (prioritizer == null) {
+            return 0;
+        }
+        return Math.max(0,
+                Math.min(MAX_PRIORITY, prioritizer.getPriority(docInfo)));
+    }
+    private static String queuedStage(int priority) {
+        return priority == 0 ? QUEUED : QUEUED_PRIORITY_PREFIX + priority;
+    }
+    private String queuedStage(CrawlDocInfo docInfo) {
+        String stage = queuedStage(priority(docInfo));
+        useQueuedStage(stage);
+        return stage;
+    }
+    // Splits references per queued stage, preserving their order.
+    private Map<String, Map<String, CrawlDocInfo>> byQueuedStage(
+            Map<String, CrawlDocInfo> docInfos) {
+        if (prioritizer == null) {
+            return Map.of(QUEUED, docInfos);
+        }
+        Map<String, Map<String, CrawlDocInfo>> stages = new LinkedHashMap<>();
+        docInfos.forEach((ref, docInfo) -> stages.computeIfAbsent(
+                queuedStage(docInfo), s -> new LinkedHashMap<>())
+                        .put(ref, docInfo));
+        return stages;
+    }
+    private long countQueuedStages() {
+        long count = 0;
+        for (String stage : queuedStages) {
+            count += store.count(stage);
+        }
+        return count;
+    }
+
+    private void openMemoryQueue() {
+        if (prioritizer == null) {
+            memoryQueue = new ConcurrentLinkedQueue<>();
+        } else {
+            memoryQueue = new PriorityLevelQueue<>(
+                    MAX_PRIORITY, this::priority);
+        }
+        memoryQueued = new ConcurrentHashMap<>();
+        memoryActive = ConcurrentHashMap.newKeySet();
+        memoryActiveCount.set(0);
+        // in the order references would be polled from the stores
+        for (String stage : queuedStages) {
+            store.forEach(stage, (k, v) -> {
+                if (memoryQueued.putIfAbsent(k, stage) == null) {
+                    memoryQueue.add(v);
+                }
+                return true;
+            });
+        }
+        journalFailure = null;
+        journal = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(JOURNAL_QUEUE_SIZE), r -> {
+                    Thread t = new Thread(r, crawler.getId() + "#journal");
+                    t.setDaemon(true);
+                    return t;
+                }, CrawlDocInfoService::waitForJournal);
+        LOG.info("Using in-memory queue ({} references loaded).",
+                memoryQueue.size());
+    }
+
+    private void openCheckpointer() {
+        long interval =
+                crawler.getCrawlerConfig().getDataStoreCheckpointInterval();
+        if (interval <= 0) {
+            return;
+        }
+        checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, crawler.getId() + "#checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+        checkpointer.scheduleWithFixedDelay(
+                this::checkpoint, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    private boolean isStrictDurability() {
+        return crawler.getCrawlerConfig().getDataStoreDurability()
+                == DataStoreDurability.STRICT;
+    }
+
+    private void openStageIndex() {
+        ReferenceStageIndex index = new ReferenceStageIndex();
+        store.forEach(PROCESSED, (k, v) -> {
+            index.put(k, Stage.PROCESSED);
+            return true;
+        });
+        forEachQueued((k, v) -> {
+            index.put(k, Stage.QUEUED);
+            return true;
+        });
+        stageIndex = index;
+        LOG.info("Using in-memory reference index ({} references loaded).",
+                index.size());
+    }
+    private void indexStage(String ref, Stage stage) {
+        if (stageIndex != null) {
+            stageIndex.put(ref, stage);
+        }
+    }
+    private void indexStage(Collection<String> refs, Stage stage) {
+        if (stageIndex != null) {
+            refs.forEach(ref -> stageIndex.put(ref, stage));
+        }
+    }
+
     public Stage getProcessingStage(String id) {
-        if (active.exists(id)) {
+        if (stageIndex != null) {
+            return stageIndex.get(id);
+        }
+        if (store.exists(ACTIVE, id)) {
             return Stage.ACTIVE;
         }
-        if (queue.exists(id)) {
-            return Stage.QUEUED;
+        for (String stage : queuedStages) {
+            if (store.exists(stage, id)) {
+                return Stage.QUEUED;
+            }
         }
-        if (processed.exists(id)) {
+        if (store.exists(PROCESSED, id)) {
             return Stage.PROCESSED;
         }
         return null;
@@ -170,32 +434,54 @@ public class CrawlDocInfoService implements Closeable {
     //--- Active ---
 
     public long getActiveCount() {
-        return active.count();
+        if (memoryQueue != null) {
+            return memoryActiveCount.get();
+        }
+        return activeCount.sum();
     }
     public boolean isActiveEmpty() {
-        return active.isEmpty();
+        if (memoryQueue != null) {
+            return memoryActiveCount.get() == 0;
+        }
+        return store.isEmpty(ACTIVE);
     }
     public boolean forEachActive(BiPredicate<String, CrawlDocInfo> predicate) {
-        return active.forEach(predicate);
+        return store.forEach(ACTIVE, predicate);
     }
 
     //--- Processed ---
 
     public long getProcessedCount() {
-        return processed.count();
+        return processedCount.sum();
     }
     public boolean isProcessedEmpty() {
-        return processed.isEmpty();
+        return store.isEmpty(PROCESSED);
     }
     public Optional<CrawlDocInfo> getProcessed(String id) {
-        return processed.find(id);
+        return store.find(PROCESSED, id);
     }
 
-    public synchronized void processed(CrawlDocInfo docInfo) {
+    public void processed(CrawlDocInfo docInfo) {
         Objects.requireNonNull(docInfo, "'docInfo' must not be null.");
-        processed.save(docInfo.getReference(), docInfo);
-        boolean cacheDeleted = cached.delete(docInfo.getReference());
-        boolean activeDeleted = active.delete(docInfo.getReference());
+        String ref = docInfo.getReference();
+        boolean activeDeleted;
+        if (memoryQueue != null) {
+            store.save(PROCESSED, ref, docInfo);
+            activeDeleted = memoryActive.remove(ref);
+            if (activeDeleted) {
+                journal(() -> store.delete(ACTIVE, ref));
+                memoryActiveCount.decrementAndGet();
+            }
+        } else {
+            activeDeleted = store.move(ref, docInfo, ACTIVE, PROCESSED);
+            if (activeDeleted) {
+                activeCount.decrement();
+            }
+        }
+        processedCount.increment();
+        indexStage(ref, Stage.PROCESSED);
+        boolean cacheDeleted = store.delete(CACHED, ref);
+        signalStateChange();
         LOG.debug("Saved processed: {} "
                 + "(Deleted from cache: {}; Deleted from active: {})",
                 docInfo.getReference(), cacheDeleted, activeDeleted);
@@ -206,56 +492,349 @@ public class CrawlDocInfoService implements Closeable {
     }
     public boolean forEachProcessed(
             BiPredicate<String, CrawlDocInfo> predicate) {
-        return processed.forEach(predicate);
+        return store.forEach(PROCESSED, predicate);
     }
 
     //--- Queue ---
 
     public boolean isQueueEmpty() {
-        return queue.isEmpty();
+        if (memoryQueue != null) {
+            return memoryQueue.isEmpty();
+        }
+        for (String stage : queuedStages) {
+            if (!store.isEmpty(stage)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public long getQueueCount() {
-        return queue.count();
+        return queuedCount.sum();
     }
     public void queue(CrawlDocInfo docInfo) {
         Objects.requireNonNull(docInfo, "'docInfo' must not be null.");
-        queue.save(docInfo.getReference(), docInfo);
+        String ref = docInfo.getReference();
+        String stage = queuedStage(docInfo);
+        boolean added = memoryQueue == null;
+        store.save(stage, ref, docInfo);
+        if (memoryQueue != null
+                && memoryQueued.putIfAbsent(ref, stage) == null) {
+            memoryQueue.add(docInfo);
+            added = true;
+        }
+        if (added) {
+            queuedCount.increment();
+        }
+        indexStage(ref, Stage.QUEUED);
+        signalStateChange();
         LOG.debug("Saved queued: {}", docInfo.getReference());
         crawler.getEventManager().fire(new CrawlerEvent.Builder(
                 CrawlerEvent.DOCUMENT_QUEUED, crawler)
                     .crawlDocInfo(docInfo)
                     .build());
     }
+    // Queues all references in one data store batch operation
+    public void queueAll(Collection<? extends CrawlDocInfo> docInfos) {
+        Objects.requireNonNull(docInfos, "'docInfos' must not be null.");
+        Map<String, CrawlDocInfo> batch = toMap(docInfos);
+        long added = 0;
+        for (Entry<String, Map<String, CrawlDocInfo>> en :
+                byQueuedStage(batch).entrySet()) {
+            store.saveAll(en.getKey(), en.getValue());
+            if (memoryQueue != null) {
+                added += memoryQueueAll(en.getKey(), en.getValue());
+            } else {
+                added += en.getValue().size();
+            }
+        }
+        queuedCount.add(added);
+        indexStage(batch.keySet(), Stage.QUEUED);
+        signalStateChange();
+        for (CrawlDocInfo docInfo : batch.values()) {
+            LOG.debug("Saved queued: {}", docInfo.getReference());
+            crawler.getEventManager().fire(new CrawlerEvent.Builder(
+                    CrawlerEvent.DOCUMENT_QUEUED, crawler)
+                        .crawlDocInfo(docInfo)
+                        .build());
+        }
+    }
     // get and delete and mark as active
-    public synchronized Optional<CrawlDocInfo> pollQueue() {
-        Optional<CrawlDocInfo> docInfo = queue.deleteFirst();
-        if (docInfo.isPresent()) {
-            active.save(docInfo.get().getReference(), docInfo.get());
-            LOG.debug("Saved active: {}", docInfo.get().getReference());
+    public Optional<CrawlDocInfo> pollQueue() {
+        if (memoryQueue != null) {
+            return pollMemoryQueue(1).stream().findFirst();
+        }
+        return pollStoreQueue();
+    }
+    // get and delete and mark as active, up to the given maximum
+    public List<CrawlDocInfo> pollQueue(int maxCount) {
+        if (memoryQueue != null) {
+            return pollMemoryQueue(maxCount);
+        }
+        return pollStoreQueue(maxCount);
+    }
+    // Moves references polled but not processed from active back to queue
+    public void requeue(Collection<? extends CrawlDocInfo> docInfos) {
+        Objects.requireNonNull(docInfos, "'docInfos' must not be null.");
+        if (docInfos.isEmpty()) {
+            return;
+        }
+        Map<String, CrawlDocInfo> batch = toMap(docInfos);
+        Map<String, Map<String, CrawlDocInfo>> stages = byQueuedStage(batch);
+        long added = 0;
+        if (memoryQueue != null) {
+            for (Entry<String, Map<String, CrawlDocInfo>> en :
+                    stages.entrySet()) {
+                Map<String, CrawlDocInfo> active = new LinkedHashMap<>();
+                en.getValue().forEach((ref, docInfo) -> {
+                    if (memoryActive.remove(ref)) {
+                        active.put(ref, docInfo);
+                        memoryActiveCount.decrementAndGet();
+                    }
+                });
+                added += memoryQueueAll(en.getKey(), active);
+            }
+            journal(() -> stages.forEach(
+                    (stage, b) -> store.moveAll(b, ACTIVE, stage)));
+        } else {
+            // all end up queued, whether moved from active or not
+            for (Entry<String, Map<String, CrawlDocInfo>> en :
+                    stages.entrySet()) {
+                added += en.getValue().size();
+                activeCount.add(
+                        -store.moveAll(en.getValue(), ACTIVE, en.getKey()));
+            }
+        }
+        queuedCount.add(added);
+        indexStage(batch.keySet(), Stage.QUEUED);
+        signalStateChange();
+        LOG.debug("Requeued {} unprocessed references.", batch.size());
+    }
+    // Adds references held in the given queued stage to the in-memory
+    // queue, returning how many were not already in it.
+    private long memoryQueueAll(
+            String stage, Map<String, CrawlDocInfo> docInfos) {
+        long added = 0;
+        for (Entry<String, CrawlDocInfo> en : docInfos.entrySet()) {
+            if (memoryQueued.putIfAbsent(en.getKey(), stage) == null) {
+                memoryQueue.add(en.getValue());
+                added++;
+            }
+        }
+        return added;
+    }
+    private Optional<CrawlDocInfo> pollStoreQueue() {
+        return pollStoreQueue(1).stream().findFirst();
+    }
+    private List<CrawlDocInfo> pollStoreQueue(int maxCount) {
+        // from highest to lowest priority
+        List<CrawlDocInfo> docInfos = new ArrayList<>();
+        pollLock.lock();
+        try {
+            for (String stage : queuedStages) {
+                docInfos.addAll(store.moveFirst(
+                        stage, ACTIVE, maxCount - docInfos.size()));
+                if (docInfos.size() >= maxCount) {
+                    break;
+                }
+            }
+        } finally {
+            pollLock.unlock();
+        }
+        if (!docInfos.isEmpty()) {
+            queuedCount.add(-docInfos.size());
+            activeCount.add(docInfos.size());
+            indexStage(toMap(docInfos).keySet(), Stage.ACTIVE);
+            LOG.debug("Saved {} active.", docInfos.size());
+        }
+        return docInfos;
+    }
+    private List<CrawlDocInfo> pollMemoryQueue(int maxCount) {
+        List<CrawlDocInfo> docInfos = new ArrayList<>();
+        // moved from the queued stage holding them
+        Map<String, Map<String, CrawlDocInfo>> stages = new LinkedHashMap<>();
+        while (docInfos.size() < maxCount) {
+            // Count as active before polling so the queue and active
+            // references never both appear empty while one is being moved.
+            memoryActiveCount.incrementAndGet();
+            CrawlDocInfo docInfo = memoryQueue.poll();
+            if (docInfo == null) {
+                memoryActiveCount.decrementAndGet();
+                break;
+            }
+            // active before no longer queued, so it is always in one
+            String ref = docInfo.getReference();
+            memoryActive.add(ref);
+            String stage = memoryQueued.remove(ref);
+            stages.computeIfAbsent(stage == null ? QUEUED : stage,
+                    s -> new LinkedHashMap<>()).put(ref, docInfo);
+            indexStage(ref, Stage.ACTIVE);
+            docInfos.add(docInfo);
         }
-        return docInfo;
+        queuedCount.add(-docInfos.size());
+        if (!docInfos.isEmpty()) {
+            journal(() -> stages.forEach((stage, batch) -> {
+                store.moveAll(batch, stage, ACTIVE);
+                LOG.debug("Saved active: {}", batch.keySet());
+            }));
+        }
+        return docInfos;
     }
     public boolean forEachQueued(
             BiPredicate<String, CrawlDocInfo> predicate) {
-        return queue.forEach(predicate);
+        // from highest to lowest priority
+        for (String stage : queuedStages) {
+            if (!store.forEach(stage, predicate)) {
+                return false;
+            }
+        }
+        return true;
     }
 
 
     //--- Cache ---
 
     public Optional<CrawlDocInfo> getCached(String id) {
-        return cached.find(id);
+        return store.find(CACHED, id);
     }
     public boolean forEachCached(
             BiPredicate<String, CrawlDocInfo> predicate) {
-        return cached.forEach(predicate);
+        return store.forEach(CACHED, predicate);
+    }
+    // Predicate is invoked from many threads and must be thread-safe.
+    public boolean forEachCachedParallel(int parallelism,
+            BiPredicate<String, CrawlDocInfo> predicate) {
+        return store.forEachParallel(CACHED, parallelism, predicate);
+    }
+
+
+
+    //--- State changes ---
+
+    // Returns a value that changes every time references are queued or
+    // processed. Obtain it before checking for work and pass it to
+    // awaitStateChange(...) to not miss changes made in between.
+    public long getStateVersion() {
+        return stateVersion;
+    }
+    // Waits until the state version is different from the one supplied,
+    // or the timeout elapses. Returns true if the state changed.
+    public boolean awaitStateChange(long version, long timeoutMillis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        stateLock.lock();
+        try {
+            while (stateVersion == version) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = stateChanged.awaitNanos(nanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    // Wakes up all threads waiting for a state change.
+    public void signalStateChange() {
+        stateLock.lock();
+        try {
+            stateVersion++;
+            stateChanged.signalAll();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private static Map<String, CrawlDocInfo> toMap(
+            Collection<? extends CrawlDocInfo> docInfos) {
+        Map<String, CrawlDocInfo> map = new LinkedHashMap<>();
+        for (CrawlDocInfo docInfo : docInfos) {
+            map.put(docInfo.getReference(), docInfo);
+        }
+        return map;
     }
 
+    // Makes data store writes performed so far durable.
+    public void checkpoint() {
+        try {
+            crawler.getDataStoreEngine().checkpoint();
+        } catch (RuntimeException e) {
+            LOG.error("Could not checkpoint data store engine.", e);
+        }
+    }
 
+    // Store operations are applied in submission order by a single thread.
+    // Once a write fails, the crawler is stopped and any further
+    // operation submitted fails.
+    private void journal(Runnable storeOperation) {
+        RuntimeException failure = journalFailure;
+        if (failure != null) {
+            throw new CollectorException(
+                    "Could not apply journaled data store operation.",
+                    failure);
+        }
+        journal.execute(() -> {
+            try {
+                storeOperation.run();
+            } catch (RuntimeException e) {
+                LOG.error("Could not apply journaled data store operation. "
+                        + "Stopping the crawler.", e);
+                if (journalFailure == null) {
+                    journalFailure = e;
+                    crawler.stop();
+                }
+            }
+        });
+    }
+    // When the journal queue is full, waits for room (back-pressure).
+    private static void waitForJournal(
+            Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Journal is closed.");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    }
 
     @Override
     public void close() {
+        if (journal != null) {
+            LOG.debug("Flushing journaled data store operations...");
+            journal.shutdown();
+            try {
+                if (!journal.awaitTermination(5, TimeUnit.MINUTES)) {
+                    LOG.warn("Timed out before all journaled data store "
+                            + "operations could be applied.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            journal = null;
+        }
+        if (checkpointer != null) {
+            // let a running checkpoint complete
+            checkpointer.shutdown();
+            try {
+                checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            checkpointer = null;
+        }
+        if (open && !isStrictDurability()) {
+            checkpoint();
+        }
+        memoryQueue = null;
+        memoryQueued = null;
+        memoryActive = null;
+        stageIndex = null;
         open = false;
     }
 }
@@ -0,0 +1,108 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.doc;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ToIntFunction;
+
+/**
+ * Thread-safe queue made of one FIFO queue per priority level. Polling
+ * returns the oldest element of the highest non-empty level.
+ * @param <E> type of queued elements
+ * @since 3.2.0
+ */
+class PriorityLevelQueue<E> extends AbstractQueue<E> {
+
+    // highest priority last
+    private final List<Queue<E>> levels;
+    private final ToIntFunction<? super E> priorityResolver;
+
+    /**
+     * Creates a queue.
+     * @param maxPriority highest priority (lowest being 0)
+     * @param priorityResolver gets the priority of an element, from 0
+     *     to <code>maxPriority</code>
+     */
+    PriorityLevelQueue(
+            int maxPriority, ToIntFunction<? super E> priorityResolver) {
+        levels = new ArrayList<>(maxPriority + 1);
+        for (int i = 0; i <= maxPriority; i++) {
+            levels.add(new ConcurrentLinkedQueue<>());
+        }
+        this.priorityResolver = priorityResolver;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        return levels.get(priorityResolver.applyAsInt(e)).offer(e);
+    }
+
+    @Override
+    public E poll() {
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            E e = levels.get(i).poll();
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E peek() {
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            E e = levels.get(i).peek();
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Queue<E> level : levels) {
+            if (!level.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Queue<E> level : levels) {
+            size += level.size();
+        }
+        return size;
+    }
+
+    // in polling order, not supporting removal
+    @Override
+    public Iterator<E> iterator() {
+        List<E> all = new ArrayList<>();
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            all.addAll(levels.get(i));
+        }
+        return Collections.unmodifiableList(all).iterator();
+    }
+}
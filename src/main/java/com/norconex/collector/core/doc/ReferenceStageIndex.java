@@ -0,0 +1,189 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.doc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.core.doc.CrawlDocInfo.Stage;
+
+/**
+ * <p>
+ * Compact in-memory index of the processing stage of every reference
+ * known to a crawler (queued, active or processed). References are held
+ * as 128-bit fingerprints in off-heap memory, split into independently
+ * locked segments, for 17 bytes per slot. A reference absent from
+ * the index is guaranteed to be unknown.
+ * </p>
+ * <p>
+ * Segments double in size when three quarters full, so each reference
+ * takes between 23 and 45 bytes. Replaced buffers are only released
+ * once garbage collected, and the index never shrinks while in use.
+ * For instance, 400 million references need about 9 GB of direct
+ * memory, and up to about 18 GB while segments grow. Direct memory is
+ * limited by the <code>-XX:MaxDirectMemorySize</code> JVM option
+ * (which defaults to the maximum heap size). A
+ * {@link CollectorException} is thrown when it runs out.
+ * </p>
+ * <p>
+ * Two distinct references sharing the same fingerprint would be treated
+ * as the same, which is not a realistic concern with 128-bit fingerprints.
+ * </p>
+ * @since 3.2.0
+ */
+class ReferenceStageIndex {
+
+    private static final int SEGMENT_COUNT = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+    // 2 longs for the fingerprint + 1 byte for the stage
+    private static final int SLOT_BYTES = 17;
+    private static final int MAX_SEGMENT_CAPACITY =
+            Integer.highestOneBit(Integer.MAX_VALUE / SLOT_BYTES);
+    private static final Stage[] STAGES = Stage.values();
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    ReferenceStageIndex() {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    Stage get(String reference) {
+        ByteBuffer fp = fingerprint(reference);
+        long hi = fp.getLong();
+        long lo = fp.getLong();
+        return segmentFor(hi).get(hi, lo);
+    }
+    void put(String reference, Stage stage) {
+        ByteBuffer fp = fingerprint(reference);
+        long hi = fp.getLong();
+        long lo = fp.getLong();
+        segmentFor(hi).put(hi, lo, stage);
+    }
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private static ByteBuffer fingerprint(String reference) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("MD5").digest(
+                    reference.getBytes(UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new CollectorException("MD5 digest not supported.", e);
+        }
+    }
+
+    private Segment segmentFor(long hi) {
+        return segments[(int) (hi >>> 58) & (SEGMENT_COUNT - 1)];
+    }
+
+    // Open addressing hash table with linear probing, held in a direct
+    // buffer. An all-zero fingerprint marks an empty slot.
+    private static class Segment {
+        private ByteBuffer slots = allocate(INITIAL_SEGMENT_CAPACITY);
+        private int capacity = INITIAL_SEGMENT_CAPACITY;
+        private int size;
+
+        private synchronized Stage get(long hi, long lo) {
+            long key = emptySafe(hi, lo);
+            int offset = offset(slots, capacity, hi, key);
+            if (isEmpty(slots, offset)) {
+                return null;
+            }
+            return STAGES[slots.get(offset + 16)];
+        }
+        private synchronized void put(long hi, long lo, Stage stage) {
+            long key = emptySafe(hi, lo);
+            int offset = offset(slots, capacity, hi, key);
+            if (isEmpty(slots, offset)) {
+                slots.putLong(offset, hi);
+                slots.putLong(offset + 8, key);
+                size++;
+            }
+            slots.put(offset + 16, (byte) stage.ordinal());
+            if (size > capacity / 4 * 3) {
+                grow();
+            }
+        }
+        private synchronized int size() {
+            return size;
+        }
+        private void grow() {
+            if (capacity >= MAX_SEGMENT_CAPACITY) {
+                throw new CollectorException(
+                        "Reference index segment is full.");
+            }
+            int newCapacity = capacity * 2;
+            ByteBuffer newSlots = allocate(newCapacity);
+            for (int i = 0; i < capacity; i++) {
+                int oldOffset = i * SLOT_BYTES;
+                if (!isEmpty(slots, oldOffset)) {
+                    long hi = slots.getLong(oldOffset);
+                    long lo = slots.getLong(oldOffset + 8);
+                    int offset = offset(newSlots, newCapacity, hi, lo);
+                    newSlots.putLong(offset, hi);
+                    newSlots.putLong(offset + 8, lo);
+                    newSlots.put(offset + 16, slots.get(oldOffset + 16));
+                }
+            }
+            slots = newSlots;
+            capacity = newCapacity;
+        }
+        private static ByteBuffer allocate(int capacity) {
+            try {
+                return ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+            } catch (OutOfMemoryError e) {
+                throw new CollectorException(String.format(
+                        "Not enough direct memory to allocate %,d bytes for "
+                        + "the reference index. Increase the maximum with "
+                        + "the -XX:MaxDirectMemorySize JVM option, or "
+                        + "disable \"referenceIndex\".",
+                        (long) capacity * SLOT_BYTES), e);
+            }
+        }
+        // returns the offset of the slot holding the key, or of the
+        // empty slot to use
+        private static int offset(
+                ByteBuffer slots, int capacity, long hi, long lo) {
+            int mask = capacity - 1;
+            int slot = (int) (lo ^ (lo >>> 32)) & mask;
+            while (true) {
+                int offset = slot * SLOT_BYTES;
+                if (isEmpty(slots, offset)
+                        || (slots.getLong(offset) == hi
+                                && slots.getLong(offset + 8) == lo)) {
+                    return offset;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        private static boolean isEmpty(ByteBuffer slots, int offset) {
+            return slots.getLong(offset) == 0 && slots.getLong(offset + 8) == 0;
+        }
+        // an all-zero fingerprint would be mistaken for an empty slot
+        private static long emptySafe(long hi, long lo) {
+            return hi == 0 && lo == 0 ? 1 : lo;
+        }
+    }
+}
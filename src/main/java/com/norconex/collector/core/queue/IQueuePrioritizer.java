@@ -0,0 +1,51 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.queue;
+
+import com.norconex.collector.core.doc.CrawlDocInfo;
+
+/**
+ * <p>
+ * Decides the priority of queued references. References with a higher
+ * priority are processed before those with a lower one, regardless
+ * of when they were queued. References of the same priority are
+ * processed in the order they were queued.
+ * </p>
+ * <p>
+ * Priorities range from 0 (lowest, the default) to
+ * {@value #MAX_PRIORITY}. Values outside that range are brought back
+ * to the nearest one. Each priority is kept in its own queue, so having
+ * few of them is more efficient.
+ * </p>
+ * <p>
+ * A reference must always be given the same priority, as it is used
+ * to find the reference in the queue it was saved to (e.g., when
+ * resuming). It should therefore only depend on the reference
+ * information received.
+ * </p>
+ * @since 3.2.0
+ */
+public interface IQueuePrioritizer {
+
+    /** Highest priority. */
+    int MAX_PRIORITY = 9;
+
+    /**
+     * Gets the priority of a reference about to be queued.
+     * @param docInfo the reference information
+     * @return priority, from 0 to {@value #MAX_PRIORITY}
+     */
+    int getPriority(CrawlDocInfo docInfo);
+}
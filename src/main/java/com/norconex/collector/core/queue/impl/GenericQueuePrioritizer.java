@@ -0,0 +1,193 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.queue.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.norconex.collector.core.doc.CrawlDocInfo;
+import com.norconex.collector.core.queue.IQueuePrioritizer;
+import com.norconex.commons.lang.text.TextMatcher;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Generic implementation of {@link IQueuePrioritizer} giving references
+ * a priority based on rules matching their reference. Rules are
+ * evaluated in order and the first one matching a reference decides its
+ * priority. References not matching any rule get the default priority
+ * (0 unless specified otherwise).
+ * </p>
+ *
+ * {@nx.xml.usage
+ * <queuePrioritizer
+ *     class="com.norconex.collector.core.queue.impl.GenericQueuePrioritizer"
+ *     defaultPriority="(0 to 9)">
+ *   <rule priority="(0 to 9)">
+ *     <valueMatcher {@nx.include com.norconex.commons.lang.text.TextMatcher#matchAttributes}>
+ *       (Expression matching the document reference.)
+ *     </valueMatcher>
+ *   </rule>
+ *   (repeat rule tag as needed)
+ * </queuePrioritizer>
+ * }
+ *
+ * {@nx.xml.example
+ * <queuePrioritizer class="GenericQueuePrioritizer">
+ *   <rule priority="9">
+ *     <valueMatcher method="regex">.*&#47;news/.*</valueMatcher>
+ *   </rule>
+ *   <rule priority="5">
+ *     <valueMatcher method="wildcard">*.html</valueMatcher>
+ *   </rule>
+ * </queuePrioritizer>
+ * }
+ * <p>
+ * The above example processes references having "/news/" in them first,
+ * followed by other HTML pages, and then everything else.
+ * </p>
+ * @since 3.2.0
+ */
+@SuppressWarnings("javadoc")
+public class GenericQueuePrioritizer
+        implements IQueuePrioritizer, IXMLConfigurable {
+
+    private int defaultPriority;
+    private final List<Rule> rules = new ArrayList<>();
+
+    @Override
+    public int getPriority(CrawlDocInfo docInfo) {
+        String reference = docInfo.getReference();
+        for (Rule rule : rules) {
+            if (rule.valueMatcher.matches(reference)) {
+                return rule.priority;
+            }
+        }
+        return defaultPriority;
+    }
+
+    /**
+     * Gets the priority of references not matching any rule.
+     * @return default priority
+     */
+    public int getDefaultPriority() {
+        return defaultPriority;
+    }
+    /**
+     * Sets the priority of references not matching any rule.
+     * @param defaultPriority default priority
+     */
+    public void setDefaultPriority(int defaultPriority) {
+        this.defaultPriority = defaultPriority;
+    }
+
+    /**
+     * Gets the priority rules, in evaluation order.
+     * @return rules (never <code>null</code>)
+     */
+    public List<Rule> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+    /**
+     * Adds a rule giving a priority to matching references.
+     * @param valueMatcher matcher of document references
+     * @param priority priority of matching references
+     */
+    public void addRule(TextMatcher valueMatcher, int priority) {
+        rules.add(new Rule(valueMatcher, priority));
+    }
+    /**
+     * Removes all rules.
+     */
+    public void clearRules() {
+        rules.clear();
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setDefaultPriority(
+                xml.getInteger("@defaultPriority", defaultPriority));
+        List<XML> nodes = xml.getXMLList("rule");
+        if (!nodes.isEmpty()) {
+            clearRules();
+        }
+        for (XML node : nodes) {
+            TextMatcher matcher = new TextMatcher();
+            matcher.loadFromXML(node.getXML("valueMatcher"));
+            addRule(matcher, node.getInteger("@priority", 0));
+        }
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.setAttribute("defaultPriority", defaultPriority);
+        for (Rule rule : rules) {
+            XML node = xml.addElement("rule")
+                    .setAttribute("priority", rule.priority);
+            rule.valueMatcher.saveToXML(node.addElement("valueMatcher"));
+        }
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+
+    /**
+     * A priority given to references matching an expression.
+     */
+    public static class Rule {
+        private final TextMatcher valueMatcher = new TextMatcher();
+        private final int priority;
+        public Rule(TextMatcher valueMatcher, int priority) {
+            this.valueMatcher.copyFrom(valueMatcher);
+            this.priority = priority;
+        }
+        public TextMatcher getValueMatcher() {
+            return valueMatcher;
+        }
+        public int getPriority() {
+            return priority;
+        }
+        @Override
+        public boolean equals(final Object other) {
+            return EqualsBuilder.reflectionEquals(this, other);
+        }
+        @Override
+        public int hashCode() {
+            return HashCodeBuilder.reflectionHashCode(this);
+        }
+        @Override
+        public String toString() {
+            return new ReflectionToStringBuilder(
+                    this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store;
+
+/**
+ * How soon data store writes are guaranteed to survive a crash of the
+ * JVM or system. Relaxed levels offer higher write throughput at the
+ * cost of having a few documents processed again when resuming
+ * after a crash. Each {@link IDataStoreEngine} maps these levels to
+ * what its underlying storage supports.
+ * @since 3.2.0
+ */
+public enum DataStoreDurability {
+    /**
+     * Every write is persisted before returning.
+     */
+    STRICT,
+    /**
+     * Writes are persisted in the background at regular intervals,
+     * as determined by the data store engine, as well as on checkpoints.
+     */
+    PERIODIC,
+    /**
+     * Persisting writes can be deferred until the next checkpoint,
+     * which takes place at regular intervals and when the crawler stops.
+     */
+    ON_CHECKPOINT
+}
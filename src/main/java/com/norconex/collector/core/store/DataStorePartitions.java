@@ -0,0 +1,155 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+import org.slf4j.MDC;
+
+/**
+ * Helps data store implementations iterate over their entries with
+ * many threads, each thread walking a distinct range of keys.
+ * Threads are shared by all iterations and end after being idle for
+ * a minute. They log with the mapped diagnostic context (MDC) of the
+ * thread starting an iteration (e.g., its crawler id).
+ * @since 3.2.0
+ */
+public final class DataStorePartitions {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    // Shared by all data stores instead of creating threads on every
+    // iteration. Each iteration uses no more threads than its parallelism.
+    private static final ExecutorService POOL =
+            Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "datastore-partitions-"
+                        + THREAD_COUNT.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+    private DataStorePartitions() {
+    }
+
+    /**
+     * Iterates over the entries of one key range.
+     * @param <K> type of the keys delimiting ranges
+     * @param <T> type of stored objects
+     */
+    @FunctionalInterface
+    public interface RangeIterator<K, T> {
+        /**
+         * Iterates over entries of a key range.
+         * @param fromKey first key, inclusive (<code>null</code> for the
+         *     first key of the store)
+         * @param toKey last key, exclusive (<code>null</code> for past the
+         *     last key of the store)
+         * @param predicate invoked for each entry, returning
+         *     <code>false</code> to stop
+         * @return <code>true</code> if the whole range was read
+         */
+        boolean forEach(K fromKey, K toKey, BiPredicate<String, T> predicate);
+    }
+
+    /**
+     * Iterates over all key ranges delimited by the given split keys,
+     * using up to the given number of threads. When a predicate returns
+     * <code>false</code>, all threads stop.
+     * @param <K> type of the keys delimiting ranges
+     * @param <T> type of stored objects
+     * @param splitKeys ordered keys delimiting ranges (one more range than
+     *     split keys)
+     * @param parallelism maximum number of threads
+     * @param rangeIterator iterates over one range
+     * @param predicate invoked for each entry, must be thread-safe
+     * @return <code>true</code> if all entries were read
+     */
+    public static <K, T> boolean forEach(
+            List<K> splitKeys,
+            int parallelism,
+            RangeIterator<K, T> rangeIterator,
+            BiPredicate<String, T> predicate) {
+        if (splitKeys.isEmpty() || parallelism <= 1) {
+            return rangeIterator.forEach(null, null, predicate);
+        }
+
+        AtomicBoolean stopped = new AtomicBoolean();
+        BiPredicate<String, T> stoppable = (k, v) -> {
+            if (stopped.get()) {
+                return false;
+            }
+            if (!predicate.test(k, v)) {
+                stopped.set(true);
+                return false;
+            }
+            return true;
+        };
+
+        // Each task reads ranges not taken yet by other tasks.
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        AtomicInteger nextRange = new AtomicInteger();
+        Runnable task = () -> {
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try {
+                for (int i = nextRange.getAndIncrement();
+                        i <= splitKeys.size() && !stopped.get();
+                        i = nextRange.getAndIncrement()) {
+                    rangeIterator.forEach(
+                            i > 0 ? splitKeys.get(i - 1) : null,
+                            i < splitKeys.size() ? splitKeys.get(i) : null,
+                            stoppable);
+                }
+            } finally {
+                MDC.clear();
+            }
+        };
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            int taskCount = Math.min(parallelism, splitKeys.size() + 1);
+            for (int i = 0; i < taskCount; i++) {
+                futures.add(POOL.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped.set(true);
+            throw new DataStoreException(
+                    "Interrupted while iterating over data store.", e);
+        } catch (ExecutionException e) {
+            stopped.set(true);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataStoreException(
+                    "Could not iterate over data store.", e.getCause());
+        } finally {
+            // no-op unless failed or interrupted
+            futures.forEach(future -> future.cancel(true));
+        }
+        return !stopped.get();
+    }
+}
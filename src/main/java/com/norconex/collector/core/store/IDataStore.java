@@ -15,6 +15,11 @@
 package com.norconex.collector.core.store;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiPredicate;
 
@@ -36,4 +41,57 @@ public interface IDataStore<T> extends Closeable {
     void close();
     boolean forEach(BiPredicate<String, T> predicate);
     boolean isEmpty();
+
+    //--- Batch operations ---
+    // Default implementations invoke the single-record method for each
+    // entry. Implementations should override them when they can do it
+    // in fewer round-trips.
+
+    // saves in the map iteration order (use a LinkedHashMap to
+    // preserve insertion order)
+    default void saveAll(Map<String, T> objects) {
+        objects.forEach(this::save);
+    }
+    // returns found items only, keyed by id
+    default Map<String, T> findAll(Collection<String> ids) {
+        Map<String, T> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            find(id).ifPresent(obj -> found.put(id, obj));
+        }
+        return found;
+    }
+    // returns how many were deleted
+    default long deleteAll(Collection<String> ids) {
+        long count = 0;
+        for (String id : ids) {
+            if (delete(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    // returns deleted items, up to the given maximum
+    default List<T> deleteFirst(int maxCount) {
+        List<T> deleted = new ArrayList<>();
+        while (deleted.size() < maxCount) {
+            Optional<T> obj = deleteFirst();
+            if (obj.isEmpty()) {
+                break;
+            }
+            deleted.add(obj.get());
+        }
+        return deleted;
+    }
+
+    //--- Parallel operations ---
+    // Default implementations are sequential. Implementations able to
+    // split their keys into ranges should override them (see
+    // DataStorePartitions).
+
+    // predicate must be thread-safe. Returning false stops all threads.
+    // Returns true if all entries were read.
+    default boolean forEachParallel(
+            int parallelism, BiPredicate<String, T> predicate) {
+        return forEach(predicate);
+    }
 }
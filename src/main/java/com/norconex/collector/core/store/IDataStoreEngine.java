@@ -35,4 +35,64 @@ public interface IDataStoreEngine extends Closeable {
 
     Set<String> getStoreNames();
     Optional<Class<?>> getStoreType(String name);
+
+    /**
+     * Makes all writes performed so far durable. Invoked at regular
+     * intervals and before closing, unless the crawler data store
+     * durability is {@link DataStoreDurability#STRICT}.
+     * Default implementation does nothing.
+     * @since 3.2.0
+     */
+    default void checkpoint() {
+        //NOOP
+    }
+
+    /**
+     * Deletes all objects of a data store, using the fastest way
+     * supported by this engine (e.g., dropping and recreating the
+     * underlying storage instead of deleting objects one by one).
+     * Default implementation invokes {@link IDataStore#clear()}.
+     * @param dataStore the data store to truncate
+     * @since 3.2.0
+     */
+    default void truncateStore(IDataStore<?> dataStore) {
+        dataStore.clear();
+    }
+
+    /**
+     * Swaps the content of two data stores opened from this engine,
+     * by exchanging their names. Each data store instance takes the
+     * name of the other one.
+     * Default implementation renames both data stores through a
+     * temporary name.
+     * @param dataStore1 first data store
+     * @param dataStore2 second data store
+     * @since 3.2.0
+     */
+    default void swapStores(
+            IDataStore<?> dataStore1, IDataStore<?> dataStore2) {
+        String name1 = dataStore1.getName();
+        String name2 = dataStore2.getName();
+        renameStore(dataStore1, name1 + "_swap");
+        renameStore(dataStore2, name1);
+        renameStore(dataStore1, name2);
+    }
+
+    /**
+     * Opens a data store keeping objects of all stages together,
+     * with moves between stages performed in place. Engines not
+     * supporting it return an empty <code>Optional</code>, in which case
+     * callers should fall back to one data store per stage
+     * (see {@link PerStageDataStore}).
+     * Default implementation returns an empty <code>Optional</code>.
+     * @param <T> type of stored objects
+     * @param name data store name
+     * @param type type of stored objects
+     * @return staged data store, if supported
+     * @since 3.2.0
+     */
+    default <T> Optional<IStagedDataStore<T>> openStagedStore(
+            String name, Class<? extends T> type) {
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,26 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store;
+
+/**
+ * Converts objects to and from bytes, for data store engines
+ * not natively supporting objects.
+ * @since 3.2.0
+ */
+public interface IDataStoreSerializer {
+
+    byte[] toBytes(Object object);
+    <T> T fromBytes(byte[] bytes, Class<T> type);
+}
@@ -0,0 +1,63 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+
+// Stores objects going through stages (e.g., queued, active, processed).
+// An id is unique within a stage but can be found in more than one stage.
+// Moving objects between stages updates them in place when supported.
+// @since 3.2.0
+public interface IStagedDataStore<T> extends Closeable {
+
+    String getName();
+
+    void save(String stage, String id, T object);
+    void saveAll(String stage, Map<String, T> objects);
+    Optional<T> find(String stage, String id);
+    boolean exists(String stage, String id);
+    long count(String stage);
+    boolean isEmpty(String stage);
+    boolean delete(String stage, String id);
+    void clear(String stage);
+    @Override
+    void close();
+    // returns true if was all read
+    boolean forEach(String stage, BiPredicate<String, T> predicate);
+    // predicate must be thread-safe
+    default boolean forEachParallel(String stage,
+            int parallelism, BiPredicate<String, T> predicate) {
+        return forEach(stage, predicate);
+    }
+
+    //--- Stage changes ---
+    // Objects with the same id already in the target stage are replaced.
+
+    // Moves an object, replacing it with the one supplied. When not
+    // found in "fromStage", it is saved in "toStage". Returns true if moved.
+    boolean move(String id, T object, String fromStage, String toStage);
+    // Moves unchanged objects, which may not be written again. Those not
+    // found in "fromStage" are saved in "toStage". Returns how many were
+    // moved.
+    long moveAll(Map<String, T> objects, String fromStage, String toStage);
+    // moves all objects of a stage, returning how many were moved
+    long moveAll(String fromStage, String toStage);
+    // moves and returns the oldest objects, up to the given maximum
+    List<T> moveFirst(String fromStage, String toStage, int maxCount);
+}
@@ -0,0 +1,224 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Staged data store keeping each stage in its own {@link IDataStore},
+ * opened from a data store engine. Moving objects between stages
+ * copies them from one data store to the other, then deletes the copied
+ * ones from the source, except when moving all
+ * objects to an empty stage, where both data stores are swapped instead
+ * (see {@link IDataStoreEngine#swapStores(IDataStore, IDataStore)}).
+ * Clearing a stage truncates its data store.
+ * @param <T> type of stored objects
+ * @since 3.2.0
+ */
+public class PerStageDataStore<T> implements IStagedDataStore<T> {
+
+    // Number of objects copied per batch between data stores.
+    private static final int MOVE_BATCH_SIZE = 1000;
+
+    private final IDataStoreEngine engine;
+    private final String name;
+    private final Class<? extends T> type;
+    private final Function<? super T, String> idResolver;
+    private final Map<String, IDataStore<T>> stores =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Creates a staged data store with each stage stored in a data store
+     * named after the stage, prefixed with the given name (unless
+     * <code>null</code>).
+     * @param engine data store engine
+     * @param name data store name, used as a prefix (may be
+     *     <code>null</code>)
+     * @param type type of stored objects
+     * @param idResolver obtains the id of stored objects
+     */
+    public PerStageDataStore(IDataStoreEngine engine, String name,
+            Class<? extends T> type, Function<? super T, String> idResolver) {
+        this.engine = requireNonNull(engine, "'engine' must not be null.");
+        this.name = name;
+        this.type = requireNonNull(type, "'type' must not be null.");
+        this.idResolver = requireNonNull(
+                idResolver, "'idResolver' must not be null.");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the data store holding a stage, opening it if needed.
+     * @param stage the stage
+     * @return data store
+     */
+    public IDataStore<T> getStore(String stage) {
+        return stores.computeIfAbsent(
+                stage, s -> engine.openStore(storeName(s), type));
+    }
+
+    /**
+     * Gets the stages having a data store, whether opened or found in
+     * the engine, without opening any.
+     * @return stages
+     */
+    public Set<String> getStoredStages() {
+        Set<String> stages = new HashSet<>(stores.keySet());
+        String prefix = name == null ? "" : name + "_";
+        for (String storeName : engine.getStoreNames()) {
+            if (storeName.startsWith(prefix)) {
+                stages.add(storeName.substring(prefix.length()));
+            }
+        }
+        return stages;
+    }
+
+    @Override
+    public void save(String stage, String id, T object) {
+        getStore(stage).save(id, object);
+    }
+    @Override
+    public void saveAll(String stage, Map<String, T> objects) {
+        getStore(stage).saveAll(objects);
+    }
+    @Override
+    public Optional<T> find(String stage, String id) {
+        return getStore(stage).find(id);
+    }
+    @Override
+    public boolean exists(String stage, String id) {
+        return getStore(stage).exists(id);
+    }
+    @Override
+    public long count(String stage) {
+        return getStore(stage).count();
+    }
+    @Override
+    public boolean isEmpty(String stage) {
+        return getStore(stage).isEmpty();
+    }
+    @Override
+    public boolean delete(String stage, String id) {
+        return getStore(stage).delete(id);
+    }
+    @Override
+    public void clear(String stage) {
+        engine.truncateStore(getStore(stage));
+    }
+    @Override
+    public void close() {
+        stores.values().forEach(IDataStore::close);
+    }
+    @Override
+    public boolean forEach(String stage, BiPredicate<String, T> predicate) {
+        return getStore(stage).forEach(predicate);
+    }
+    @Override
+    public boolean forEachParallel(String stage,
+            int parallelism, BiPredicate<String, T> predicate) {
+        return getStore(stage).forEachParallel(parallelism, predicate);
+    }
+
+    //--- Stage changes ---
+
+    @Override
+    public boolean move(
+            String id, T object, String fromStage, String toStage) {
+        getStore(toStage).save(id, object);
+        return getStore(fromStage).delete(id);
+    }
+    // saved before deleted so objects are always found in at least
+    // one of the two stages
+    @Override
+    public long moveAll(
+            Map<String, T> objects, String fromStage, String toStage) {
+        getStore(toStage).saveAll(objects);
+        return getStore(fromStage).deleteAll(objects.keySet());
+    }
+    @Override
+    public synchronized long moveAll(String fromStage, String toStage) {
+        IDataStore<T> source = getStore(fromStage);
+        IDataStore<T> target = getStore(toStage);
+        if (target.isEmpty()) {
+            long count = source.count();
+            engine.swapStores(source, target);
+            stores.put(toStage, source);
+            stores.put(fromStage, target);
+            return count;
+        }
+        // Only copied objects are deleted, keeping the ones saved
+        // to the source while copying.
+        Map<String, T> batch = new LinkedHashMap<>();
+        long[] moved = new long[1];
+        source.forEach((k, v) -> {
+            batch.put(k, v);
+            if (batch.size() >= MOVE_BATCH_SIZE) {
+                moved[0] += moveBatch(batch, source, target);
+            }
+            return true;
+        });
+        moved[0] += moveBatch(batch, source, target);
+        return moved[0];
+    }
+    private long moveBatch(Map<String, T> batch,
+            IDataStore<T> source, IDataStore<T> target) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        target.saveAll(batch);
+        long count = source.deleteAll(batch.keySet());
+        batch.clear();
+        return count;
+    }
+    // Objects are removed from "fromStage" first so concurrent calls do
+    // not get the same ones, and put back if they could not be saved in
+    // "toStage".
+    @Override
+    public List<T> moveFirst(String fromStage, String toStage, int maxCount) {
+        IDataStore<T> source = getStore(fromStage);
+        List<T> objects = source.deleteFirst(maxCount);
+        if (!objects.isEmpty()) {
+            Map<String, T> batch = new LinkedHashMap<>();
+            for (T object : objects) {
+                batch.put(idResolver.apply(object), object);
+            }
+            try {
+                getStore(toStage).saveAll(batch);
+            } catch (RuntimeException e) {
+                source.saveAll(batch);
+                throw e;
+            }
+        }
+        return objects;
+    }
+
+    private String storeName(String stage) {
+        return name == null ? stage : name + "_" + stage;
+    }
+}
@@ -0,0 +1,175 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.fingerprint;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+
+import com.norconex.collector.core.doc.CrawlDocInfo;
+import com.norconex.collector.core.store.DataStoreException;
+import com.norconex.collector.core.store.IDataStore;
+
+/**
+ * Data store keying records with the 128-bit fingerprint of their id
+ * in a wrapped data store.
+ * @param <T> type of stored objects
+ * @since 3.2.0
+ */
+public class FingerprintDataStore<T> implements IDataStore<T> {
+
+    private static final Base64.Encoder ENCODER =
+            Base64.getUrlEncoder().withoutPadding();
+
+    private final IDataStore<T> store;
+
+    FingerprintDataStore(IDataStore<T> store) {
+        this.store = requireNonNull(store, "'store' must not be null.");
+    }
+
+    IDataStore<T> getWrappedStore() {
+        return store;
+    }
+
+    @Override
+    public String getName() {
+        return store.getName();
+    }
+
+    @Override
+    public void save(String id, T object) {
+        store.save(fingerprint(id), object);
+    }
+
+    @Override
+    public Optional<T> find(String id) {
+        return store.find(fingerprint(id));
+    }
+
+    @Override
+    public Optional<T> findFirst() {
+        return store.findFirst();
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return store.exists(fingerprint(id));
+    }
+
+    @Override
+    public long count() {
+        return store.count();
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return store.delete(fingerprint(id));
+    }
+
+    @Override
+    public Optional<T> deleteFirst() {
+        return store.deleteFirst();
+    }
+
+    @Override
+    public void clear() {
+        store.clear();
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    // Original ids are obtained from stored objects when possible,
+    // else the fingerprint is returned.
+    @Override
+    public boolean forEach(BiPredicate<String, T> predicate) {
+        return store.forEach((k, v) -> predicate.test(originalId(k, v), v));
+    }
+
+    @Override
+    public boolean forEachParallel(
+            int parallelism, BiPredicate<String, T> predicate) {
+        return store.forEachParallel(parallelism,
+                (k, v) -> predicate.test(originalId(k, v), v));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+
+    @Override
+    public void saveAll(Map<String, T> objects) {
+        Map<String, T> fpObjects = new LinkedHashMap<>();
+        objects.forEach((id, obj) -> fpObjects.put(fingerprint(id), obj));
+        store.saveAll(fpObjects);
+    }
+
+    @Override
+    public Map<String, T> findAll(Collection<String> ids) {
+        Map<String, String> fpToId = new HashMap<>();
+        for (String id : ids) {
+            fpToId.put(fingerprint(id), id);
+        }
+        Map<String, T> found = new LinkedHashMap<>();
+        store.findAll(fpToId.keySet()).forEach(
+                (fp, obj) -> found.put(fpToId.get(fp), obj));
+        return found;
+    }
+
+    @Override
+    public long deleteAll(Collection<String> ids) {
+        List<String> fps = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            fps.add(fingerprint(id));
+        }
+        return store.deleteAll(fps);
+    }
+
+    @Override
+    public List<T> deleteFirst(int maxCount) {
+        return store.deleteFirst(maxCount);
+    }
+
+    // URL-safe Base64 of the MD5 digest (22 characters)
+    static String fingerprint(String id) {
+        try {
+            return ENCODER.encodeToString(MessageDigest.getInstance("MD5")
+                    .digest(id.getBytes(UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new DataStoreException("MD5 digest not supported.", e);
+        }
+    }
+
+    static String originalId(String fingerprint, Object obj) {
+        if (obj instanceof CrawlDocInfo) {
+            return ((CrawlDocInfo) obj).getReference();
+        }
+        return fingerprint;
+    }
+}
@@ -0,0 +1,200 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.fingerprint;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.doc.CrawlDocInfo;
+import com.norconex.collector.core.store.IDataStore;
+import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.IStagedDataStore;
+import com.norconex.collector.core.store.impl.mvstore.MVStoreDataStoreEngine;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Data store engine wrapping another engine, storing records under a
+ * fixed-length 128-bit fingerprint of their id (an MD5 digest)
+ * instead of the id itself.
+ * Document references can be very long, so this reduces
+ * the key size of each data store considerably on large crawls,
+ * for both memory and disk.
+ * </p>
+ * <p>
+ * With {@link MVStoreDataStoreEngine}, fingerprints are stored as
+ * 16 bytes, preceded by an 8-byte insertion sequence so records are still
+ * read in the order they were first saved. Finding a record by id needs
+ * a second map from each fingerprint to its sequence, for about 48 bytes
+ * of keys per record in total. This only saves space when references
+ * are longer than that on average (most URLs are).
+ * Other engines have string keys, so fingerprints are stored encoded as
+ * 22 characters, with records read in the same order as without
+ * fingerprints.
+ * Staged data stores are used when supported by the wrapped engine.
+ * </p>
+ * <p>
+ * Only data stores of crawl data records ({@link CrawlDocInfo}) are keyed
+ * by fingerprints. Those records still hold their reference, which is
+ * returned when iterating over a data store. Data stores of other types
+ * of records are opened from the wrapped engine as is.
+ * </p>
+ *
+ * {@nx.xml.usage
+ * <dataStoreEngine class="FingerprintDataStoreEngine">
+ *   <dataStoreEngine class="(IDataStoreEngine implementation to wrap)"/>
+ * </dataStoreEngine>
+ * }
+ * <p>
+ * The wrapped engine defaults to {@link MVStoreDataStoreEngine}.
+ * </p>
+ *
+ * @since 3.2.0
+ */
+public class FingerprintDataStoreEngine
+        implements IDataStoreEngine, IXMLConfigurable {
+
+    private IDataStoreEngine dataStoreEngine = new MVStoreDataStoreEngine();
+
+    public FingerprintDataStoreEngine() {
+        super();
+    }
+    public FingerprintDataStoreEngine(IDataStoreEngine dataStoreEngine) {
+        super();
+        setDataStoreEngine(dataStoreEngine);
+    }
+
+    /**
+     * Gets the wrapped data store engine.
+     * @return data store engine
+     */
+    public IDataStoreEngine getDataStoreEngine() {
+        return dataStoreEngine;
+    }
+    /**
+     * Sets the wrapped data store engine.
+     * @param dataStoreEngine data store engine
+     */
+    public void setDataStoreEngine(IDataStoreEngine dataStoreEngine) {
+        this.dataStoreEngine = requireNonNull(
+                dataStoreEngine, "'dataStoreEngine' must not be null.");
+    }
+
+    @Override
+    public void init(Crawler crawler) {
+        dataStoreEngine.init(crawler);
+    }
+    @Override
+    public boolean clean() {
+        return dataStoreEngine.clean();
+    }
+    @Override
+    public void close() {
+        dataStoreEngine.close();
+    }
+    @Override
+    public void checkpoint() {
+        dataStoreEngine.checkpoint();
+    }
+
+    @Override
+    public <T> IDataStore<T> openStore(String name, Class<? extends T> type) {
+        if (!CrawlDocInfo.class.isAssignableFrom(type)) {
+            return dataStoreEngine.openStore(name, type);
+        }
+        if (dataStoreEngine instanceof MVStoreDataStoreEngine) {
+            return ((MVStoreDataStoreEngine) dataStoreEngine)
+                    .openFingerprintStore(name, type);
+        }
+        return new FingerprintDataStore<>(
+                dataStoreEngine.openStore(name, type));
+    }
+    @Override
+    public <T> Optional<IStagedDataStore<T>> openStagedStore(
+            String name, Class<? extends T> type) {
+        Optional<IStagedDataStore<T>> staged =
+                dataStoreEngine.openStagedStore(name, type);
+        if (!CrawlDocInfo.class.isAssignableFrom(type)) {
+            return staged;
+        }
+        return staged.map(FingerprintStagedDataStore::new);
+    }
+    @Override
+    public boolean dropStore(String name) {
+        return dataStoreEngine.dropStore(name);
+    }
+    @Override
+    public boolean renameStore(IDataStore<?> dataStore, String newName) {
+        return dataStoreEngine.renameStore(unwrap(dataStore), newName);
+    }
+    @Override
+    public void truncateStore(IDataStore<?> dataStore) {
+        dataStoreEngine.truncateStore(unwrap(dataStore));
+    }
+    @Override
+    public void swapStores(
+            IDataStore<?> dataStore1, IDataStore<?> dataStore2) {
+        dataStoreEngine.swapStores(unwrap(dataStore1), unwrap(dataStore2));
+    }
+    // Data stores opened from the wrapped engine directly are not wrapped.
+    private static IDataStore<?> unwrap(IDataStore<?> dataStore) {
+        if (dataStore instanceof FingerprintDataStore) {
+            return ((FingerprintDataStore<?>) dataStore).getWrappedStore();
+        }
+        return dataStore;
+    }
+
+    @Override
+    public Set<String> getStoreNames() {
+        return dataStoreEngine.getStoreNames();
+    }
+    @Override
+    public Optional<Class<?>> getStoreType(String name) {
+        return dataStoreEngine.getStoreType(name);
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setDataStoreEngine(xml.getObjectImpl(IDataStoreEngine.class,
+                "dataStoreEngine", dataStoreEngine));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.addElement("dataStoreEngine", dataStoreEngine);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
@@ -0,0 +1,137 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.fingerprint;
+
+import static com.norconex.collector.core.store.impl.fingerprint.FingerprintDataStore.fingerprint;
+import static com.norconex.collector.core.store.impl.fingerprint.FingerprintDataStore.originalId;
+import static java.util.Objects.requireNonNull;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+
+import com.norconex.collector.core.store.IStagedDataStore;
+
+/**
+ * Staged data store keying records with the 128-bit fingerprint of
+ * their id in a wrapped staged data store.
+ * @param <T> type of stored objects
+ * @since 3.2.0
+ */
+public class FingerprintStagedDataStore<T> implements IStagedDataStore<T> {
+
+    private final IStagedDataStore<T> store;
+
+    FingerprintStagedDataStore(IStagedDataStore<T> store) {
+        this.store = requireNonNull(store, "'store' must not be null.");
+    }
+
+    @Override
+    public String getName() {
+        return store.getName();
+    }
+
+    @Override
+    public void save(String stage, String id, T object) {
+        store.save(stage, fingerprint(id), object);
+    }
+
+    @Override
+    public void saveAll(String stage, Map<String, T> objects) {
+        store.saveAll(stage, fingerprints(objects));
+    }
+
+    @Override
+    public Optional<T> find(String stage, String id) {
+        return store.find(stage, fingerprint(id));
+    }
+
+    @Override
+    public boolean exists(String stage, String id) {
+        return store.exists(stage, fingerprint(id));
+    }
+
+    @Override
+    public long count(String stage) {
+        return store.count(stage);
+    }
+
+    @Override
+    public boolean isEmpty(String stage) {
+        return store.isEmpty(stage);
+    }
+
+    @Override
+    public boolean delete(String stage, String id) {
+        return store.delete(stage, fingerprint(id));
+    }
+
+    @Override
+    public void clear(String stage) {
+        store.clear(stage);
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    // Original ids are obtained from stored objects when possible,
+    // else the fingerprint is returned.
+    @Override
+    public boolean forEach(String stage, BiPredicate<String, T> predicate) {
+        return store.forEach(stage,
+                (k, v) -> predicate.test(originalId(k, v), v));
+    }
+
+    @Override
+    public boolean forEachParallel(String stage,
+            int parallelism, BiPredicate<String, T> predicate) {
+        return store.forEachParallel(stage, parallelism,
+                (k, v) -> predicate.test(originalId(k, v), v));
+    }
+
+    //--- Stage changes ---
+
+    @Override
+    public boolean move(
+            String id, T object, String fromStage, String toStage) {
+        return store.move(fingerprint(id), object, fromStage, toStage);
+    }
+
+    @Override
+    public long moveAll(
+            Map<String, T> objects, String fromStage, String toStage) {
+        return store.moveAll(fingerprints(objects), fromStage, toStage);
+    }
+
+    @Override
+    public long moveAll(String fromStage, String toStage) {
+        return store.moveAll(fromStage, toStage);
+    }
+
+    @Override
+    public List<T> moveFirst(String fromStage, String toStage, int maxCount) {
+        return store.moveFirst(fromStage, toStage, maxCount);
+    }
+
+    private static <T> Map<String, T> fingerprints(Map<String, T> objects) {
+        Map<String, T> fpObjects = new LinkedHashMap<>();
+        objects.forEach((id, obj) -> fpObjects.put(fingerprint(id), obj));
+        return fpObjects;
+    }
+}
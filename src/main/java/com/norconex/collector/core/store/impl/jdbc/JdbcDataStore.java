@@ -15,45 +15,64 @@
 package com.norconex.collector.core.store.impl.jdbc;
 
 import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
+import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiPredicate;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.TypeAdapter;
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
-import com.google.gson.stream.JsonWriter;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
 import com.norconex.collector.core.store.DataStoreException;
+import com.norconex.collector.core.store.DataStorePartitions;
 import com.norconex.collector.core.store.IDataStore;
-
-import java.time.ZonedDateTime;
+import com.norconex.collector.core.store.IDataStoreSerializer;
 
 public class JdbcDataStore<T> implements IDataStore<T> {
 
-    // Use a GsonBuilder and register a TypeAdapter for java.time.ZonedDateTime
-    // to avoid illegal reflective access errors under the Java module system.
-    private static final Gson GSON = new GsonBuilder()
-            .registerTypeAdapter(ZonedDateTime.class, new ZonedDateTimeTypeAdapter())
-            .create();
     private static final PreparedStatementConsumer NO_ARGS = stmt -> {};
+    // Maximum number of rows sent per JDBC batch or "IN" clause.
+    private static final int BATCH_CHUNK_SIZE = 500;
+    // Order in which records were saved (sequence values are unique).
+    static final String FIFO_ORDER = "seq";
 
     private final JdbcDataStoreEngine engine;
     private String tableName;
     private String storeName;
     private final Class<? extends T> type;
     private final TableAdapter adapter;
+    private final IDataStoreSerializer serializer;
+    // Tables created before binary serialization have a "json" column,
+    // still read from when "data" is null for a record.
+    private boolean legacyJson;
+    private RenderedSql sql;
+    // Insertion order of records (FIFO reads), seeded from the highest
+    // stored value when opened.
+    private final AtomicLong sequence = new AtomicLong();
+    // Whether batched deletes report how many rows each deleted, which
+    // tells which rows were claimed when dequeuing.
+    private volatile boolean batchCountsReported = true;
 
     JdbcDataStore(
             JdbcDataStoreEngine engine,
@@ -63,12 +82,17 @@ public class JdbcDataStore<T> implements IDataStore<T> {
         this.engine = requireNonNull(engine, "'engine' must not be null.");
         this.type = requireNonNull(type, "'type' must not be null.");
         this.adapter = engine.getTableAdapter();
+        this.serializer = engine.getSerializer();
         this.storeName = requireNonNull(
                 storeName, "'storeName' must not be null.");
         this.tableName = engine.tableName(storeName);
         if (!engine.tableExist(tableName)) {
             createTable();
+        } else {
+            upgradeTable();
         }
+        this.sql = new RenderedSql(tableName, adapter, legacyJson);
+        sequence.set(maxSequence());
     }
 
     @Override
@@ -81,51 +105,90 @@ public class JdbcDataStore<T> implements IDataStore<T> {
 
     @Override
     public void save(String id, T object) {
-        executeWrite(
-                "MERGE INTO <table> AS t "
-              + "USING ("
-              + "  SELECT "
-              + "    CAST(? AS " + adapter.idType() + ") AS id,"
-              + "    CAST(? AS " + adapter.modifiedType() + ") AS modified,"
-              + "    CAST(? AS " + adapter.jsonType() + ") AS json "
-              + "  FROM DUAL"
-              + ") AS s "
-              + "  ON t.id = s.id "
-              + "WHEN NOT MATCHED THEN "
-              + "  INSERT (id, modified, json) "
-              + "  VALUES (s.id, s.modified, s.json) "
-              + "WHEN MATCHED THEN "
-              + "  UPDATE SET "
-              + "    t.modified = s.modified, "
-              + "    t.json = s.json ",
-                stmt -> {
-                    stmt.setString(1, adapter.serializableId(id));
-                    stmt.setTimestamp(2, new Timestamp(currentTimeMillis()));
-                    stmt.setClob(3, new StringReader(GSON.toJson(object)));
+        executeWrite(sql.merge, stmt -> {
+            stmt.setString(1, adapter.serializableId(id));
+            stmt.setTimestamp(2, new Timestamp(currentTimeMillis()));
+            stmt.setLong(3, sequence.incrementAndGet());
+            stmt.setBytes(4, serializer.toBytes(object));
+        });
+    }
+
+    @Override
+    public void saveAll(Map<String, T> objects) {
+        if (objects.isEmpty()) {
+            return;
+        }
+        // Each record gets the next sequence value so the batch insertion
+        // order is preserved for FIFO reads.
+        Timestamp now = new Timestamp(currentTimeMillis());
+        executeTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql.merge)) {
+                int i = 0;
+                for (Entry<String, T> en : objects.entrySet()) {
+                    stmt.setString(1, adapter.serializableId(en.getKey()));
+                    stmt.setTimestamp(2, now);
+                    stmt.setLong(3, sequence.incrementAndGet());
+                    stmt.setBytes(4, serializer.toBytes(en.getValue()));
+                    stmt.addBatch();
+                    if (++i % BATCH_CHUNK_SIZE == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                if (i % BATCH_CHUNK_SIZE != 0) {
+                    stmt.executeBatch();
+                }
+            }
+            return null;
         });
     }
 
     @Override
     public Optional<T> find(String id) {
         return executeRead(
-                "SELECT id, json FROM <table> WHERE id = ?",
+                sql.find,
                 stmt -> stmt.setString(1, adapter.serializableId(id)),
                 this::firstObject);
     }
 
 
+    @Override
+    public Map<String, T> findAll(Collection<String> ids) {
+        // stored ids may differ from original ones when too long
+        Map<String, String> storedToOriginal = new HashMap<>();
+        for (String id : ids) {
+            storedToOriginal.put(adapter.serializableId(id), id);
+        }
+        Map<String, T> found = new LinkedHashMap<>();
+        for (List<String> chunk : ListUtils.partition(
+                new ArrayList<>(storedToOriginal.keySet()),
+                BATCH_CHUNK_SIZE)) {
+            executeRead(
+                    sql.findIn + inParams(chunk.size()) + ")",
+                    stmt -> setStrings(stmt, chunk),
+                    rs -> {
+                        while (rs.next()) {
+                            Record<T> rec = toRecord(rs);
+                            rec.object.ifPresent(obj -> found.put(
+                                    storedToOriginal.get(rec.id), obj));
+                        }
+                        return null;
+                    });
+        }
+        return found;
+    }
+
     @Override
     public Optional<T> findFirst() {
         return executeRead(
-                "SELECT id, json FROM <table> ORDER BY modified",
-                NO_ARGS,
+                sql.findFirst,
+                stmt -> stmt.setMaxRows(1),
                 this::firstObject);
     }
 
     @Override
     public boolean exists(String id) {
         return executeRead(
-                "SELECT 1 FROM <table> WHERE id = ?",
+                sql.exists,
                 stmt -> stmt.setString(1, adapter.serializableId(id)),
                 ResultSet::next);
     }
@@ -133,7 +196,7 @@ public class JdbcDataStore<T> implements IDataStore<T> {
     @Override
     public long count() {
         return executeRead(
-                "SELECT count(*) FROM <table>",
+                sql.count,
                 NO_ARGS,
                 rs -> {
                     if (rs.next()) {
@@ -146,25 +209,157 @@ public class JdbcDataStore<T> implements IDataStore<T> {
     @Override
     public boolean delete(String id) {
         return executeWrite(
-                "DELETE FROM <table> WHERE id = ?",
+                sql.delete,
                 stmt -> stmt.setString(1, adapter.serializableId(id))) > 0;
     }
 
+    @Override
+    public long deleteAll(Collection<String> ids) {
+        List<String> storedIds = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            storedIds.add(adapter.serializableId(id));
+        }
+        long count = 0;
+        for (List<String> chunk :
+                ListUtils.partition(storedIds, BATCH_CHUNK_SIZE)) {
+            count += executeWrite(
+                    sql.deleteIn + inParams(chunk.size()) + ")",
+                    stmt -> setStrings(stmt, chunk));
+        }
+        return count;
+    }
+
     @Override
     public Optional<T> deleteFirst() {
-        Record<T> rec = executeRead(
-                "SELECT id, json FROM <table> ORDER BY modified",
-                NO_ARGS,
-                this::firstRecord);
-        if (!rec.isEmpty()) {
-            delete(rec.id);
+        List<T> deleted = deleteFirst(1);
+        if (deleted.isEmpty()) {
+            return Optional.empty();
         }
-        return rec.object;
+        return Optional.ofNullable(deleted.get(0));
+    }
+
+    // Records are claimed atomically, so concurrent pollers (from this
+    // or other processes) never get the same records.
+    @Override
+    public List<T> deleteFirst(int maxCount) {
+        if (maxCount <= 0) {
+            return new ArrayList<>();
+        }
+        List<Record<T>> records = executeTransaction(conn -> {
+            switch (adapter.dequeue()) {
+            case DELETE_RETURNING:
+                return dequeueDeleteReturning(conn, maxCount);
+            case SELECT_SKIP_LOCKED:
+                return dequeueSelectSkipLocked(conn, maxCount);
+            case DELETE_DELTA_TABLE:
+                return dequeueDeleteDeltaTable(conn, maxCount);
+            default:
+                return dequeueSelectThenDelete(conn, maxCount);
+            }
+        });
+        // not all dialects return deleted rows in order
+        records.sort(Comparator.comparingLong(rec -> rec.seq));
+        List<T> deleted = new ArrayList<>(records.size());
+        for (Record<T> rec : records) {
+            deleted.add(rec.object.orElse(null));
+        }
+        return deleted;
+    }
+    private List<Record<T>> dequeueDeleteReturning(
+            Connection conn, int maxCount) throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql.dequeue)) {
+            stmt.setInt(1, maxCount);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return toRecords(rs);
+            }
+        }
+    }
+    private List<Record<T>> dequeueSelectSkipLocked(
+            Connection conn, int maxCount) throws SQLException, IOException {
+        List<Record<T>> records;
+        try (PreparedStatement stmt = conn.prepareStatement(sql.dequeue)) {
+            stmt.setInt(1, maxCount);
+            try (ResultSet rs = stmt.executeQuery()) {
+                records = toRecords(rs);
+            }
+        }
+        if (!records.isEmpty()) {
+            List<String> storedIds = new ArrayList<>(records.size());
+            records.forEach(rec -> storedIds.add(rec.id));
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    sql.deleteIn + inParams(storedIds.size()) + ")")) {
+                setStrings(stmt, storedIds);
+                stmt.executeUpdate();
+            }
+        }
+        return records;
+    }
+    private List<Record<T>> dequeueDeleteDeltaTable(
+            Connection conn, int maxCount) throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql.dequeue)) {
+            stmt.setInt(1, maxCount);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return toRecords(rs);
+            }
+        }
+    }
+    private List<Record<T>> dequeueSelectThenDelete(
+            Connection conn, int maxCount) throws SQLException, IOException {
+        List<Record<T>> records;
+        try (PreparedStatement stmt = conn.prepareStatement(sql.dequeue)) {
+            stmt.setMaxRows(maxCount);
+            try (ResultSet rs = stmt.executeQuery()) {
+                records = toRecords(rs);
+            }
+        }
+        if (records.isEmpty()) {
+            return records;
+        }
+        // Rows deleted by a concurrent poller in the meantime are skipped.
+        // When the driver does not report batch update counts, deletes
+        // are rolled back and made again one row at a time from then on.
+        List<Record<T>> deleted = new ArrayList<>(records.size());
+        try (PreparedStatement stmt = conn.prepareStatement(sql.delete)) {
+            if (batchCountsReported) {
+                for (Record<T> rec : records) {
+                    stmt.setString(1, rec.id);
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                if (hasUpdateCounts(counts)) {
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 1) {
+                            deleted.add(records.get(i));
+                        }
+                    }
+                    return deleted;
+                }
+                conn.rollback();
+                batchCountsReported = false;
+            }
+            for (Record<T> rec : records) {
+                stmt.setString(1, rec.id);
+                if (stmt.executeUpdate() == 1) {
+                    deleted.add(rec);
+                }
+            }
+        }
+        return deleted;
+    }
+    // Whether all statements of a batch reported how many rows they
+    // updated, instead of SUCCESS_NO_INFO (or EXECUTE_FAILED).
+    static boolean hasUpdateCounts(int[] counts) {
+        for (int count : counts) {
+            if (count < 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public void clear() {
-        executeWrite("DELETE FROM <table>", NO_ARGS);
+        executeWrite(sql.clear, NO_ARGS);
     }
 
     @Override
@@ -172,27 +367,116 @@ public class JdbcDataStore<T> implements IDataStore<T> {
         //NOOP: Closed implicitly when datasource is closed.
     }
 
-    // returns true if was all read
+    // Records are read in FIFO order (the order they are dequeued), in
+    // batches resuming after the last sequence read, each on its own
+    // connection (see forEachInRange). Returns true if was all read.
     @Override
     public boolean forEach(BiPredicate<String, T> predicate) {
-        return executeRead(
-                "SELECT id, json FROM <table>",
-                NO_ARGS,
-                rs -> {
-                    while (rs.next()) {
-                        Record<T> rec = toRecord(rs);
-                        if (!predicate.test(rec.id, rec.object.get())) {
-                            return false;
+        int batchSize = engine.getBatchReadSize();
+        Long afterSeq = null;
+        List<Record<T>> batch;
+        do {
+            Long lowerSeq = afterSeq;
+            batch = executeRead(lowerSeq != null
+                    ? sql.forEachFifoAfter : sql.forEachFifo, stmt -> {
+                stmt.setMaxRows(batchSize);
+                if (lowerSeq != null) {
+                    stmt.setLong(1, lowerSeq);
+                }
+            }, this::toRecords);
+            for (Record<T> rec : batch) {
+                if (!predicate.test(rec.id, rec.object.get())) {
+                    return false;
+                }
+                afterSeq = rec.seq;
+            }
+        } while (batch.size() == batchSize);
+        return true;
+    }
+
+    @Override
+    public boolean forEachParallel(
+            int parallelism, BiPredicate<String, T> predicate) {
+        return DataStorePartitions.forEach(splitIds(parallelism),
+                parallelism, this::forEachInRange, predicate);
+    }
+    // Ids dividing the table in ranges of about the same size, obtained
+    // by streaming the primary key index only.
+    private List<String> splitIds(int parallelism) {
+        List<String> splitIds = new ArrayList<>();
+        long count = count();
+        if (parallelism <= 1 || count <= parallelism) {
+            return splitIds;
+        }
+        return executeTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql.orderedIds,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(engine.getFetchSize());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    long row = 0;
+                    long nextSplit = count / parallelism;
+                    while (splitIds.size() < parallelism - 1 && rs.next()) {
+                        if (row == nextSplit) {
+                            splitIds.add(rs.getString(1));
+                            nextSplit = count * (splitIds.size() + 1)
+                                    / parallelism;
                         }
+                        row++;
                     }
-                    return true;
-                });
+                }
+            }
+            return splitIds;
+        });
+    }
+    // Records are read in batches of "fetch size" ordered by id, each
+    // batch on a connection released before invoking the predicate.
+    // Predicates can then use the store from many threads without running
+    // out of pooled connections, and records removed by them do not
+    // affect the iteration.
+    private boolean forEachInRange(
+            String fromId, String toId, BiPredicate<String, T> predicate) {
+        int batchSize = engine.getBatchReadSize();
+        String afterId = null;
+        List<Record<T>> batch;
+        do {
+            batch = readRange(fromId, afterId, toId, batchSize);
+            for (Record<T> rec : batch) {
+                if (!predicate.test(rec.id, rec.object.get())) {
+                    return false;
+                }
+                afterId = rec.id;
+            }
+        } while (batch.size() == batchSize);
+        return true;
+    }
+    // afterId, when not null, replaces fromId as an exclusive lower bound
+    private List<Record<T>> readRange(String fromId, String afterId,
+            String toId, int maxCount) {
+        String lowerId = afterId != null ? afterId : fromId;
+        String query = sql.forEachIn(
+                fromId != null, afterId != null, toId != null);
+        return executeRead(query, stmt -> {
+            stmt.setMaxRows(maxCount);
+            int idx = 1;
+            if (lowerId != null) {
+                stmt.setString(idx++, lowerId);
+            }
+            if (toId != null) {
+                stmt.setString(idx, toId);
+            }
+        }, rs -> {
+            List<Record<T>> records = new ArrayList<>();
+            while (rs.next()) {
+                records.add(toRecord(rs));
+            }
+            return records;
+        });
     }
 
     @Override
     public boolean isEmpty() {
         return executeRead(
-                "SELECT * FROM <table>", NO_ARGS, (rs) -> !rs.next());
+                sql.isEmpty, stmt -> stmt.setMaxRows(1), rs -> !rs.next());
     }
 
     private void createTable() {
@@ -202,12 +486,13 @@ public class JdbcDataStore<T> implements IDataStore<T> {
                         "CREATE TABLE " + tableName + " ("
                         + "id " + adapter.idType() + " NOT NULL, "
                         + "modified " + adapter.modifiedType() + ", "
-                        + "json " + adapter.jsonType() + ", "
+                        + "seq BIGINT, "
+                        + "data " + adapter.binaryType() + ", "
                         + "PRIMARY KEY (id) "
                         + ")");
                 stmt.executeUpdate(
-                        "CREATE INDEX " + tableName + "_modified_index "
-                        + "ON " + tableName + "(modified)");
+                        "CREATE INDEX " + tableName + "_seq_index "
+                        + "ON " + tableName + "(seq)");
                 if (!conn.getAutoCommit()) {
                     conn.commit();
                 }
@@ -218,50 +503,158 @@ public class JdbcDataStore<T> implements IDataStore<T> {
         }
     }
 
+    // Adds the binary "data" column to tables created with a prior
+    // version, keeping existing JSON records readable. Also adds the
+    // "seq" column, backfilled in "modified" order.
+    private void upgradeTable() {
+        boolean hasData = false;
+        boolean hasSeq = false;
+        try (Connection conn = engine.getConnection()) {
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery(
+                            "SELECT * FROM " + tableName + " WHERE 1 = 0")) {
+                ResultSetMetaData meta = rs.getMetaData();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    String col = meta.getColumnName(i);
+                    hasData |= "data".equalsIgnoreCase(col);
+                    hasSeq |= "seq".equalsIgnoreCase(col);
+                    legacyJson |= "json".equalsIgnoreCase(col);
+                }
+            }
+            if (!hasData) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("ALTER TABLE " + tableName
+                            + " ADD data " + adapter.binaryType());
+                    if (!conn.getAutoCommit()) {
+                        conn.commit();
+                    }
+                }
+            }
+            if (!hasSeq) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("ALTER TABLE " + tableName
+                            + " ADD seq BIGINT");
+                    backfillSequence(conn);
+                    stmt.executeUpdate(
+                            "CREATE INDEX " + tableName + "_seq_index "
+                            + "ON " + tableName + "(seq)");
+                    if (!conn.getAutoCommit()) {
+                        conn.commit();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataStoreException(
+                    "Could not upgrade table '" + tableName + "'.", e);
+        }
+    }
+
+    // Numbers existing records in the order they were last modified so
+    // they keep their FIFO order. Ids are read first since not all drivers
+    // support updating a table while reading it on the same connection.
+    private void backfillSequence(Connection conn) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT id FROM "
+                        + tableName + " ORDER BY modified, id")) {
+            while (rs.next()) {
+                ids.add(rs.getString(1));
+            }
+        }
+        long seq = 0;
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE "
+                + tableName + " SET seq = ? WHERE id = ?")) {
+            for (List<String> chunk :
+                    ListUtils.partition(ids, BATCH_CHUNK_SIZE)) {
+                for (String id : chunk) {
+                    stmt.setLong(1, ++seq);
+                    stmt.setString(2, id);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    private long maxSequence() {
+        return executeRead(sql.maxSeq, NO_ARGS,
+                rs -> rs.next() ? rs.getLong(1) : 0L);
+    }
+
     boolean rename(String newStoreName) {
         String newTableName = engine.tableName(newStoreName);
         boolean targetExists = engine.tableExist(newTableName);
         if (targetExists) {
             executeWrite("DROP TABLE " + newTableName, NO_ARGS);
         }
-        executeWrite("ALTER TABLE <table> RENAME TO " + newTableName, NO_ARGS);
-        this.storeName = newStoreName;
-        this.tableName = newTableName;
+        executeWrite("ALTER TABLE " + tableName
+                + " RENAME TO " + newTableName, NO_ARGS);
+        renamed(newStoreName);
         return targetExists;
     }
+    // Points this store to its table after it was renamed.
+    void renamed(String newStoreName) {
+        this.storeName = newStoreName;
+        this.tableName = engine.tableName(newStoreName);
+        this.sql = new RenderedSql(tableName, adapter, legacyJson);
+        // the table may hold another store records (swapped)
+        sequence.set(maxSequence());
+    }
 
-    private Optional<T> firstObject(ResultSet rs) {
+    // Much faster than deleting all rows, without logging each of them.
+    void truncate() {
         try {
-            if (rs.first()) {
-                return toObject(rs.getClob(2).getCharacterStream());
-            }
-            return Optional.empty();
-        } catch (IOException | SQLException e) {
-            throw new DataStoreException(
-                    "Could not get object from table '" + tableName + "'.", e);
+            executeWrite("TRUNCATE TABLE " + tableName, NO_ARGS);
+        } catch (DataStoreException e) {
+            // not supported by all databases
+            clear();
         }
     }
-    private Record<T> firstRecord(ResultSet rs) {
+
+    private Optional<T> firstObject(ResultSet rs) {
         try {
-            if (rs.first()) {
-                return toRecord(rs);
+            if (rs.next()) {
+                return toObject(rs);
             }
-            return new Record<>();
+            return Optional.empty();
         } catch (IOException | SQLException e) {
             throw new DataStoreException(
-                    "Could not get record from table '" + tableName + "'.", e);
+                    "Could not get object from table '" + tableName + "'.", e);
         }
     }
     private Record<T> toRecord(ResultSet rs) throws IOException, SQLException {
         Record<T> rec = new Record<>();
         rec.id = rs.getString(1);
-        rec.object = toObject(rs.getClob(2).getCharacterStream());
+        rec.object = toObject(rs);
         return rec;
     }
-    private Optional<T> toObject(Reader reader) throws IOException {
-        try (Reader r = reader) {
-            return Optional.ofNullable(GSON.fromJson(r, type));
+    // Reads records selected with their id, data and seq columns.
+    private List<Record<T>> toRecords(ResultSet rs)
+            throws IOException, SQLException {
+        int seqIndex = legacyJson ? 4 : 3;
+        List<Record<T>> records = new ArrayList<>();
+        while (rs.next()) {
+            Record<T> rec = toRecord(rs);
+            rec.seq = rs.getLong(seqIndex);
+            records.add(rec);
         }
+        return records;
+    }
+    private Optional<T> toObject(ResultSet rs)
+            throws IOException, SQLException {
+        byte[] bytes = rs.getBytes(2);
+        if (bytes == null && legacyJson) {
+            Clob clob = rs.getClob(3);
+            if (clob != null) {
+                try (Reader r = clob.getCharacterStream()) {
+                    bytes = IOUtils.toString(r).getBytes(UTF_8);
+                }
+            }
+        }
+        if (bytes == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(serializer.fromBytes(bytes, type));
     }
 
     Class<?> getType() {
@@ -269,12 +662,11 @@ public class JdbcDataStore<T> implements IDataStore<T> {
     }
 
     private <R> R executeRead(
-            String sql,
+            String query,
             PreparedStatementConsumer psc,
             ResultSetFunction<R> rsc) {
         try (Connection conn = engine.getConnection()) {
-            try (PreparedStatement stmt = conn.prepareStatement(
-                    sql.replace("<table>", tableName))) {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
                 psc.accept(stmt);
                 try (ResultSet rs = stmt.executeQuery()) {
                     return rsc.accept(rs);
@@ -285,10 +677,41 @@ public class JdbcDataStore<T> implements IDataStore<T> {
                     "Could not read from table '" + tableName + "'.", e);
         }
     }
-    private int executeWrite(String sql, PreparedStatementConsumer c) {
+    // Executes the function in a single transaction, committed on success
+    // and rolled back on failure.
+    private <R> R executeTransaction(ConnectionFunction<R> f) {
         try (Connection conn = engine.getConnection()) {
-            try (PreparedStatement stmt = conn.prepareStatement(
-                    sql.replace("<table>", tableName))) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                R val = f.accept(conn);
+                conn.commit();
+                return val;
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | IOException e) {
+            throw new DataStoreException(
+                    "Could not execute transaction on table '"
+                            + tableName + "'.", e);
+        }
+    }
+    private static String inParams(int count) {
+        return StringUtils.repeat("?", ",", count);
+    }
+    private static void setStrings(
+            PreparedStatement stmt, List<String> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            stmt.setString(i + 1, values.get(i));
+        }
+    }
+
+    private int executeWrite(String query, PreparedStatementConsumer c) {
+        try (Connection conn = engine.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
                 c.accept(stmt);
                 int val = stmt.executeUpdate();
                 if (!conn.getAutoCommit()) {
@@ -310,34 +733,114 @@ public class JdbcDataStore<T> implements IDataStore<T> {
     interface ResultSetFunction<R> {
         R accept(ResultSet rs) throws SQLException, IOException;
     }
+    @FunctionalInterface
+    interface ConnectionFunction<R> {
+        R accept(Connection conn) throws SQLException, IOException;
+    }
 
     private static class Record<T> {
         private String id;
         private Optional<T> object = Optional.empty();
-        private boolean isEmpty() {
-            return id == null;
-        }
+        private long seq;
     }
 
-    // TypeAdapter for ZonedDateTime serializing to/from ISO-8601 string
-    private static class ZonedDateTimeTypeAdapter extends TypeAdapter<ZonedDateTime> {
-        @Override
-        public void write(JsonWriter out, ZonedDateTime value) throws IOException {
-            if (value == null) {
-                out.nullValue();
-            } else {
-                out.value(value.toString());
+    // SQL statements rendered once for the current table name, instead of
+    // on every call. Records read by "dequeue" have their id, data and
+    // seq columns.
+
+    private static final class RenderedSql {
+        private final String merge;
+        private final String find;
+        private final String findIn;
+        private final String findFirst;
+        private final String exists;
+        private final String count;
+        private final String delete;
+        private final String deleteIn;
+        private final String dequeue;
+        private final String clear;
+        private final String forEach;
+        private final String forEachFifo;
+        private final String forEachFifoAfter;
+        private final String forEachFrom;
+        private final String forEachAfter;
+        private final String forEachTo;
+        private final String forEachFromTo;
+        private final String forEachAfterTo;
+        private final String orderedIds;
+        private final String isEmpty;
+        private final String maxSeq;
+        private RenderedSql(
+                String table, TableAdapter adapter, boolean legacyJson) {
+            String dataColumns = legacyJson ? "data, json" : "data";
+            String select = "SELECT id, " + dataColumns + " FROM " + table;
+            Map<String, String> columns = new LinkedHashMap<>();
+            columns.put("id", adapter.idType());
+            columns.put("modified", adapter.modifiedType());
+            columns.put("seq", "BIGINT");
+            columns.put("data", adapter.binaryType());
+            merge = legacyJson
+                    ? adapter.upsertSql(table, columns, 1, "json")
+                    : adapter.upsertSql(table, columns, 1);
+            find = select + " WHERE id = ?";
+            findIn = select + " WHERE id IN (";
+            findFirst = select + " ORDER BY " + FIFO_ORDER;
+            exists = "SELECT 1 FROM " + table + " WHERE id = ?";
+            count = "SELECT count(*) FROM " + table;
+            delete = "DELETE FROM " + table + " WHERE id = ?";
+            deleteIn = "DELETE FROM " + table + " WHERE id IN (";
+            clear = "DELETE FROM " + table;
+            String byId = " ORDER BY id";
+            forEach = select + byId;
+            String selectSeq = "SELECT id, " + dataColumns + ", seq FROM "
+                    + table;
+            forEachFifo = selectSeq + " ORDER BY " + FIFO_ORDER;
+            forEachFifoAfter = selectSeq + " WHERE seq > ? ORDER BY "
+                    + FIFO_ORDER;
+            forEachFrom = select + " WHERE id >= ?" + byId;
+            forEachAfter = select + " WHERE id > ?" + byId;
+            forEachTo = select + " WHERE id < ?" + byId;
+            forEachFromTo = select + " WHERE id >= ? AND id < ?" + byId;
+            forEachAfterTo = select + " WHERE id > ? AND id < ?" + byId;
+            orderedIds = "SELECT id FROM " + table + " ORDER BY id";
+            isEmpty = "SELECT 1 FROM " + table;
+            maxSeq = "SELECT MAX(seq) FROM " + table;
+            dequeue = dequeueSql(table, adapter.dequeue(),
+                    "id, " + dataColumns + ", seq");
+        }
+        private String forEachIn(
+                boolean hasFrom, boolean hasAfter, boolean hasTo) {
+            if (hasAfter) {
+                return hasTo ? forEachAfterTo : forEachAfter;
             }
+            if (hasFrom) {
+                return hasTo ? forEachFromTo : forEachFrom;
+            }
+            return hasTo ? forEachTo : forEach;
         }
-
-        @Override
-        public ZonedDateTime read(JsonReader in) throws IOException {
-            if (in.peek() == JsonToken.NULL) {
-                in.nextNull();
-                return null;
+        private static String dequeueSql(
+                String table, TableAdapter.Dequeue dequeue, String columns) {
+            switch (dequeue) {
+            case DELETE_RETURNING:
+                return "DELETE FROM " + table + " WHERE id IN ("
+                        + "SELECT id FROM " + table
+                        + " ORDER BY " + FIFO_ORDER
+                        + " LIMIT ? FOR UPDATE SKIP LOCKED"
+                        + ") RETURNING " + columns;
+            case SELECT_SKIP_LOCKED:
+                return "SELECT " + columns + " FROM " + table
+                        + " ORDER BY " + FIFO_ORDER
+                        + " LIMIT ? FOR UPDATE SKIP LOCKED";
+            case DELETE_DELTA_TABLE:
+                return "SELECT " + columns + " FROM OLD TABLE ("
+                        + "DELETE FROM " + table + " WHERE id IN ("
+                        + "SELECT id FROM " + table
+                        + " ORDER BY " + FIFO_ORDER
+                        + " FETCH FIRST ? ROWS ONLY))";
+            default:
+                return "SELECT " + columns + " FROM " + table
+                        + " ORDER BY " + FIFO_ORDER;
             }
-            String s = in.nextString();
-            return s == null ? null : ZonedDateTime.parse(s);
         }
     }
 }
\ No newline at end of file
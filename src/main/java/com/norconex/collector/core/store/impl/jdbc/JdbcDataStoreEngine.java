@@ -14,15 +14,19 @@
  */
 package com.norconex.collector.core.store.impl.jdbc;
 
+import static org.apache.commons.lang3.StringUtils.removeEnd;
 import static org.apache.commons.lang3.StringUtils.removeStart;
 import static org.apache.commons.lang3.StringUtils.startsWithIgnoreCase;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
@@ -33,9 +37,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.store.DataStoreDurability;
 import com.norconex.collector.core.store.DataStoreException;
 import com.norconex.collector.core.store.IDataStore;
 import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.IDataStoreSerializer;
+import com.norconex.collector.core.store.IStagedDataStore;
+import com.norconex.collector.core.store.impl.serializer.BinaryDataStoreSerializer;
 import com.norconex.commons.lang.map.Properties;
 import com.norconex.commons.lang.xml.IXMLConfigurable;
 import com.norconex.commons.lang.xml.XML;
@@ -70,6 +78,37 @@ import com.zaxxer.hikari.HikariDataSource;
  * get errors related to field data types not being supported, you have
  * the option to redefined them.
  * </p>
+ * <h2>Durability</h2>
+ * <p>
+ * Every write is committed right away. When the crawler data store
+ * durability is <code>ON_CHECKPOINT</code>, PostgreSQL connections are
+ * configured to not wait for commits to be written to disk
+ * (<code>synchronous_commit</code> turned off), unless a
+ * <code>connectionInitSql</code> datasource property is set.
+ * Other databases rely on their own durability settings.
+ * </p>
+ * <h2>Prepared statements</h2>
+ * <p>
+ * SQL statements are rendered once per table. For MySQL and PostgreSQL,
+ * driver properties enabling prepared statement caching are added
+ * to the datasource (unless already set), so statements do not get parsed
+ * and planned again on every use of a pooled connection.
+ * </p>
+ * <h2>Serialization</h2>
+ * <p>
+ * Stored objects are serialized with a {@link IDataStoreSerializer},
+ * which defaults to {@link BinaryDataStoreSerializer}. Tables created
+ * by prior versions, storing objects as JSON text, get a new binary
+ * column added and existing records remain readable.
+ * </p>
+ * <h2>Staged data store</h2>
+ * <p>
+ * When the crawler <code>dataStoreStaged</code> option is enabled,
+ * references of all processing stages are kept in a single table, with
+ * an indexed <code>stage</code> column. Moving references from one
+ * stage to another (e.g., from "queued" to "active") is then a single
+ * update of that column instead of copying them between tables.
+ * </p>
  *
  * {@nx.xml.usage
  * <dataStoreEngine class=
@@ -82,6 +121,11 @@ import com.zaxxer.hikari.HikariDataSource;
  * (Optional prefix used for table creation. Default is the collector
  * id plus the crawler id, each followed by an underscore character.)
  * </tablePrefix>
+ * <fetchSize>
+ * (Number of rows read at once when iterating over a data store.
+ * Default is 1000.)
+ * </fetchSize>
+ * <serializer class="(IDataStoreSerializer implementation)"/>
  * <!--
  * Optionally overwrite default SQL data type used. You should only
  * use if you get data type-related errors.
@@ -90,6 +134,7 @@ import com.zaxxer.hikari.HikariDataSource;
  * <varchar use="(equivalent data type for your database)" />
  * <timestamp use="(equivalent data type for your database)" />
  * <text use="(equivalent data type for your database)" />
+ * <binary use="(equivalent data type for your database)" />
  * </dataTypes>
  * </dataStoreEngine>
  * }
@@ -116,6 +161,9 @@ public class JdbcDataStoreEngine
     private static final Logger LOG = LoggerFactory.getLogger(JdbcDataStoreEngine.class);
 
     private static final String STORE_TYPES_NAME = "_storetypes";
+    private static final String SWAP_SUFFIX = "_swap";
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
 
     // Non-configurable:
     private HikariDataSource datasource;
@@ -129,6 +177,9 @@ public class JdbcDataStoreEngine
     private String varcharType;
     private String timestapType;
     private String textType;
+    private String binaryType;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private IDataStoreSerializer serializer = new BinaryDataStoreSerializer();
 
     public Properties getConfigProperties() {
         return configProperties;
@@ -170,6 +221,68 @@ public class JdbcDataStoreEngine
         this.textType = textType;
     }
 
+    /**
+     * Gets the number of rows read at once when iterating over
+     * a data store. Rows are read in batches of that size, each on a
+     * connection returned to the pool before the batch rows are
+     * processed, so memory usage does not grow with the data store size.
+     * @return fetch size
+     * @since 3.2.0
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the number of rows read at once when iterating over
+     * a data store.
+     * @param fetchSize fetch size
+     * @since 3.2.0
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+    // Maximum number of rows read per query when iterating.
+    int getBatchReadSize() {
+        return fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+    }
+
+    /**
+     * Gets the SQL data type used to store serialized objects.
+     * @return binary data type
+     * @since 3.2.0
+     */
+    public String getBinaryType() {
+        return binaryType;
+    }
+
+    /**
+     * Sets the SQL data type used to store serialized objects.
+     * @param binaryType binary data type
+     * @since 3.2.0
+     */
+    public void setBinaryType(String binaryType) {
+        this.binaryType = binaryType;
+    }
+
+    /**
+     * Gets the serializer used to convert stored objects to bytes.
+     * @return serializer
+     * @since 3.2.0
+     */
+    public IDataStoreSerializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Sets the serializer used to convert stored objects to bytes.
+     * @param serializer serializer
+     * @since 3.2.0
+     */
+    public void setSerializer(IDataStoreSerializer serializer) {
+        this.serializer = serializer;
+    }
+
     @Override
     public void init(Crawler crawler) {
         // create a clean table name prefix to avoid collisions in case
@@ -180,21 +293,46 @@ public class JdbcDataStoreEngine
         }
 
         // create data source
-        datasource = new HikariDataSource(
-                new HikariConfig(configProperties.toProperties()));
+        HikariConfig hikariConfig =
+                new HikariConfig(configProperties.toProperties());
+        String dbUrl = StringUtils.firstNonBlank(
+                hikariConfig.getJdbcUrl(), hikariConfig.getDriverClassName());
+        if (crawler.getCrawlerConfig().getDataStoreDurability()
+                == DataStoreDurability.ON_CHECKPOINT
+                && hikariConfig.getConnectionInitSql() == null) {
+            hikariConfig.setConnectionInitSql(
+                    TableAdapter.detectRelaxedCommitSql(dbUrl));
+        }
+        // explicitly configured driver properties take precedence
+        TableAdapter.detectDriverProperties(dbUrl).forEach((k, v) -> {
+            if (!hikariConfig.getDataSourceProperties().containsKey(k)) {
+                hikariConfig.addDataSourceProperty(k, v);
+            }
+        });
+        datasource = new HikariDataSource(hikariConfig);
 
-        tableAdapter = resolveTableAdapter();
+        tableAdapter = resolveTableAdapter(dbUrl);
 
         // store types for each table
         storeTypes = new JdbcDataStore<>(this, STORE_TYPES_NAME, String.class);
+        recoverSwaps();
     }
 
-    private TableAdapter resolveTableAdapter() {
-        return TableAdapter.detect(StringUtils.firstNonBlank(
-                datasource.getJdbcUrl(), datasource.getDriverClassName()))
+    private TableAdapter resolveTableAdapter(String dbUrl) {
+        TableAdapter adapter = TableAdapter.detect(dbUrl)
                 .withIdType(varcharType)
                 .withModifiedType(timestapType)
-                .withJsonType(textType);
+                .withJsonType(textType)
+                .withBinaryType(binaryType);
+        try (Connection conn = datasource.getConnection()) {
+            DatabaseMetaData md = conn.getMetaData();
+            return adapter.withDatabaseVersion(md.getDatabaseProductName(),
+                    md.getDatabaseMajorVersion(),
+                    md.getDatabaseMinorVersion());
+        } catch (SQLException e) {
+            throw new DataStoreException(
+                    "Could not obtain database version.", e);
+        }
     }
 
     @Override
@@ -230,6 +368,14 @@ public class JdbcDataStoreEngine
         return new JdbcDataStore<>(this, storeName, type);
     }
 
+    // Staged stores hold all stages in one table with a "stage" column.
+    @Override
+    public <T> Optional<IStagedDataStore<T>> openStagedStore(
+            String storeName, Class<? extends T> type) {
+        storeTypes.save(storeName, type.getName());
+        return Optional.of(new JdbcStagedDataStore<>(this, storeName, type));
+    }
+
     @Override
     public boolean dropStore(String storeName) {
         String tableName = tableName(storeName);
@@ -266,6 +412,98 @@ public class JdbcDataStoreEngine
         return existed;
     }
 
+    @Override
+    public void truncateStore(IDataStore<?> dataStore) {
+        ((JdbcDataStore<?>) dataStore).truncate();
+    }
+
+    // The swap is atomic with a single statement renaming both tables
+    // (MySQL), or on databases with transactional DDL (e.g., PostgreSQL).
+    // Elsewhere (e.g., H2), each rename is committed on its own, so the
+    // name of the other store is first recorded under the temporary one,
+    // letting an interrupted swap be recovered on startup.
+    @Override
+    public void swapStores(
+            IDataStore<?> dataStore1, IDataStore<?> dataStore2) {
+        JdbcDataStore<?> store1 = (JdbcDataStore<?>) dataStore1;
+        JdbcDataStore<?> store2 = (JdbcDataStore<?>) dataStore2;
+        String name1 = store1.getName();
+        String name2 = store2.getName();
+        String swapName = name1 + SWAP_SUFFIX;
+        boolean atomic = tableAdapter.isSwapAtomic();
+        if (!atomic) {
+            storeTypes.save(swapName, name2);
+        }
+        renameTables(tableAdapter.swapSql(
+                tableName(name1), tableName(name2), tableName(swapName)));
+        store1.renamed(name2);
+        store2.renamed(name1);
+        storeTypes.save(name1, store2.getType().getName());
+        storeTypes.save(name2, store1.getType().getName());
+        if (!atomic) {
+            storeTypes.delete(swapName);
+        }
+    }
+
+    // Completes or reverts swaps interrupted by a crash, detected from
+    // their temporary store types entry (see swapStores).
+    private void recoverSwaps() {
+        Map<String, String> swaps = new HashMap<>();
+        storeTypes.forEach((name, value) -> {
+            if (name.endsWith(SWAP_SUFFIX)) {
+                swaps.put(name, value);
+            }
+            return true;
+        });
+        swaps.forEach((swapName, name2) -> {
+            String name1 = removeEnd(swapName, SWAP_SUFFIX);
+            String swapTable = tableName(swapName);
+            if (tableExist(swapTable)) {
+                if (tableExist(tableName(name1))) {
+                    // stopped after the second rename: complete it
+                    renameTables(List.of("ALTER TABLE " + swapTable
+                            + " RENAME TO " + tableName(name2)));
+                    String type1 = storeTypes.find(name1).orElse(null);
+                    String type2 = storeTypes.find(name2).orElse(null);
+                    if (type1 != null && type2 != null) {
+                        storeTypes.save(name1, type2);
+                        storeTypes.save(name2, type1);
+                    }
+                } else {
+                    // stopped after the first rename: revert it
+                    renameTables(List.of("ALTER TABLE " + swapTable
+                            + " RENAME TO " + tableName(name1)));
+                }
+                LOG.warn("Recovered interrupted swap of data stores "
+                        + "'{}' and '{}'.", name1, name2);
+            }
+            storeTypes.delete(swapName);
+        });
+    }
+
+    // Executes the statements in a single transaction, which is only
+    // effective on databases with transactional DDL.
+    private void renameTables(List<String> statements) {
+        try (Connection conn = datasource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                for (String statement : statements) {
+                    stmt.executeUpdate(statement);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DataStoreException(
+                    "Could not rename tables: " + statements, e);
+        }
+    }
+
     @Override
     public Set<String> getStoreNames() {
         Set<String> names = new HashSet<>();
@@ -315,11 +553,16 @@ public class JdbcDataStoreEngine
             configProperties.add(name, value);
         }
         setTablePrefix(xml.getString("tablePrefix", getTablePrefix()));
+        setFetchSize(xml.getInteger("fetchSize", getFetchSize()));
         setVarcharType(
                 xml.getString("dataTypes/varchar/@use", getVarcharType()));
         setTimestapType(
                 xml.getString("dataTypes/timestamp/@use", getTimestapType()));
         setTextType(xml.getString("dataTypes/text/@use", getTextType()));
+        setBinaryType(
+                xml.getString("dataTypes/binary/@use", getBinaryType()));
+        setSerializer(xml.getObjectImpl(
+                IDataStoreSerializer.class, "serializer", getSerializer()));
     }
 
     @Override
@@ -335,10 +578,13 @@ public class JdbcDataStoreEngine
             }
         }
         xml.addElement("tablePrefix", getTablePrefix());
+        xml.addElement("fetchSize", getFetchSize());
+        xml.addElement("serializer", getSerializer());
         XML dtXML = xml.addElement("dataTypes");
         dtXML.addElement("varchar").setAttribute("use", getVarcharType());
         dtXML.addElement("timestamp").setAttribute("use", getTimestapType());
         dtXML.addElement("text").setAttribute("use", getTextType());
+        dtXML.addElement("binary").setAttribute("use", getBinaryType());
     }
 
     TableAdapter getTableAdapter() {
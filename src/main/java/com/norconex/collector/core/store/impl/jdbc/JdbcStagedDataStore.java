@@ -0,0 +1,730 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.jdbc;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.norconex.collector.core.store.DataStoreException;
+import com.norconex.collector.core.store.DataStorePartitions;
+import com.norconex.collector.core.store.IDataStoreSerializer;
+import com.norconex.collector.core.store.IStagedDataStore;
+
+/**
+ * Staged data store keeping all stages in a single table, with the
+ * stage of each record in an indexed "stage" column. Moving records
+ * between stages only updates that column.
+ * @param <T> type of stored objects
+ * @since 3.2.0
+ */
+public class JdbcStagedDataStore<T> implements IStagedDataStore<T> {
+
+    // Maximum number of rows sent per JDBC batch or "IN" clause.
+    private static final int BATCH_CHUNK_SIZE = 500;
+
+    private final JdbcDataStoreEngine engine;
+    private final String tableName;
+    private final String storeName;
+    private final Class<? extends T> type;
+    private final TableAdapter adapter;
+    private final IDataStoreSerializer serializer;
+    private final RenderedSql sql;
+    // Insertion order of records (FIFO reads), seeded from the highest
+    // stored value when opened.
+    private final AtomicLong sequence = new AtomicLong();
+    // Whether batched claims report how many rows each updated (see
+    // moveFirst).
+    private volatile boolean batchCountsReported = true;
+
+    JdbcStagedDataStore(
+            JdbcDataStoreEngine engine,
+            String storeName,
+            Class<? extends T> type) {
+        super();
+        this.engine = requireNonNull(engine, "'engine' must not be null.");
+        this.type = requireNonNull(type, "'type' must not be null.");
+        this.adapter = engine.getTableAdapter();
+        this.serializer = engine.getSerializer();
+        this.storeName = requireNonNull(
+                storeName, "'storeName' must not be null.");
+        this.tableName = engine.tableName(storeName);
+        if (!engine.tableExist(tableName)) {
+            createTable();
+        }
+        this.sql = new RenderedSql(tableName, adapter);
+        sequence.set(executeRead(sql.maxSeq, stmt -> {},
+                rs -> rs.next() ? rs.getLong(1) : 0L));
+    }
+
+    @Override
+    public String getName() {
+        return storeName;
+    }
+
+    @Override
+    public void save(String stage, String id, T object) {
+        executeWrite(sql.merge, stmt -> {
+            stmt.setString(1, stage);
+            stmt.setString(2, adapter.serializableId(id));
+            stmt.setTimestamp(3, new Timestamp(currentTimeMillis()));
+            stmt.setLong(4, sequence.incrementAndGet());
+            stmt.setBytes(5, serializer.toBytes(object));
+        });
+    }
+
+    @Override
+    public void saveAll(String stage, Map<String, T> objects) {
+        if (objects.isEmpty()) {
+            return;
+        }
+        // Each record gets the next sequence value so the batch insertion
+        // order is preserved for FIFO reads.
+        Timestamp now = new Timestamp(currentTimeMillis());
+        executeTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql.merge)) {
+                int i = 0;
+                for (Entry<String, T> en : objects.entrySet()) {
+                    stmt.setString(1, stage);
+                    stmt.setString(2, adapter.serializableId(en.getKey()));
+                    stmt.setTimestamp(3, now);
+                    stmt.setLong(4, sequence.incrementAndGet());
+                    stmt.setBytes(5, serializer.toBytes(en.getValue()));
+                    stmt.addBatch();
+                    if (++i % BATCH_CHUNK_SIZE == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                if (i % BATCH_CHUNK_SIZE != 0) {
+                    stmt.executeBatch();
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<T> find(String stage, String id) {
+        return executeRead(sql.find, stmt -> {
+            stmt.setString(1, stage);
+            stmt.setString(2, adapter.serializableId(id));
+        }, rs -> rs.next() ? toObject(rs) : Optional.empty());
+    }
+
+    @Override
+    public boolean exists(String stage, String id) {
+        return executeRead(sql.exists, stmt -> {
+            stmt.setString(1, stage);
+            stmt.setString(2, adapter.serializableId(id));
+        }, ResultSet::next);
+    }
+
+    @Override
+    public long count(String stage) {
+        return executeRead(sql.count, stmt -> stmt.setString(1, stage),
+                rs -> rs.next() ? rs.getLong(1) : 0L);
+    }
+
+    @Override
+    public boolean isEmpty(String stage) {
+        return executeRead(sql.isEmpty, stmt -> {
+            stmt.setString(1, stage);
+            stmt.setMaxRows(1);
+        }, rs -> !rs.next());
+    }
+
+    @Override
+    public boolean delete(String stage, String id) {
+        return executeWrite(sql.delete, stmt -> {
+            stmt.setString(1, stage);
+            stmt.setString(2, adapter.serializableId(id));
+        }) > 0;
+    }
+
+    @Override
+    public void clear(String stage) {
+        executeWrite(sql.clear, stmt -> stmt.setString(1, stage));
+    }
+
+    @Override
+    public void close() {
+        //NOOP: Closed implicitly when datasource is closed.
+    }
+
+    // Records are read in FIFO order (the order "moveFirst" takes them),
+    // in batches resuming after the last sequence read (see
+    // forEachInRange).
+    @Override
+    public boolean forEach(String stage, BiPredicate<String, T> predicate) {
+        int batchSize = engine.getBatchReadSize();
+        Long afterSeq = null;
+        List<Record<T>> batch;
+        do {
+            Long lowerSeq = afterSeq;
+            batch = executeRead(lowerSeq != null
+                    ? sql.forEachFifoAfter : sql.first, stmt -> {
+                stmt.setMaxRows(batchSize);
+                stmt.setString(1, stage);
+                if (lowerSeq != null) {
+                    stmt.setLong(2, lowerSeq);
+                }
+            }, rs -> {
+                List<Record<T>> records = new ArrayList<>();
+                while (rs.next()) {
+                    Record<T> rec = new Record<>();
+                    rec.id = rs.getString(1);
+                    rec.object = toObject(rs).orElse(null);
+                    rec.seq = rs.getLong(3);
+                    records.add(rec);
+                }
+                return records;
+            });
+            for (Record<T> rec : batch) {
+                if (!predicate.test(rec.id, rec.object)) {
+                    return false;
+                }
+                afterSeq = rec.seq;
+            }
+        } while (batch.size() == batchSize);
+        return true;
+    }
+
+    @Override
+    public boolean forEachParallel(String stage,
+            int parallelism, BiPredicate<String, T> predicate) {
+        return DataStorePartitions.forEach(
+                splitIds(stage, parallelism),
+                parallelism,
+                (fromId, toId, p) -> forEachInRange(stage, fromId, toId, p),
+                predicate);
+    }
+    // Ids dividing a stage in ranges of about the same size, obtained
+    // by streaming the primary key index only.
+    private List<String> splitIds(String stage, int parallelism) {
+        List<String> splitIds = new ArrayList<>();
+        long count = count(stage);
+        if (parallelism <= 1 || count <= parallelism) {
+            return splitIds;
+        }
+        return executeTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql.orderedIds,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(engine.getFetchSize());
+                stmt.setString(1, stage);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    long row = 0;
+                    long nextSplit = count / parallelism;
+                    while (splitIds.size() < parallelism - 1 && rs.next()) {
+                        if (row == nextSplit) {
+                            splitIds.add(rs.getString(1));
+                            nextSplit = count * (splitIds.size() + 1)
+                                    / parallelism;
+                        }
+                        row++;
+                    }
+                }
+            }
+            return splitIds;
+        });
+    }
+    private boolean forEachInRange(String stage,
+            String fromId, String toId, BiPredicate<String, T> predicate) {
+        String upper = toId != null ? " AND id < ?" : "";
+        String firstQuery = sql.forEach
+                + (fromId != null ? " AND id >= ?" : "") + upper
+                + " ORDER BY id";
+        String nextQuery = sql.forEach + " AND id > ?" + upper
+                + " ORDER BY id";
+        // Records are read in batches ordered by id, each batch on a
+        // connection released before invoking the predicate (see
+        // JdbcDataStore).
+        int batchSize = engine.getBatchReadSize();
+        String afterId = null;
+        List<Entry<String, T>> batch;
+        do {
+            String lowerId = afterId != null ? afterId : fromId;
+            batch = executeRead(afterId != null ? nextQuery : firstQuery,
+                    stmt -> {
+                stmt.setMaxRows(batchSize);
+                int idx = 1;
+                stmt.setString(idx++, stage);
+                if (lowerId != null) {
+                    stmt.setString(idx++, lowerId);
+                }
+                if (toId != null) {
+                    stmt.setString(idx, toId);
+                }
+            }, rs -> {
+                List<Entry<String, T>> records = new ArrayList<>();
+                while (rs.next()) {
+                    records.add(new SimpleImmutableEntry<>(
+                            rs.getString(1), toObject(rs).orElse(null)));
+                }
+                return records;
+            });
+            for (Entry<String, T> en : batch) {
+                if (!predicate.test(en.getKey(), en.getValue())) {
+                    return false;
+                }
+                afterId = en.getKey();
+            }
+        } while (batch.size() == batchSize);
+        return true;
+    }
+
+    //--- Stage changes ---
+
+    @Override
+    public boolean move(
+            String id, T object, String fromStage, String toStage) {
+        String storedId = adapter.serializableId(id);
+        return executeTransaction(conn -> {
+            deleteIn(conn, toStage, List.of(storedId));
+            try (PreparedStatement stmt = conn.prepareStatement(sql.update)) {
+                stmt.setString(1, toStage);
+                stmt.setTimestamp(2, new Timestamp(currentTimeMillis()));
+                stmt.setLong(3, sequence.incrementAndGet());
+                stmt.setBytes(4, serializer.toBytes(object));
+                stmt.setString(5, fromStage);
+                stmt.setString(6, storedId);
+                if (stmt.executeUpdate() > 0) {
+                    return true;
+                }
+            }
+            insert(conn, toStage, Map.of(storedId, object));
+            return false;
+        });
+    }
+
+    // Only the stage, timestamp and sequence of each record are updated.
+    // The new sequence puts moved records last in FIFO order.
+    @Override
+    public long moveAll(
+            Map<String, T> objects, String fromStage, String toStage) {
+        long count = 0;
+        for (List<Entry<String, T>> chunk : ListUtils.partition(
+                new ArrayList<>(objects.entrySet()), BATCH_CHUNK_SIZE)) {
+            count += executeTransaction(conn -> {
+                List<String> storedIds = new ArrayList<>(chunk.size());
+                chunk.forEach(en -> storedIds.add(
+                        adapter.serializableId(en.getKey())));
+                deleteIn(conn, toStage, storedIds);
+                Map<String, T> missing = new LinkedHashMap<>();
+                long moved = 0;
+                Timestamp now = new Timestamp(currentTimeMillis());
+                try (PreparedStatement stmt =
+                        conn.prepareStatement(sql.updateStage)) {
+                    for (String storedId : storedIds) {
+                        stmt.setString(1, toStage);
+                        stmt.setTimestamp(2, now);
+                        stmt.setLong(3, sequence.incrementAndGet());
+                        stmt.setString(4, fromStage);
+                        stmt.setString(5, storedId);
+                        stmt.addBatch();
+                    }
+                    int[] counts = stmt.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] > 0
+                                || counts[i] == Statement.SUCCESS_NO_INFO) {
+                            moved++;
+                        } else {
+                            missing.put(storedIds.get(i),
+                                    chunk.get(i).getValue());
+                        }
+                    }
+                }
+                insert(conn, toStage, missing);
+                return moved;
+            });
+        }
+        return count;
+    }
+
+    @Override
+    public long moveAll(String fromStage, String toStage) {
+        return executeTransaction(conn -> {
+            try (PreparedStatement stmt =
+                    conn.prepareStatement(sql.deleteMoved)) {
+                stmt.setString(1, toStage);
+                stmt.setString(2, fromStage);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt =
+                    conn.prepareStatement(sql.moveAll)) {
+                stmt.setString(1, toStage);
+                stmt.setString(2, fromStage);
+                return (long) stmt.executeUpdate();
+            }
+        });
+    }
+
+    // Records are claimed atomically, so concurrent pollers (from this
+    // or other processes) never get the same records.
+    @Override
+    public List<T> moveFirst(String fromStage, String toStage, int maxCount) {
+        if (maxCount <= 0) {
+            return new ArrayList<>();
+        }
+        List<Record<T>> records = executeTransaction(conn -> {
+            List<Record<T>> selected = new ArrayList<>();
+            boolean skipLocked = adapter.dequeue()
+                    == TableAdapter.Dequeue.DELETE_RETURNING
+                    || adapter.dequeue()
+                    == TableAdapter.Dequeue.SELECT_SKIP_LOCKED;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    skipLocked ? sql.firstSkipLocked : sql.first)) {
+                stmt.setString(1, fromStage);
+                if (skipLocked) {
+                    stmt.setInt(2, maxCount);
+                } else {
+                    stmt.setMaxRows(maxCount);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Record<T> rec = new Record<>();
+                        rec.id = rs.getString(1);
+                        rec.object = toObject(rs).orElse(null);
+                        rec.seq = rs.getLong(3);
+                        selected.add(rec);
+                    }
+                }
+            }
+            if (selected.isEmpty()) {
+                return selected;
+            }
+            Timestamp now = new Timestamp(currentTimeMillis());
+            if (skipLocked) {
+                // selected rows are locked by this transaction
+                List<String> storedIds = new ArrayList<>(selected.size());
+                selected.forEach(rec -> storedIds.add(rec.id));
+                deleteIn(conn, toStage, storedIds);
+                updateIn(conn, fromStage, toStage, now, storedIds);
+                return selected;
+            }
+            // Selected rows are first claimed by updating them, which
+            // locks them until committed. Rows moved by a concurrent poller
+            // in the meantime are skipped. Target rows with the id of a
+            // claimed row can then only be stale duplicates, and are
+            // deleted before moving claimed rows. When the driver does not
+            // report batch update counts, claims are rolled back and made
+            // again one row at a time from then on.
+            List<Record<T>> claimed = new ArrayList<>(selected.size());
+            try (PreparedStatement stmt = conn.prepareStatement(sql.claim)) {
+                boolean batched = batchCountsReported;
+                if (batched) {
+                    for (Record<T> rec : selected) {
+                        stmt.setTimestamp(1, now);
+                        stmt.setString(2, fromStage);
+                        stmt.setString(3, rec.id);
+                        stmt.addBatch();
+                    }
+                    int[] counts = stmt.executeBatch();
+                    if (JdbcDataStore.hasUpdateCounts(counts)) {
+                        for (int i = 0; i < counts.length; i++) {
+                            if (counts[i] == 1) {
+                                claimed.add(selected.get(i));
+                            }
+                        }
+                    } else {
+                        conn.rollback();
+                        batchCountsReported = false;
+                        batched = false;
+                    }
+                }
+                if (!batched) {
+                    for (Record<T> rec : selected) {
+                        stmt.setTimestamp(1, now);
+                        stmt.setString(2, fromStage);
+                        stmt.setString(3, rec.id);
+                        if (stmt.executeUpdate() == 1) {
+                            claimed.add(rec);
+                        }
+                    }
+                }
+            }
+            if (claimed.isEmpty()) {
+                return claimed;
+            }
+            List<String> claimedIds = new ArrayList<>(claimed.size());
+            claimed.forEach(rec -> claimedIds.add(rec.id));
+            deleteIn(conn, toStage, claimedIds);
+            List<Record<T>> moved = new ArrayList<>(claimed.size());
+            try (PreparedStatement stmt =
+                    conn.prepareStatement(sql.updateStage)) {
+                for (Record<T> rec : claimed) {
+                    stmt.setString(1, toStage);
+                    stmt.setTimestamp(2, now);
+                    stmt.setLong(3, sequence.incrementAndGet());
+                    stmt.setString(4, fromStage);
+                    stmt.setString(5, rec.id);
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0
+                            || counts[i] == Statement.SUCCESS_NO_INFO) {
+                        moved.add(claimed.get(i));
+                    }
+                }
+            }
+            return moved;
+        });
+        records.sort(Comparator.comparingLong(rec -> rec.seq));
+        List<T> objects = new ArrayList<>(records.size());
+        records.forEach(rec -> objects.add(rec.object));
+        return objects;
+    }
+
+    private void deleteIn(Connection conn, String stage,
+            List<String> storedIds) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                sql.deleteIn + inParams(storedIds.size()) + ")")) {
+            stmt.setString(1, stage);
+            setStrings(stmt, 2, storedIds);
+            stmt.executeUpdate();
+        }
+    }
+    private void updateIn(Connection conn, String fromStage, String toStage,
+            Timestamp modified, List<String> storedIds) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                sql.updateIn + inParams(storedIds.size()) + ")")) {
+            stmt.setString(1, toStage);
+            stmt.setTimestamp(2, modified);
+            stmt.setLong(3, sequence.incrementAndGet());
+            stmt.setString(4, fromStage);
+            setStrings(stmt, 5, storedIds);
+            stmt.executeUpdate();
+        }
+    }
+    // Objects are keyed by stored id.
+    private void insert(Connection conn, String stage,
+            Map<String, T> objects) throws SQLException {
+        if (objects.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(currentTimeMillis());
+        try (PreparedStatement stmt = conn.prepareStatement(sql.insert)) {
+            for (Entry<String, T> en : objects.entrySet()) {
+                stmt.setString(1, stage);
+                stmt.setString(2, en.getKey());
+                stmt.setTimestamp(3, now);
+                stmt.setLong(4, sequence.incrementAndGet());
+                stmt.setBytes(5, serializer.toBytes(en.getValue()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void createTable() {
+        try (Connection conn = engine.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(
+                        "CREATE TABLE " + tableName + " ("
+                        + "stage " + adapter.stageType() + " NOT NULL, "
+                        + "id " + adapter.idType() + " NOT NULL, "
+                        + "modified " + adapter.modifiedType() + ", "
+                        + "seq BIGINT, "
+                        + "data " + adapter.binaryType() + ", "
+                        + "PRIMARY KEY (stage, id) "
+                        + ")");
+                stmt.executeUpdate(
+                        "CREATE INDEX " + tableName + "_seq_index "
+                        + "ON " + tableName + "(stage, seq)");
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataStoreException(
+                    "Could not create table '" + tableName + "'.", e);
+        }
+    }
+
+    private Optional<T> toObject(ResultSet rs) throws SQLException {
+        byte[] bytes = rs.getBytes(2);
+        if (bytes == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(serializer.fromBytes(bytes, type));
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    private <R> R executeRead(
+            String query,
+            JdbcDataStore.PreparedStatementConsumer psc,
+            JdbcDataStore.ResultSetFunction<R> rsc) {
+        try (Connection conn = engine.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                psc.accept(stmt);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rsc.accept(rs);
+                }
+            }
+        } catch (SQLException | IOException e) {
+            throw new DataStoreException(
+                    "Could not read from table '" + tableName + "'.", e);
+        }
+    }
+    // Executes the function in a single transaction, committed on success
+    // and rolled back on failure.
+    private <R> R executeTransaction(
+            JdbcDataStore.ConnectionFunction<R> f) {
+        try (Connection conn = engine.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                R val = f.accept(conn);
+                conn.commit();
+                return val;
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | IOException e) {
+            throw new DataStoreException(
+                    "Could not execute transaction on table '"
+                            + tableName + "'.", e);
+        }
+    }
+    private int executeWrite(
+            String query, JdbcDataStore.PreparedStatementConsumer c) {
+        try (Connection conn = engine.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                c.accept(stmt);
+                int val = stmt.executeUpdate();
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+                return val;
+            }
+        } catch (SQLException e) {
+            throw new DataStoreException(
+                    "Could not write to table '" + tableName + "'.", e);
+        }
+    }
+    private static String inParams(int count) {
+        return StringUtils.repeat("?", ",", count);
+    }
+    private static void setStrings(PreparedStatement stmt,
+            int firstIndex, List<String> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            stmt.setString(firstIndex + i, values.get(i));
+        }
+    }
+
+    private static class Record<T> {
+        private String id;
+        private T object;
+        private long seq;
+    }
+
+    // SQL statements rendered once for the table name. Selected records
+    // have their id, data and seq columns.
+    private static final class RenderedSql {
+        private final String merge;
+        private final String insert;
+        private final String find;
+        private final String exists;
+        private final String count;
+        private final String isEmpty;
+        private final String delete;
+        private final String deleteIn;
+        private final String clear;
+        private final String forEach;
+        private final String forEachFifoAfter;
+        private final String orderedIds;
+        private final String update;
+        private final String updateStage;
+        private final String updateIn;
+        private final String claim;
+        private final String deleteMoved;
+        private final String moveAll;
+        private final String first;
+        private final String firstSkipLocked;
+        private final String maxSeq;
+        private RenderedSql(String table, TableAdapter adapter) {
+            String select = "SELECT id, data, seq FROM " + table
+                    + " WHERE stage = ?";
+            Map<String, String> columns = new LinkedHashMap<>();
+            columns.put("stage", adapter.stageType());
+            columns.put("id", adapter.idType());
+            columns.put("modified", adapter.modifiedType());
+            columns.put("seq", "BIGINT");
+            columns.put("data", adapter.binaryType());
+            merge = adapter.upsertSql(table, columns, 2);
+            insert = "INSERT INTO " + table
+                    + " (stage, id, modified, seq, data)"
+                    + " VALUES (?, ?, ?, ?, ?)";
+            find = select + " AND id = ?";
+            exists = "SELECT 1 FROM " + table
+                    + " WHERE stage = ? AND id = ?";
+            count = "SELECT count(*) FROM " + table + " WHERE stage = ?";
+            isEmpty = "SELECT 1 FROM " + table + " WHERE stage = ?";
+            delete = "DELETE FROM " + table + " WHERE stage = ? AND id = ?";
+            deleteIn = "DELETE FROM " + table
+                    + " WHERE stage = ? AND id IN (";
+            clear = "DELETE FROM " + table + " WHERE stage = ?";
+            forEach = select;
+            forEachFifoAfter = select + " AND seq > ? ORDER BY seq";
+            orderedIds = "SELECT id FROM " + table
+                    + " WHERE stage = ? ORDER BY id";
+            update = "UPDATE " + table
+                    + " SET stage = ?, modified = ?, seq = ?, data = ?"
+                    + " WHERE stage = ? AND id = ?";
+            updateStage = "UPDATE " + table
+                    + " SET stage = ?, modified = ?, seq = ?"
+                    + " WHERE stage = ? AND id = ?";
+            updateIn = "UPDATE " + table
+                    + " SET stage = ?, modified = ?, seq = ?"
+                    + " WHERE stage = ? AND id IN (";
+            claim = "UPDATE " + table + " SET modified = ?"
+                    + " WHERE stage = ? AND id = ?";
+            // the derived table lets MySQL read the table being deleted
+            deleteMoved = "DELETE FROM " + table + " WHERE stage = ? "
+                    + "AND id IN (SELECT id FROM (SELECT id FROM " + table
+                    + " WHERE stage = ?) moved)";
+            moveAll = "UPDATE " + table + " SET stage = ? WHERE stage = ?";
+            first = select + " ORDER BY seq";
+            firstSkipLocked = first + " LIMIT ? FOR UPDATE SKIP LOCKED";
+            maxSeq = "SELECT MAX(seq) FROM " + table;
+        }
+    }
+}
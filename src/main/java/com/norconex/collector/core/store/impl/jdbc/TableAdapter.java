@@ -16,8 +16,13 @@ package com.norconex.collector.core.store.impl.jdbc;
 
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -34,28 +39,112 @@ import com.norconex.commons.lang.text.StringUtil;
  */
 final class TableAdapter {
 
+    /**
+     * How to atomically remove and return the oldest records of a table.
+     */
+    enum Dequeue {
+        /**
+         * Single <code>DELETE ... RETURNING</code> statement, deleting
+         * rows selected with <code>FOR UPDATE SKIP LOCKED</code>.
+         */
+        DELETE_RETURNING,
+        /**
+         * <code>SELECT ... FOR UPDATE SKIP LOCKED</code> followed by a
+         * <code>DELETE</code>, in the same transaction.
+         */
+        SELECT_SKIP_LOCKED,
+        /**
+         * Single <code>SELECT</code> on the <code>OLD TABLE</code>
+         * of a <code>DELETE</code> (data change delta table).
+         */
+        DELETE_DELTA_TABLE,
+        /**
+         * <code>SELECT</code> followed by a <code>DELETE</code> of
+         * each row, keeping only rows actually deleted.
+         */
+        SELECT_THEN_DELETE
+    }
+
+    /**
+     * How to insert a record or update it if it already exists.
+     */
+    enum Upsert {
+        /**
+         * <code>MERGE INTO ... USING (SELECT ... FROM DUAL)</code>.
+         */
+        MERGE,
+        /**
+         * <code>INSERT ... ON CONFLICT (...) DO UPDATE</code>.
+         */
+        ON_CONFLICT,
+        /**
+         * <code>INSERT ... ON DUPLICATE KEY UPDATE</code>.
+         */
+        ON_DUPLICATE_KEY
+    }
+
     private static final TableAdapter DEFAULT =
-            of("VARCHAR",  "TIMESTAMP", "TEXT");
+            of("VARCHAR",  "TIMESTAMP", "TEXT", "BLOB");
     private static final Map<String, TableAdapter> ADAPTERS = MapUtil.toMap(
             "DERBY", DEFAULT.withJsonType("CLOB"),
             "DB2", DEFAULT.withJsonType("CLOB"),
-            "H2", DEFAULT.withJsonType("CLOB"),
-            "MYSQL", DEFAULT.withJsonType("LONGTEXT"),
-            "ORACLE", of("VARCHAR2",  "TIMESTAMP", "CLOB"),
-            "POSTGRESQL", DEFAULT,
-            "SQLSERVER", of("VARCHAR",  "DATETIME",  "NTEXT"),
-            "SYBASE", DEFAULT
+            "H2", DEFAULT.withJsonType("CLOB")
+                    .withDequeue(Dequeue.DELETE_DELTA_TABLE),
+            "MYSQL", DEFAULT.withJsonType("LONGTEXT")
+                    .withBinaryType("LONGBLOB")
+                    .withDequeue(Dequeue.SELECT_SKIP_LOCKED)
+                    .withUpsert(Upsert.ON_DUPLICATE_KEY)
+                    .withMultiRename(true),
+            "ORACLE", of("VARCHAR2",  "TIMESTAMP", "CLOB", "BLOB"),
+            "POSTGRESQL", DEFAULT.withBinaryType("BYTEA")
+                    .withDequeue(Dequeue.DELETE_RETURNING)
+                    .withUpsert(Upsert.ON_CONFLICT),
+            "SQLSERVER",
+                    of("VARCHAR",  "DATETIME",  "NTEXT", "VARBINARY(MAX)"),
+            "SYBASE", DEFAULT.withBinaryType("IMAGE")
+    );
+    // Per-session statements trading durability for write speed, for
+    // databases supporting it.
+    private static final Map<String, String> RELAXED_COMMIT_SQL =
+            MapUtil.toMap(
+                    "POSTGRESQL", "SET synchronous_commit TO OFF"
+    );
+    // Driver properties enabling prepared statement caching, so statements
+    // prepared on a pooled connection are not parsed and planned again.
+    private static final Map<String, Map<String, String>> DRIVER_PROPERTIES =
+            MapUtil.toMap(
+                    "MYSQL", MapUtil.toMap(
+                            "cachePrepStmts", "true",
+                            "prepStmtCacheSize", "250",
+                            "prepStmtCacheSqlLimit", "2048",
+                            "useServerPrepStmts", "true",
+                            // honor fetch size instead of reading all rows
+                            "useCursorFetch", "true"),
+                    "POSTGRESQL", MapUtil.toMap(
+                            "prepareThreshold", "1")
     );
 
     private static final int ID_MAX_LENGTH = 2048;
+    private static final int STAGE_MAX_LENGTH = 32;
 
     private final String idType;
     private final String modifiedType;
     private final String jsonType;
-    private TableAdapter(String idType, String modifiedType, String jsonType) {
+    private final String binaryType;
+    private final Dequeue dequeue;
+    private final Upsert upsert;
+    // whether many tables can be renamed in one atomic statement
+    private final boolean multiRename;
+    private TableAdapter(String idType, String modifiedType,
+            String jsonType, String binaryType,
+            Dequeue dequeue, Upsert upsert, boolean multiRename) {
         this.idType = idType;
         this.modifiedType = modifiedType;
         this.jsonType = jsonType;
+        this.binaryType = binaryType;
+        this.dequeue = dequeue;
+        this.upsert = upsert;
+        this.multiRename = multiRename;
     }
 
     String serializableId(String id) {
@@ -69,47 +158,196 @@ final class TableAdapter {
     String idType() {
         return idType + "(" + ID_MAX_LENGTH + ")";
     }
+    String stageType() {
+        return idType + "(" + STAGE_MAX_LENGTH + ")";
+    }
     String modifiedType() {
         return modifiedType;
     }
     String jsonType() {
         return jsonType;
     }
+    String binaryType() {
+        return binaryType;
+    }
+    Dequeue dequeue() {
+        return dequeue;
+    }
+    Upsert upsert() {
+        return upsert;
+    }
+
+    /**
+     * Renders the statements exchanging the names of two tables, through
+     * a temporary name. A single atomic statement is returned when
+     * supported (MySQL), else one statement per rename.
+     * @param table1 first table name
+     * @param table2 second table name
+     * @param swapTable temporary table name
+     * @return SQL statements
+     */
+    List<String> swapSql(String table1, String table2, String swapTable) {
+        if (multiRename) {
+            return List.of("RENAME TABLE " + table1 + " TO " + swapTable
+                    + ", " + table2 + " TO " + table1
+                    + ", " + swapTable + " TO " + table2);
+        }
+        return List.of(
+                "ALTER TABLE " + table1 + " RENAME TO " + swapTable,
+                "ALTER TABLE " + table2 + " RENAME TO " + table1,
+                "ALTER TABLE " + swapTable + " RENAME TO " + table2);
+    }
+    boolean isSwapAtomic() {
+        return multiRename;
+    }
+
+    /**
+     * Renders a statement inserting a record, or updating it when a
+     * record with the same key columns exists. Parameters are the column
+     * values, in the order of the given columns.
+     * @param table table name
+     * @param columns column names and their SQL types, key columns first
+     * @param keyCount number of key columns
+     * @param nullColumns columns to set to <code>NULL</code> on update
+     * @return SQL statement
+     */
+    String upsertSql(String table, Map<String, String> columns,
+            int keyCount, String... nullColumns) {
+        List<String> names = new ArrayList<>(columns.keySet());
+        List<String> keys = names.subList(0, keyCount);
+        List<String> values = names.subList(keyCount, names.size());
+        String insert = "INSERT INTO " + table
+                + " (" + String.join(", ", names) + ") VALUES ("
+                + StringUtils.repeat("?", ", ", names.size()) + ")";
+        List<String> sets = new ArrayList<>();
+        switch (upsert) {
+        case ON_CONFLICT:
+            values.forEach(c -> sets.add(c + " = EXCLUDED." + c));
+            Stream.of(nullColumns).forEach(c -> sets.add(c + " = NULL"));
+            return insert + " ON CONFLICT (" + String.join(", ", keys)
+                    + ") DO UPDATE SET " + String.join(", ", sets);
+        case ON_DUPLICATE_KEY:
+            values.forEach(c -> sets.add(c + " = VALUES(" + c + ")"));
+            Stream.of(nullColumns).forEach(c -> sets.add(c + " = NULL"));
+            return insert + " ON DUPLICATE KEY UPDATE "
+                    + String.join(", ", sets);
+        default:
+            values.forEach(c -> sets.add("t." + c + " = s." + c));
+            Stream.of(nullColumns).forEach(c -> sets.add("t." + c + " = NULL"));
+            return "MERGE INTO " + table + " AS t USING (SELECT "
+                    + columns.entrySet().stream()
+                            .map(en -> "CAST(? AS " + en.getValue()
+                                    + ") AS " + en.getKey())
+                            .collect(Collectors.joining(", "))
+                    + " FROM DUAL) AS s ON "
+                    + keys.stream()
+                            .map(c -> "t." + c + " = s." + c)
+                            .collect(Collectors.joining(" AND "))
+                    + " WHEN NOT MATCHED THEN INSERT ("
+                    + String.join(", ", names) + ") VALUES ("
+                    + names.stream()
+                            .map(c -> "s." + c)
+                            .collect(Collectors.joining(", "))
+                    + ") WHEN MATCHED THEN UPDATE SET "
+                    + String.join(", ", sets);
+        }
+    }
 
     TableAdapter withIdType(String idType) {
         if (StringUtils.isBlank(idType)) {
             return this;
         }
-        return new TableAdapter(idType, modifiedType, jsonType);
+        return new TableAdapter(
+                idType, modifiedType, jsonType, binaryType,
+                dequeue, upsert, multiRename);
     }
     TableAdapter withModifiedType(String modifiedType) {
         if (StringUtils.isBlank(modifiedType)) {
             return this;
         }
-        return new TableAdapter(idType, modifiedType, jsonType);
+        return new TableAdapter(
+                idType, modifiedType, jsonType, binaryType,
+                dequeue, upsert, multiRename);
     }
     TableAdapter withJsonType(String jsonType) {
         if (StringUtils.isBlank(jsonType)) {
             return this;
         }
-        return new TableAdapter(idType, modifiedType, jsonType);
+        return new TableAdapter(
+                idType, modifiedType, jsonType, binaryType,
+                dequeue, upsert, multiRename);
+    }
+    TableAdapter withBinaryType(String binaryType) {
+        if (StringUtils.isBlank(binaryType)) {
+            return this;
+        }
+        return new TableAdapter(
+                idType, modifiedType, jsonType, binaryType,
+                dequeue, upsert, multiRename);
+    }
+    TableAdapter withDequeue(Dequeue dequeue) {
+        return new TableAdapter(
+                idType, modifiedType, jsonType, binaryType,
+                dequeue, upsert, multiRename);
     }
-    static TableAdapter of(
-            String idType, String modifiedType, String jsonType) {
-        return new TableAdapter(idType, modifiedType, jsonType);
+    TableAdapter withUpsert(Upsert upsert) {
+        return new TableAdapter(
+                idType, modifiedType, jsonType, binaryType,
+                dequeue, upsert, multiRename);
+    }
+    TableAdapter withMultiRename(boolean multiRename) {
+        return new TableAdapter(
+                idType, modifiedType, jsonType, binaryType,
+                dequeue, upsert, multiRename);
+    }
+    // SKIP LOCKED requires MySQL 8 (or MariaDB 10.6), the last
+    // dequeue option being supported by every version.
+    TableAdapter withDatabaseVersion(
+            String productName, int majorVersion, int minorVersion) {
+        if (dequeue != Dequeue.SELECT_SKIP_LOCKED) {
+            return this;
+        }
+        boolean supported;
+        if (StringUtils.containsIgnoreCase(productName, "MariaDB")) {
+            supported = majorVersion > 10
+                    || (majorVersion == 10 && minorVersion >= 6);
+        } else {
+            supported = majorVersion >= 8;
+        }
+        return supported ? this : withDequeue(Dequeue.SELECT_THEN_DELETE);
+    }
+    static TableAdapter of(String idType, String modifiedType,
+            String jsonType, String binaryType) {
+        return new TableAdapter(idType, modifiedType, jsonType,
+                binaryType, Dequeue.SELECT_THEN_DELETE, Upsert.MERGE, false);
     }
 
     static TableAdapter detect(String jdbcUrlOrDataSource) {
+        return detect(jdbcUrlOrDataSource, ADAPTERS, DEFAULT);
+    }
+    // Statement to run on new connections to not wait for commits to be
+    // written to disk, or null if not supported.
+    static String detectRelaxedCommitSql(String jdbcUrlOrDataSource) {
+        return detect(jdbcUrlOrDataSource, RELAXED_COMMIT_SQL, null);
+    }
+    // Driver properties recommended for the detected database.
+    static Map<String, String> detectDriverProperties(
+            String jdbcUrlOrDataSource) {
+        return detect(jdbcUrlOrDataSource,
+                DRIVER_PROPERTIES, Collections.emptyMap());
+    }
+    private static <T> T detect(
+            String jdbcUrlOrDataSource, Map<String, T> map, T defaultValue) {
         if (jdbcUrlOrDataSource == null) {
-            return DEFAULT;
+            return defaultValue;
         }
         String upper = jdbcUrlOrDataSource.toUpperCase();
-        return ADAPTERS
+        return map
                 .entrySet()
                 .stream()
                 .filter(en -> upper.contains(en.getKey()))
                 .findFirst()
                 .map(Entry::getValue)
-                .orElse(DEFAULT);
+                .orElse(defaultValue);
     }
 }
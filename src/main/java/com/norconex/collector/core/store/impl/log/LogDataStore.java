@@ -0,0 +1,665 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.log;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.store.DataStoreException;
+import com.norconex.collector.core.store.IDataStore;
+import com.norconex.collector.core.store.IDataStoreSerializer;
+
+/**
+ * <p>
+ * Data store made of append-only, memory-mapped segment files.
+ * Every save or delete appends a record to the last segment.
+ * An in-memory index keeps the location of each live record in
+ * insertion order, so {@link #findFirst()} and {@link #deleteFirst()}
+ * are sequential FIFO reads.
+ * </p>
+ * <p>
+ * Segment files are removed starting with the oldest one, once it no
+ * longer holds live records. Any sparse segment can also be removed by
+ * {@link #compact(int)}, after copying its live records to the last
+ * segment. Its deletions are copied as well while older segments
+ * remain, so a deleted record is never brought back when the log is
+ * replayed on open.
+ * </p>
+ * @param <T> type of stored objects
+ * @since 3.2.0
+ */
+public class LogDataStore<T> implements IDataStore<T> {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(LogDataStore.class);
+
+    static final String SEGMENT_EXTENSION = ".log";
+
+    // Releases mapped segment memory right away instead of when garbage
+    // collected, which also lets segment files be deleted on Windows.
+    // Null when not supported by the JVM.
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod(
+                    "invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.debug("Segments will be unmapped when garbage collected.", e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    // Records read at once under lock when iterating.
+    private static final int READ_BATCH_SIZE = 1000;
+
+    private final Class<? extends T> type;
+    private final IDataStoreSerializer serializer;
+    private final long segmentSize;
+    private String name;
+    private Path dir;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    // live records in insertion order
+    private final LinkedHashMap<String, Location> index =
+            new LinkedHashMap<>();
+    private Segment lastSegment;
+    private long nextSeq;
+    // write records to disk as they are appended (strict durability)
+    private boolean forceOnWrite;
+    // Held for the whole compaction, which only holds this data store
+    // lock briefly. Operations removing or moving segment files
+    // acquire it first.
+    private final Object compactLock = new Object();
+
+    LogDataStore(Path dir, String name, Class<? extends T> type,
+            IDataStoreSerializer serializer, long segmentSize) {
+        this.dir = requireNonNull(dir, "'dir' must not be null.");
+        this.name = requireNonNull(name, "'name' must not be null.");
+        this.type = requireNonNull(type, "'type' must not be null.");
+        this.serializer = requireNonNull(
+                serializer, "'serializer' must not be null.");
+        this.segmentSize = segmentSize;
+        replay();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+    Class<?> getType() {
+        return type;
+    }
+    Path getDir() {
+        return dir;
+    }
+
+    @Override
+    public synchronized void save(String id, T object) {
+        Location loc = append(OP_PUT, id, nextSeq++, toBytes(object));
+        Location old = index.remove(id);
+        index.put(id, loc);
+        live(loc);
+        if (old != null) {
+            dead(old);
+        }
+    }
+
+    @Override
+    public synchronized Optional<T> find(String id) {
+        return Optional.ofNullable(index.get(id)).map(this::read);
+    }
+
+    @Override
+    public synchronized Optional<T> findFirst() {
+        if (index.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(read(index.values().iterator().next()));
+    }
+
+    @Override
+    public synchronized boolean exists(String id) {
+        return index.containsKey(id);
+    }
+
+    @Override
+    public synchronized long count() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized boolean delete(String id) {
+        Location old = index.remove(id);
+        if (old == null) {
+            return false;
+        }
+        append(OP_DELETE, id, -1, null);
+        dead(old);
+        return true;
+    }
+
+    @Override
+    public synchronized Optional<T> deleteFirst() {
+        if (index.isEmpty()) {
+            return Optional.empty();
+        }
+        Iterator<Entry<String, Location>> it = index.entrySet().iterator();
+        Entry<String, Location> en = it.next();
+        T obj = read(en.getValue());
+        it.remove();
+        append(OP_DELETE, en.getKey(), -1, null);
+        dead(en.getValue());
+        return Optional.of(obj);
+    }
+
+    @Override
+    public synchronized List<T> deleteFirst(int maxCount) {
+        List<T> deleted = new ArrayList<>();
+        while (deleted.size() < maxCount && !index.isEmpty()) {
+            deleteFirst().ifPresent(deleted::add);
+        }
+        return deleted;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (compactLock) {
+            synchronized (this) {
+                index.clear();
+                while (!segments.isEmpty()) {
+                    removeSegment(segments.firstEntry().getValue());
+                }
+                lastSegment = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        //NOOP: Closed implicitly when engine is closed.
+    }
+
+    // Returns true if was all read. Records are read in batches under
+    // lock, but the predicate is invoked without it, so it can safely
+    // use other data stores or locks.
+    @Override
+    public boolean forEach(BiPredicate<String, T> predicate) {
+        List<String> ids;
+        synchronized (this) {
+            ids = new ArrayList<>(index.keySet());
+        }
+        for (int i = 0; i < ids.size(); i += READ_BATCH_SIZE) {
+            Map<String, T> batch = readAll(ids.subList(
+                    i, Math.min(ids.size(), i + READ_BATCH_SIZE)));
+            for (Entry<String, T> en : batch.entrySet()) {
+                if (!predicate.test(en.getKey(), en.getValue())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    // skips records deleted since ids were obtained
+    private synchronized Map<String, T> readAll(List<String> ids) {
+        Map<String, T> records = new LinkedHashMap<>();
+        for (String id : ids) {
+            Location loc = index.get(id);
+            if (loc != null) {
+                records.put(id, read(loc));
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    //--- Engine operations ----------------------------------------------------
+
+    void rename(String newName, Path newDir) {
+        synchronized (compactLock) {
+            synchronized (this) {
+                try {
+                    Files.move(dir, newDir);
+                } catch (IOException e) {
+                    throw new DataStoreException(
+                            "Could not rename data store '"
+                            + name + "' to '" + newName + "'.", e);
+                }
+                for (Segment segment : segments.values()) {
+                    segment.file = newDir.resolve(segment.file.getFileName());
+                }
+                name = newName;
+                dir = newDir;
+            }
+        }
+    }
+
+    // Copies the live records of segments whose fill rate (live bytes
+    // over written bytes) is under the given percentage to the last
+    // segment, then deletes them. Segments are read without holding this
+    // data store lock, which is only held to copy small batches of
+    // records, so a long-lived record no longer keeps a segment (and
+    // those after it) on disk.
+    void compact(int fillRate) {
+        synchronized (compactLock) {
+            List<Segment> compactables = pinCompactables(fillRate);
+            try {
+                while (!compactables.isEmpty()) {
+                    compactSegment(compactables.get(0));
+                    compactables.remove(0);
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    compactables.forEach(s -> s.pinned = false);
+                    removeConsumedSegments();
+                }
+                throw new DataStoreException("Could not compact data store '"
+                        + name + "'.", e);
+            }
+        }
+    }
+    // Segments to compact, oldest first, no longer removed when consumed
+    // until compacted.
+    private synchronized List<Segment> pinCompactables(int fillRate) {
+        List<Segment> compactables = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            if (segment != lastSegment && segment.fillRate() < fillRate) {
+                LOG.debug("Compacting segment {} of data store '{}' "
+                        + "(fill rate: {}%).", segment.file.getFileName(),
+                        name, segment.fillRate());
+                segment.pinned = true;
+                compactables.add(segment);
+            }
+        }
+        return compactables;
+    }
+    // Records of a segment other than the last one never change, so
+    // they are read without lock.
+    private void compactSegment(Segment segment) {
+        List<Entry<String, Location>> puts = new ArrayList<>();
+        Set<String> deletes = new LinkedHashSet<>();
+        readRecords(segment, (op, id, loc) -> {
+            if (op == OP_PUT) {
+                puts.add(Map.entry(id, loc));
+            } else {
+                deletes.add(id);
+            }
+        });
+        for (int i = 0; i < puts.size(); i += READ_BATCH_SIZE) {
+            copyLiveRecords(puts.subList(
+                    i, Math.min(puts.size(), i + READ_BATCH_SIZE)));
+        }
+        dropSegment(segment, deletes);
+    }
+    // Copies records still live to the last segment, keeping their
+    // sequence so they are still read in insertion order.
+    private synchronized void copyLiveRecords(
+            List<Entry<String, Location>> puts) {
+        for (Entry<String, Location> en : puts) {
+            Location loc = en.getValue();
+            if (loc.sameAs(index.get(en.getKey()))) {
+                Location copy = append(OP_PUT, en.getKey(), loc.seq,
+                        readBytes(loc.segmentId,
+                                loc.valueOffset, loc.valueLength));
+                // replacing keeps the index order
+                index.put(en.getKey(), copy);
+                live(copy);
+                dead(loc);
+            }
+        }
+    }
+    // Deletions still apply to records of older segments, if any, so
+    // those of records not live again are copied as well. Their size is
+    // counted as live so segments holding them are not compacted over
+    // and over.
+    private synchronized void dropSegment(
+            Segment segment, Set<String> deletes) {
+        if (segments.firstKey() < segment.id) {
+            for (String id : deletes) {
+                if (!index.containsKey(id)) {
+                    Location loc = append(OP_DELETE, id, -1, null);
+                    segments.get(loc.segmentId).keptBytes += loc.length;
+                }
+            }
+        }
+        // copies must be on disk before their source is deleted
+        flush();
+        removeSegment(segment);
+        removeConsumedSegments();
+        LOG.debug("Segment {} of data store '{}' compacted.",
+                segment.file.getFileName(), name);
+    }
+
+    synchronized void setForceOnWrite(boolean forceOnWrite) {
+        this.forceOnWrite = forceOnWrite;
+    }
+
+    synchronized void flush() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+    }
+
+    void closeSegments() {
+        synchronized (compactLock) {
+            synchronized (this) {
+                flush();
+                for (Segment segment : segments.values()) {
+                    segment.close();
+                }
+                segments.clear();
+                index.clear();
+                lastSegment = null;
+            }
+        }
+    }
+
+    //--- Private methods ------------------------------------------------------
+
+    private void replay() {
+        try {
+            Files.createDirectories(dir);
+            List<Path> files;
+            try (Stream<Path> s = Files.list(dir)) {
+                files = s.sorted().toList();
+            }
+            files = files.stream().filter(p -> p.getFileName().toString()
+                    .endsWith(SEGMENT_EXTENSION)).toList();
+            Map<String, Location> replayed = new HashMap<>();
+            for (Path file : files) {
+                Segment segment = openSegment(segmentId(file), 0);
+                readRecords(segment, (op, id, loc) -> {
+                    Location old;
+                    if (op == OP_PUT) {
+                        old = replayed.put(id, loc);
+                        live(loc);
+                        nextSeq = Math.max(nextSeq, loc.seq + 1);
+                    } else {
+                        old = replayed.remove(id);
+                    }
+                    if (old != null) {
+                        segments.get(old.segmentId).liveBytes -= old.length;
+                    }
+                });
+            }
+            // restore insertion order
+            replayed.entrySet().stream()
+                .sorted(Comparator.comparingLong(en -> en.getValue().seq))
+                .forEachOrdered(en -> index.put(en.getKey(), en.getValue()));
+            lastSegment = segments.isEmpty()
+                    ? null : segments.lastEntry().getValue();
+            removeConsumedSegments();
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not open data store '" + name + "'.", e);
+        }
+        LOG.debug("Data store '{}' opened with {} records in {} segments.",
+                name, index.size(), segments.size());
+    }
+
+    // Record: [int body length][byte op][long seq (put only)]
+    //         [int key length][key][value (put only)]
+    private Location append(byte op, String id, long seq, byte[] value) {
+        byte[] key = id.getBytes(UTF_8);
+        int bodyLength = 1 + (op == OP_PUT ? Long.BYTES : 0)
+                + Integer.BYTES + key.length
+                + (value == null ? 0 : value.length);
+        int length = Integer.BYTES + bodyLength;
+        Segment segment = writableSegment(length);
+        int offset = segment.writeOffset;
+        ByteBuffer buf = segment.buffer.duplicate();
+        buf.position(offset + Integer.BYTES);
+        buf.put(op);
+        if (op == OP_PUT) {
+            buf.putLong(seq);
+        }
+        buf.putInt(key.length);
+        buf.put(key);
+        int valueOffset = buf.position();
+        if (value != null) {
+            buf.put(value);
+        }
+        // length written last so a partially written record is ignored
+        segment.buffer.putInt(offset, bodyLength);
+        segment.writeOffset += length;
+        if (forceOnWrite) {
+            segment.buffer.force(offset, length);
+        }
+        return new Location(segment.id, offset, length, seq,
+                valueOffset, value == null ? 0 : value.length);
+    }
+
+    private Segment writableSegment(int length) {
+        if (lastSegment == null
+                || lastSegment.writeOffset + length
+                        > lastSegment.buffer.capacity()) {
+            long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+            lastSegment = openSegment(id, Math.max(segmentSize, length));
+        }
+        return lastSegment;
+    }
+
+    private Segment openSegment(long id, long size) {
+        Path file = dir.resolve(String.format("%012d", id) + SEGMENT_EXTENSION);
+        try {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long mapSize = Math.min(
+                    Math.max(channel.size(), size), Integer.MAX_VALUE);
+            Segment segment = new Segment(id, file, channel,
+                    channel.map(MapMode.READ_WRITE, 0, mapSize));
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not open data store segment: " + file, e);
+        }
+    }
+
+    private void readRecords(Segment segment, RecordConsumer consumer) {
+        ByteBuffer buf = segment.buffer.duplicate();
+        int offset = 0;
+        while (offset + Integer.BYTES <= buf.capacity()) {
+            int bodyLength = buf.getInt(offset);
+            if (bodyLength <= 0
+                    || offset + Integer.BYTES + bodyLength > buf.capacity()) {
+                break;
+            }
+            int length = Integer.BYTES + bodyLength;
+            buf.position(offset + Integer.BYTES);
+            byte op = buf.get();
+            long seq = op == OP_PUT ? buf.getLong() : -1;
+            byte[] key = new byte[buf.getInt()];
+            buf.get(key);
+            int valueOffset = buf.position();
+            consumer.accept(op, new String(key, UTF_8), new Location(
+                    segment.id, offset, length, seq,
+                    valueOffset, offset + length - valueOffset));
+            offset += length;
+        }
+        if (segment.writeOffset < offset) {
+            segment.writeOffset = offset;
+        }
+    }
+
+    private void live(Location loc) {
+        segments.get(loc.segmentId).liveBytes += loc.length;
+    }
+    private void dead(Location loc) {
+        segments.get(loc.segmentId).liveBytes -= loc.length;
+        removeConsumedSegments();
+    }
+    private void removeConsumedSegments() {
+        while (!segments.isEmpty()) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest == lastSegment || oldest.liveBytes > 0
+                    || oldest.pinned) {
+                return;
+            }
+            removeSegment(oldest);
+        }
+    }
+    private void removeSegment(Segment segment) {
+        segments.remove(segment.id);
+        if (segment == lastSegment) {
+            lastSegment = null;
+        }
+        segment.close();
+        deleteFile(segment.file);
+    }
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Could not delete data store segment: {}", file, e);
+        }
+    }
+
+    private T read(Location loc) {
+        return serializer.fromBytes(readBytes(
+                loc.segmentId, loc.valueOffset, loc.valueLength), type);
+    }
+    private byte[] readBytes(long segmentId, int offset, int length) {
+        ByteBuffer buf = segments.get(segmentId).buffer.duplicate();
+        buf.position(offset);
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return bytes;
+    }
+    private byte[] toBytes(Object object) {
+        return serializer.toBytes(object);
+    }
+
+    // The buffer must no longer be accessed once unmapped.
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.debug("Could not unmap data store segment.", e);
+        }
+    }
+
+    private static long segmentId(Path file) {
+        String fileName = file.getFileName().toString();
+        return Long.parseLong(fileName.substring(
+                0, fileName.length() - SEGMENT_EXTENSION.length()));
+    }
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(byte op, String id, Location loc);
+    }
+
+    private static class Segment {
+        private final long id;
+        private Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writeOffset;
+        private long liveBytes;
+        // deletions copied by compaction, still needed
+        private long keptBytes;
+        // being compacted, so not removed once consumed
+        private boolean pinned;
+        private Segment(long id, Path file,
+                FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+        // percentage of written bytes still live or needed
+        private int fillRate() {
+            return writeOffset == 0 ? 100
+                    : (int) ((liveBytes + keptBytes) * 100 / writeOffset);
+        }
+        private void close() {
+            unmap(buffer);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close data store segment: {}", file, e);
+            }
+        }
+    }
+
+    private static class Location {
+        private final long segmentId;
+        private final int offset;
+        private final int length;
+        private final long seq;
+        private final int valueOffset;
+        private final int valueLength;
+        private Location(long segmentId, int offset, int length, long seq,
+                int valueOffset, int valueLength) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.length = length;
+            this.seq = seq;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+        }
+        private boolean sameAs(Location other) {
+            return other != null
+                    && segmentId == other.segmentId && offset == other.offset;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.log;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.store.DataStoreDurability;
+import com.norconex.collector.core.store.DataStoreException;
+import com.norconex.collector.core.store.IDataStore;
+import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.IDataStoreSerializer;
+import com.norconex.collector.core.store.impl.serializer.BinaryDataStoreSerializer;
+import com.norconex.commons.lang.file.FileUtil;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Data store engine storing each data store as a series of append-only,
+ * memory-mapped segment files, with an in-memory index of live records.
+ * It is tuned for how crawlers use their data stores: references are
+ * appended to a queue and consumed in FIFO order, then appended to
+ * the "processed" store. It avoids the B-tree maintenance or network
+ * round-trips of other engines, at the cost of keeping every
+ * record id in memory.
+ * </p>
+ * <p>
+ * Segments no longer holding live records are deleted as they get
+ * consumed. A background task also periodically copies the live
+ * records of sparse segments to the last one and deletes them, so their
+ * disk space is reclaimed even when they hold long-lived records.
+ * </p>
+ *
+ * {@nx.xml.usage
+ * <dataStoreEngine class="LogDataStoreEngine">
+ *   <segmentSize>
+ *     (Size of each segment file. Default is 64 MB.)
+ *   </segmentSize>
+ *   <compactFillRate>
+ *     (Percentage of live data under which a segment gets compacted.
+ *     Default is 50.)
+ *   </compactFillRate>
+ *   <compactInterval>
+ *     (How often to check for segments to compact. Zero disables
+ *     background compaction. Default is 30 seconds.)
+ *   </compactInterval>
+ *   <serializer class="(IDataStoreSerializer implementation)"/>
+ * </dataStoreEngine>
+ * }
+ * <p>
+ * Stored objects are serialized with {@link BinaryDataStoreSerializer}
+ * unless a different serializer is configured.
+ * </p>
+ * <p>
+ * With a <code>STRICT</code> crawler data store durability, every
+ * record is written to disk as it gets appended. Otherwise, segments
+ * are written to disk on checkpoints, or whenever the operating system
+ * decides to.
+ * </p>
+ *
+ * @since 3.2.0
+ */
+public class LogDataStoreEngine
+        implements IDataStoreEngine, IXMLConfigurable {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(LogDataStoreEngine.class);
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    public static final int DEFAULT_COMPACT_FILL_RATE = 50;
+    public static final long DEFAULT_COMPACT_INTERVAL = 30_000;
+
+    private static final String TYPE_FILE = "store.type";
+
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+    private int compactFillRate = DEFAULT_COMPACT_FILL_RATE;
+    private long compactInterval = DEFAULT_COMPACT_INTERVAL;
+    private IDataStoreSerializer serializer = new BinaryDataStoreSerializer();
+
+    private Path engineDir;
+    private boolean strict;
+    private final Map<String, LogDataStore<?>> stores = new HashMap<>();
+    private ScheduledExecutorService compactor;
+
+    /**
+     * Gets the size of each segment file, in bytes.
+     * @return segment size
+     */
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+    /**
+     * Sets the size of each segment file, in bytes.
+     * @param segmentSize segment size
+     */
+    public void setSegmentSize(long segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+    /**
+     * Gets the percentage of live data in a segment under which the
+     * segment gets compacted.
+     * @return compaction fill rate
+     */
+    public int getCompactFillRate() {
+        return compactFillRate;
+    }
+    /**
+     * Sets the percentage of live data in a segment under which the
+     * segment gets compacted.
+     * @param compactFillRate compaction fill rate
+     */
+    public void setCompactFillRate(int compactFillRate) {
+        this.compactFillRate = compactFillRate;
+    }
+    /**
+     * Gets how often to check for segments to compact, in milliseconds.
+     * @return compaction interval
+     */
+    public long getCompactInterval() {
+        return compactInterval;
+    }
+    /**
+     * Sets how often to check for segments to compact, in milliseconds.
+     * Zero disables background compaction.
+     * @param compactInterval compaction interval
+     */
+    public void setCompactInterval(long compactInterval) {
+        this.compactInterval = compactInterval;
+    }
+    /**
+     * Gets the serializer used to convert stored objects to bytes.
+     * @return serializer
+     */
+    public IDataStoreSerializer getSerializer() {
+        return serializer;
+    }
+    /**
+     * Sets the serializer used to convert stored objects to bytes.
+     * @param serializer serializer
+     */
+    public void setSerializer(IDataStoreSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    @Override
+    public void init(Crawler crawler) {
+        engineDir = crawler.getWorkDir().resolve("logstore");
+        strict = crawler.getCrawlerConfig().getDataStoreDurability()
+                == DataStoreDurability.STRICT;
+        try {
+            Files.createDirectories(engineDir);
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Cannot create data store engine directory: "
+                            + engineDir, e);
+        }
+        if (compactInterval > 0) {
+            compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, crawler.getId() + "#compactor");
+                t.setDaemon(true);
+                return t;
+            });
+            compactor.scheduleWithFixedDelay(this::compact,
+                    compactInterval, compactInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public boolean clean() {
+        if (engineDir == null) {
+            // not initialized
+            close();
+            return false;
+        }
+        Set<String> names = getStoreNames();
+        boolean hadStores = !names.isEmpty();
+        names.forEach(this::dropStore);
+        Path dirToDelete = engineDir;
+        close();
+        try {
+            FileUtils.deleteDirectory(dirToDelete.toFile());
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not delete data store directory.", e);
+        }
+        return hadStores;
+    }
+
+    @Override
+    public synchronized void close() {
+        LOG.info("Closing data store engine...");
+        if (compactor != null) {
+            compactor.shutdownNow();
+            compactor = null;
+        }
+        stores.values().forEach(LogDataStore::closeSegments);
+        stores.clear();
+        engineDir = null;
+        LOG.info("Data store engine closed.");
+    }
+
+    @Override
+    public void checkpoint() {
+        for (LogDataStore<?> store : openStores()) {
+            store.flush();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized <T> IDataStore<T> openStore(
+            String name, Class<? extends T> type) {
+        // only one instance per store to not have two indices on the
+        // same files
+        LogDataStore<?> store = stores.get(name);
+        if (store == null) {
+            Path dir = storeDir(name);
+            try {
+                Files.createDirectories(dir);
+                Files.writeString(dir.resolve(TYPE_FILE), type.getName());
+            } catch (IOException e) {
+                throw new DataStoreException(
+                        "Could not create data store '" + name + "'.", e);
+            }
+            store = new LogDataStore<>(
+                    dir, name, type, serializer, segmentSize);
+            store.setForceOnWrite(strict);
+            stores.put(name, store);
+        }
+        return (IDataStore<T>) store;
+    }
+
+    @Override
+    public synchronized boolean dropStore(String name) {
+        LogDataStore<?> store = stores.remove(name);
+        if (store != null) {
+            store.closeSegments();
+        }
+        Path dir = storeDir(name);
+        if (!Files.exists(dir)) {
+            return false;
+        }
+        try {
+            FileUtils.deleteDirectory(dir.toFile());
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not drop data store '" + name + "'.", e);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean renameStore(
+            IDataStore<?> dataStore, String newName) {
+        LogDataStore<?> store = (LogDataStore<?>) dataStore;
+        boolean targetExists = dropStore(newName);
+        String oldName = store.getName();
+        store.rename(newName, storeDir(newName));
+        stores.remove(oldName);
+        stores.put(newName, store);
+        return targetExists;
+    }
+
+    @Override
+    public Set<String> getStoreNames() {
+        Set<String> names = new HashSet<>();
+        try (Stream<Path> dirs = Files.list(engineDir)) {
+            dirs.filter(Files::isDirectory).forEach(dir -> names.add(
+                    FileUtil.fromSafeFileName(dir.getFileName().toString())));
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not list data stores in: " + engineDir, e);
+        }
+        return names;
+    }
+
+    @Override
+    public Optional<Class<?>> getStoreType(String name) {
+        Path typeFile = storeDir(name).resolve(TYPE_FILE);
+        if (!Files.exists(typeFile)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(ClassUtils.getClass(
+                    Files.readString(typeFile, UTF_8).trim()));
+        } catch (IOException | ClassNotFoundException e) {
+            throw new DataStoreException(
+                    "Could not get type of data store '" + name + "'.", e);
+        }
+    }
+
+    private Path storeDir(String name) {
+        return engineDir.resolve(FileUtil.toSafeFileName(name));
+    }
+
+    private void compact() {
+        try {
+            for (LogDataStore<?> store : openStores()) {
+                store.compact(compactFillRate);
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Could not compact data store.", e);
+        }
+    }
+    private synchronized LogDataStore<?>[] openStores() {
+        return stores.values().toArray(new LogDataStore<?>[0]);
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setSegmentSize(xml.getDataSize("segmentSize", segmentSize));
+        setCompactFillRate(xml.getInteger("compactFillRate", compactFillRate));
+        setCompactInterval(
+                xml.getDurationMillis("compactInterval", compactInterval));
+        setSerializer(xml.getObjectImpl(
+                IDataStoreSerializer.class, "serializer", serializer));
+    }
+
+    @Override
+    public void saveToXML(XML xml) {
+        xml.addElement("segmentSize", segmentSize);
+        xml.addElement("compactFillRate", compactFillRate);
+        xml.addElement("compactInterval", compactInterval);
+        xml.addElement("serializer", serializer);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
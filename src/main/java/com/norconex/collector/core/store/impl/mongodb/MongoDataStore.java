@@ -14,63 +14,117 @@
  */
 package com.norconex.collector.core.store.impl.mongodb;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
-import java.io.IOException;
-import java.time.Instant;
-import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiPredicate;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.bson.types.Binary;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.TypeAdapter;
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
-import com.google.gson.stream.JsonWriter;
 import com.mongodb.MongoNamespace;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndDeleteOptions;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.RenameCollectionOptions;
-import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.norconex.collector.core.store.DataStorePartitions;
 import com.norconex.collector.core.store.IDataStore;
+import com.norconex.collector.core.store.IDataStoreSerializer;
 
 public class MongoDataStore<T> implements IDataStore<T> {
 
-    private static final String SORT_TIME_FIELD = "timestamp";
+    // Insertion sequence, giving a stable FIFO order (collections written
+    // by prior versions were sorted on a "timestamp" field instead).
+    private static final String SEQ_FIELD = "seq";
+    // only fields needed to return records
+    private static final Bson RECORD_PROJECTION = Projections.fields(
+            Projections.include("id", "object"), Projections.excludeId());
 
     private String name;
-    private final MongoCollection<Document> collection;
-    private final ReplaceOptions replaceOptions =
-            new ReplaceOptions().upsert(true);
+    private final MongoDatabase db;
+    private MongoCollection<Document> collection;
+    private final UpdateOptions updateOptions =
+            new UpdateOptions().upsert(true);
     private final FindOneAndDeleteOptions findOneAndDeleteOptions =
-            new FindOneAndDeleteOptions().sort(fifoSort());
+            new FindOneAndDeleteOptions()
+                    .sort(fifoSort())
+                    .projection(RECORD_PROJECTION);
+    private final BulkWriteOptions bulkWriteOptions =
+            new BulkWriteOptions().ordered(false);
+    private final CountOptions existsOptions = new CountOptions().limit(1);
     private final Class<? extends T> type;
-    // Register a ZonedDateTime adapter similar to JdbcDataStore
-    private static final Gson GSON = new GsonBuilder()
-            .registerTypeAdapter(ZonedDateTime.class, new ZonedDateTimeTypeAdapter())
-            .create();
+    private final IDataStoreSerializer serializer;
+    private final int batchSize;
+    private final boolean preserveOrderOnUpsert;
+    private final AtomicLong seq = new AtomicLong();
+    private final int writeBufferSize;
+    private final Object bufferLock = new Object();
+    // Serialized objects saved but not yet written, in save order.
+    // Guarded by bufferLock.
+    private Map<String, byte[]> writeBuffer = new LinkedHashMap<>();
+    // Objects taken from the write buffer and being written, still
+    // found in the buffer until written. Guarded by bufferLock.
+    private Map<String, byte[]> writing = Collections.emptyMap();
+    // Held while writing buffered objects, so they are written in the
+    // order they were buffered. Never acquired while holding bufferLock.
+    private final Object writeLock = new Object();
 
-    MongoDataStore(
-            MongoDatabase db, String name, Class<? extends T> type) {
+    MongoDataStore(MongoDatabase db, String name, Class<? extends T> type,
+            IDataStoreSerializer serializer, int batchSize,
+            boolean preserveOrderOnUpsert, int writeBufferSize) {
         super();
         this.type = type;
-        requireNonNull(db, "'db' must not be null.");
+        this.batchSize = batchSize;
+        this.preserveOrderOnUpsert = preserveOrderOnUpsert;
+        this.writeBufferSize = writeBufferSize;
+        this.serializer = requireNonNull(
+                serializer, "'serializer' must not be null.");
+        this.db = requireNonNull(db, "'db' must not be null.");
         this.name = requireNonNull(name, "'name' must not be null.");
         this.collection = db.getCollection(name);
+        createIndexes();
+        initSequence();
+    }
+    private void createIndexes() {
         collection.createIndex(Indexes.ascending("id"),
                 new IndexOptions().sparse(true).unique(true));
-        // When we need it as a FIFO queue, just grab first oldest time stamp.
-        collection.createIndex(Indexes.ascending(SORT_TIME_FIELD),
-                new IndexOptions().sparse(true));
+        // When we need it as a FIFO queue, just grab the lowest sequence.
+        // Not sparse, so it can be used for sorting the whole collection.
+        collection.createIndex(Indexes.ascending(SEQ_FIELD));
+    }
+    // Resumes from the highest sequence stored, read from the index.
+    private void initSequence() {
+        Document last = collection.find()
+                .projection(Projections.fields(
+                        Projections.include(SEQ_FIELD),
+                        Projections.excludeId()))
+                .sort(Sorts.descending(SEQ_FIELD))
+                .first();
+        Object lastSeq = last == null ? null : last.get(SEQ_FIELD);
+        seq.set(lastSeq instanceof Number
+                ? ((Number) lastSeq).longValue() : 0);
     }
 
     @Override
@@ -80,59 +134,293 @@ public class MongoDataStore<T> implements IDataStore<T> {
 
     @Override
     public void save(String id, T object) {
-        collection.replaceOne(
-                idFilter(id),
-                toDocument(id, object),
-                replaceOptions);
+        byte[] bytes = serializer.toBytes(object);
+        if (writeBufferSize <= 0) {
+            collection.updateOne(idFilter(id), toUpdate(bytes), updateOptions);
+            return;
+        }
+        boolean full;
+        synchronized (bufferLock) {
+            full = buffer(id, bytes);
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public void saveAll(Map<String, T> objects) {
+        if (objects.isEmpty()) {
+            return;
+        }
+        if (writeBufferSize <= 0) {
+            Map<String, byte[]> batch = new LinkedHashMap<>();
+            objects.forEach(
+                    (id, object) -> batch.put(id, serializer.toBytes(object)));
+            write(batch);
+            return;
+        }
+        Map<String, byte[]> batch = new LinkedHashMap<>();
+        objects.forEach(
+                (id, object) -> batch.put(id, serializer.toBytes(object)));
+        boolean full = false;
+        synchronized (bufferLock) {
+            for (Entry<String, byte[]> en : batch.entrySet()) {
+                full |= buffer(en.getKey(), en.getValue());
+            }
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    // Must be invoked while holding the buffer lock. Returns true if
+    // the buffer is full and must be flushed.
+    private boolean buffer(String id, byte[] bytes) {
+        if (!preserveOrderOnUpsert) {
+            // moves it to the back
+            writeBuffer.remove(id);
+        }
+        writeBuffer.put(id, bytes);
+        return writeBuffer.size() >= writeBufferSize;
+    }
+
+    private void write(Map<String, byte[]> batch) {
+        List<WriteModel<Document>> models = new ArrayList<>(batch.size());
+        batch.forEach((id, bytes) -> models.add(new UpdateOneModel<>(
+                idFilter(id), toUpdate(bytes), updateOptions)));
+        collection.bulkWrite(models, bulkWriteOptions);
+    }
+
+    // Writes buffered objects, if any, and waits for objects being written
+    // by other threads. Invoked before operations that cannot be answered
+    // from the write buffer. The buffer is swapped for an empty one, so
+    // objects keep being buffered while the previous ones are written.
+    void flush() {
+        if (writeBufferSize <= 0) {
+            return;
+        }
+        synchronized (writeLock) {
+            Map<String, byte[]> batch;
+            synchronized (bufferLock) {
+                if (writeBuffer.isEmpty()) {
+                    return;
+                }
+                batch = writeBuffer;
+                writing = batch;
+                writeBuffer = new LinkedHashMap<>();
+            }
+            boolean written = false;
+            try {
+                write(batch);
+                written = true;
+            } finally {
+                synchronized (bufferLock) {
+                    writing = Collections.emptyMap();
+                    if (!written) {
+                        // kept for the next flush, before newer objects
+                        batch.putAll(writeBuffer);
+                        writeBuffer = batch;
+                    }
+                }
+            }
+        }
+    }
+
+    // Forgets buffered objects, for when the collection is dropped.
+    void discardWrites() {
+        synchronized (writeLock) {
+            synchronized (bufferLock) {
+                writeBuffer.clear();
+            }
+        }
+    }
+
+    private Optional<byte[]> buffered(String id) {
+        if (writeBufferSize <= 0) {
+            return Optional.empty();
+        }
+        synchronized (bufferLock) {
+            byte[] bytes = writeBuffer.get(id);
+            return Optional.ofNullable(bytes != null ? bytes : writing.get(id));
+        }
     }
 
     @Override
     public Optional<T> find(String id) {
-        return unwrap(collection.find(idFilter(id)).first());
+        Optional<byte[]> bytes = buffered(id);
+        if (bytes.isPresent()) {
+            return Optional.of(serializer.fromBytes(bytes.get(), type));
+        }
+        return unwrap(collection.find(idFilter(id))
+                .projection(RECORD_PROJECTION)
+                .first());
+    }
+
+    @Override
+    public Map<String, T> findAll(Collection<String> ids) {
+        flush();
+        Map<String, T> found = new LinkedHashMap<>();
+        if (!ids.isEmpty()) {
+            for (Document doc : collection.find(Filters.in("id", ids))) {
+                found.put(doc.getString("id"), fromDocument(doc, type));
+            }
+        }
+        return found;
     }
 
     @Override
     public Optional<T> findFirst() {
-        return unwrap(collection.find().sort(fifoSort()).first());
+        flush();
+        return unwrap(collection.find()
+                .projection(RECORD_PROJECTION)
+                .sort(fifoSort())
+                .first());
     }
 
     @Override
     public boolean exists(String id) {
-        return collection.find(idFilter(id)).iterator().hasNext();
+        return buffered(id).isPresent() || collection.countDocuments(
+                idFilter(id), existsOptions) > 0;
     }
 
     @Override
     public long count() {
+        flush();
         return collection.countDocuments();
     }
 
     @Override
     public boolean delete(String id) {
-        return collection.deleteOne(idFilter(id)).getDeletedCount() > 0;
+        boolean wasBuffered = false;
+        if (writeBufferSize > 0) {
+            boolean beingWritten;
+            synchronized (bufferLock) {
+                wasBuffered = writeBuffer.remove(id) != null;
+                beingWritten = writing.containsKey(id);
+            }
+            // must be written before it can be deleted
+            if (beingWritten) {
+                flush();
+            }
+        }
+        // a buffered object may also replace an already written one
+        return collection.deleteOne(idFilter(id)).getDeletedCount() > 0
+                || wasBuffered;
     }
 
     @Override
     public Optional<T> deleteFirst() {
+        flush();
         return unwrap(collection.findOneAndDelete(
                 new Document(), findOneAndDeleteOptions));
     }
 
+    @Override
+    public long deleteAll(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        flush();
+        return collection.deleteMany(Filters.in("id", ids)).getDeletedCount();
+    }
+
+    // Unlike the single-record version, reading and deleting are two
+    // distinct operations. Concurrent pollers within the same collection
+    // must be synchronized by the caller.
+    @Override
+    public List<T> deleteFirst(int maxCount) {
+        List<T> deleted = new ArrayList<>();
+        if (maxCount <= 0) {
+            return deleted;
+        }
+        flush();
+        List<Object> docIds = new ArrayList<>();
+        for (Document doc : collection.find()
+                .projection(Projections.include("object"))
+                .sort(fifoSort())
+                .limit(maxCount)) {
+            docIds.add(doc.get("_id"));
+            deleted.add(fromDocument(doc, type));
+        }
+        if (!docIds.isEmpty()) {
+            collection.deleteMany(Filters.in("_id", docIds));
+        }
+        return deleted;
+    }
+
     @Override
     public void clear() {
+        discardWrites();
         collection.deleteMany(new Document());
     }
 
     @Override
     public void close() {
-        //NOOP: Closed implicitly when engine is closed.
+        // Otherwise closed implicitly when engine is closed.
+        flush();
     }
 
     // returns true if was all read
     @Override
     public boolean forEach(BiPredicate<String, T> predicate) {
-        for (Document doc : collection.find()) {
-            if (!predicate.test(doc.getString("id"), unwrap(doc).get())) {
-                return false;
+        flush();
+        return forEachInRange(null, null, predicate);
+    }
+
+    @Override
+    public boolean forEachParallel(
+            int parallelism, BiPredicate<String, T> predicate) {
+        flush();
+        return DataStorePartitions.forEach(splitDocIds(parallelism),
+                parallelism, this::forEachInRange, predicate);
+    }
+    // "_id" values dividing the collection in ranges of about the same
+    // size, obtained from the "_id" index only.
+    private List<Object> splitDocIds(int parallelism) {
+        List<Object> splitDocIds = new ArrayList<>();
+        long count = collection.estimatedDocumentCount();
+        if (parallelism <= 1 || count <= parallelism) {
+            return splitDocIds;
+        }
+        for (int i = 1; i < parallelism; i++) {
+            Document doc = collection.find()
+                    .projection(Projections.include("_id"))
+                    .sort(Sorts.ascending("_id"))
+                    .skip((int) (count * i / parallelism))
+                    .limit(1)
+                    .first();
+            if (doc == null) {
+                break;
+            }
+            splitDocIds.add(doc.get("_id"));
+        }
+        return splitDocIds;
+    }
+    private boolean forEachInRange(
+            Object fromDocId, Object toDocId,
+            BiPredicate<String, T> predicate) {
+        List<Bson> filters = new ArrayList<>();
+        if (fromDocId != null) {
+            filters.add(Filters.gte("_id", fromDocId));
+        }
+        if (toDocId != null) {
+            filters.add(Filters.lt("_id", toDocId));
+        }
+        Bson filter = filters.isEmpty() ? new Document() : Filters.and(filters);
+        // Closing the cursor releases it on the server when stopping early.
+        // The whole collection is read in FIFO order (using the sequence
+        // index), like when dequeuing.
+        try (MongoCursor<Document> cursor = collection.find(filter)
+                .projection(RECORD_PROJECTION)
+                .sort(filters.isEmpty() ? fifoSort() : null)
+                .batchSize(batchSize)
+                .iterator()) {
+            while (cursor.hasNext()) {
+                Document doc = cursor.next();
+                if (!predicate.test(doc.getString("id"), unwrap(doc).get())) {
+                    return false;
+                }
             }
         }
         return true;
@@ -140,25 +428,41 @@ public class MongoDataStore<T> implements IDataStore<T> {
 
     @Override
     public boolean isEmpty() {
-        return !collection.find().limit(1).iterator().hasNext();
+        flush();
+        try (MongoCursor<Document> cursor = collection.find()
+                .projection(Projections.include("_id"))
+                .limit(1)
+                .iterator()) {
+            return !cursor.hasNext();
+        }
     }
 
     Class<?> getType() {
         return type;
     }
+    // Dropping the collection is much faster than deleting all documents.
+    void truncate() {
+        discardWrites();
+        collection.drop();
+        createIndexes();
+        seq.set(0);
+    }
     String rename(String dbName, String newColName) {
+        flush();
         String oldName = name;
         collection.renameCollection(new MongoNamespace(dbName, newColName),
                 new RenameCollectionOptions().dropTarget(true));
         name = newColName;
+        // the collection object is bound to its former name
+        collection = db.getCollection(newColName);
         return oldName;
     }
     static Bson idFilter(String idValue) {
         return Filters.eq("id", idValue);
     }
 
-    private Bson fifoSort() {
-        return Sorts.ascending(SORT_TIME_FIELD);
+    private static Bson fifoSort() {
+        return Sorts.ascending(SEQ_FIELD);
     }
     private Optional<T> unwrap(Document doc) {
         if (doc == null) {
@@ -167,35 +471,23 @@ public class MongoDataStore<T> implements IDataStore<T> {
         return Optional.of(fromDocument(doc, type));
     }
 
-    private static Document toDocument(String id, Object object) {
-        return new Document()
-                .append("id", id)
-                .append(SORT_TIME_FIELD, Instant.now().toEpochMilli())
-                .append("object", GSON.toJson(object));
+    // The "id" of new documents is obtained from the upsert filter.
+    private Bson toUpdate(byte[] bytes) {
+        Bson objectUpdate = Updates.set("object", new Binary(bytes));
+        Bson seqUpdate = preserveOrderOnUpsert
+                ? Updates.setOnInsert(SEQ_FIELD, seq.incrementAndGet())
+                : Updates.set(SEQ_FIELD, seq.incrementAndGet());
+        return Updates.combine(objectUpdate, seqUpdate);
     }
-    private static <T> T fromDocument(Document doc, Class<T> type) {
-        return GSON.fromJson(doc.getString("object"), type);
-    }
-
-    // TypeAdapter for ZonedDateTime serializing to/from ISO-8601 string
-    private static class ZonedDateTimeTypeAdapter extends TypeAdapter<ZonedDateTime> {
-        @Override
-        public void write(JsonWriter out, ZonedDateTime value) throws IOException {
-            if (value == null) {
-                out.nullValue();
-            } else {
-                out.value(value.toString());
-            }
-        }
-
-        @Override
-        public ZonedDateTime read(JsonReader in) throws IOException {
-            if (in.peek() == JsonToken.NULL) {
-                in.nextNull();
-                return null;
-            }
-            String s = in.nextString();
-            return s == null ? null : ZonedDateTime.parse(s);
+    private <R> R fromDocument(Document doc, Class<R> type) {
+        Object object = doc.get("object");
+        if (object == null) {
+            return null;
         }
+        // Collections written by prior versions hold JSON strings.
+        byte[] bytes = object instanceof Binary
+                ? ((Binary) object).getData()
+                : object.toString().getBytes(UTF_8);
+        return serializer.fromBytes(bytes, type);
     }
 }
\ No newline at end of file
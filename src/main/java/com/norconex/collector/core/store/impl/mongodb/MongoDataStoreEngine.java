@@ -19,6 +19,9 @@ import static com.norconex.collector.core.store.impl.mongodb.MongoDataStore.idFi
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections4.IteratorUtils;
@@ -32,14 +35,19 @@ import org.slf4j.LoggerFactory;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.store.DataStoreDurability;
 import com.norconex.collector.core.store.DataStoreException;
 import com.norconex.collector.core.store.IDataStore;
 import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.IDataStoreSerializer;
+import com.norconex.collector.core.store.impl.serializer.BinaryDataStoreSerializer;
 import com.norconex.commons.lang.file.FileUtil;
 import com.norconex.commons.lang.text.StringUtil;
 import com.norconex.commons.lang.xml.IXMLConfigurable;
@@ -49,10 +57,61 @@ import com.norconex.commons.lang.xml.XML;
  * <p>
  * Data store engine using MongoDB for storing crawl data.
  * </p>
+ * <p>
+ * Stored objects are serialized with a {@link IDataStoreSerializer},
+ * which defaults to {@link BinaryDataStoreSerializer}. Objects stored
+ * as JSON text by prior versions remain readable.
+ * </p>
+ * <p>
+ * A <code>STRICT</code> crawler data store durability waits for writes
+ * to be written to the server journal. Other durability levels rely on
+ * the server periodically writing its journal to disk.
+ * A configured write concern takes precedence over durability.
+ * </p>
+ * <p>
+ * Writes can be buffered and sent in unordered bulk operations, once
+ * the buffer is full or after a delay. Objects still in the buffer
+ * are found by id, but operations such as counting or polling first
+ * write the buffer. Buffered writes not yet sent are lost if the
+ * crawler terminates abruptly.
+ * </p>
+ * <p>
+ * Documents are dequeued in the order they were saved, using an
+ * insertion sequence. By default, saving an existing document moves it
+ * to the back of the queue. Set <code>preserveOrderOnUpsert</code>
+ * to <code>true</code> to keep its original position instead.
+ * </p>
  *
  * {@nx.xml.usage
  * <dataStoreEngine class="MongoDataStoreEngine" />
  *   <connectionString>(MongoDB connection string.)</connectionString>
+ *   <batchSize>
+ *     (Number of documents read at once when iterating over a data store.
+ *     Default lets the server decide.)
+ *   </batchSize>
+ *   <preserveOrderOnUpsert>
+ *     [false|true]
+ *     (Whether saving an existing document keeps its queue position.)
+ *   </preserveOrderOnUpsert>
+ *   <writeConcern>
+ *     (Write concern name, such as "W1", "MAJORITY", "JOURNALED",
+ *     or "UNACKNOWLEDGED". Default is based on crawler data store
+ *     durability.)
+ *   </writeConcern>
+ *   <readPreference>
+ *     (Read preference name, such as "primary" or "primaryPreferred".
+ *     Default is "primary". Reading from secondaries may return
+ *     stale queue entries.)
+ *   </readPreference>
+ *   <writeBufferSize>
+ *     (Maximum number of documents buffered before being written
+ *     in bulk. Default is 0, writing each document as it is saved.)
+ *   </writeBufferSize>
+ *   <writeBufferFlushInterval>
+ *     (How often buffered documents are written when the buffer
+ *     is not full. Default is 1 second.)
+ *   </writeBufferFlushInterval>
+ *   <serializer class="(IDataStoreSerializer implementation)"/>
  * </dataStoreEngine>
  * }
  *
@@ -64,6 +123,8 @@ public class MongoDataStoreEngine
     private static final Logger LOG =
             LoggerFactory.getLogger(MongoDataStoreEngine.class);
 
+    public static final long DEFAULT_WRITE_BUFFER_FLUSH_INTERVAL = 1000;
+
     private static final String STORE_TYPES_KEY =
             MongoDataStoreEngine.class.getSimpleName() + "--storetypes";
 
@@ -71,9 +132,20 @@ public class MongoDataStoreEngine
     private MongoClient client;
     private MongoDatabase database;
     private MongoCollection<Document> storeTypes;
+    private final Set<MongoDataStore<?>> stores =
+            ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService flusher;
 
     // Configurable:
     private String connectionString;
+    private int batchSize;
+    private boolean preserveOrderOnUpsert;
+    private String writeConcern;
+    private String readPreference;
+    private int writeBufferSize;
+    private long writeBufferFlushInterval =
+            DEFAULT_WRITE_BUFFER_FLUSH_INTERVAL;
+    private IDataStoreSerializer serializer = new BinaryDataStoreSerializer();
 
     public String getConnectionString() {
         return connectionString;
@@ -81,6 +153,134 @@ public class MongoDataStoreEngine
     public void setConnectionString(String connectionString) {
         this.connectionString = connectionString;
     }
+    /**
+     * Gets the number of documents read at once when iterating over a
+     * data store. Zero lets the server decide.
+     * @return batch size
+     * @since 3.2.0
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+    /**
+     * Sets the number of documents read at once when iterating over a
+     * data store. Zero lets the server decide.
+     * @param batchSize batch size
+     * @since 3.2.0
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    /**
+     * Gets whether saving an existing document keeps its position in
+     * the queue, instead of moving it to the back.
+     * @return <code>true</code> if preserving order on upsert
+     * @since 3.2.0
+     */
+    public boolean isPreserveOrderOnUpsert() {
+        return preserveOrderOnUpsert;
+    }
+    /**
+     * Sets whether saving an existing document keeps its position in
+     * the queue, instead of moving it to the back.
+     * @param preserveOrderOnUpsert <code>true</code> to preserve order
+     *     on upsert
+     * @since 3.2.0
+     */
+    public void setPreserveOrderOnUpsert(boolean preserveOrderOnUpsert) {
+        this.preserveOrderOnUpsert = preserveOrderOnUpsert;
+    }
+    /**
+     * Gets the name of the write concern used for writing documents
+     * (e.g., "MAJORITY"). When <code>null</code>, it is based on the
+     * crawler data store durability.
+     * @return write concern name
+     * @since 3.2.0
+     */
+    public String getWriteConcern() {
+        return writeConcern;
+    }
+    /**
+     * Sets the name of the write concern used for writing documents
+     * (e.g., "MAJORITY"). When <code>null</code>, it is based on the
+     * crawler data store durability.
+     * @param writeConcern write concern name
+     * @since 3.2.0
+     */
+    public void setWriteConcern(String writeConcern) {
+        this.writeConcern = writeConcern;
+    }
+    /**
+     * Gets the name of the read preference used for reading documents
+     * (e.g., "primaryPreferred"). Default is "primary".
+     * @return read preference name
+     * @since 3.2.0
+     */
+    public String getReadPreference() {
+        return readPreference;
+    }
+    /**
+     * Sets the name of the read preference used for reading documents
+     * (e.g., "primaryPreferred"). Default is "primary".
+     * @param readPreference read preference name
+     * @since 3.2.0
+     */
+    public void setReadPreference(String readPreference) {
+        this.readPreference = readPreference;
+    }
+    /**
+     * Gets the maximum number of documents buffered before being written
+     * in bulk. Zero disables buffering.
+     * @return write buffer size
+     * @since 3.2.0
+     */
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+    /**
+     * Sets the maximum number of documents buffered before being written
+     * in bulk. Zero disables buffering.
+     * @param writeBufferSize write buffer size
+     * @since 3.2.0
+     */
+    public void setWriteBufferSize(int writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+    /**
+     * Gets how often buffered documents are written when the buffer
+     * is not full, in milliseconds.
+     * @return write buffer flush interval
+     * @since 3.2.0
+     */
+    public long getWriteBufferFlushInterval() {
+        return writeBufferFlushInterval;
+    }
+    /**
+     * Sets how often buffered documents are written when the buffer
+     * is not full, in milliseconds. Zero only writes them when the
+     * buffer is full or a store operation requires it.
+     * @param writeBufferFlushInterval write buffer flush interval
+     * @since 3.2.0
+     */
+    public void setWriteBufferFlushInterval(long writeBufferFlushInterval) {
+        this.writeBufferFlushInterval = writeBufferFlushInterval;
+    }
+    /**
+     * Gets the serializer used to convert stored objects to bytes.
+     * @return serializer
+     * @since 3.2.0
+     */
+    public IDataStoreSerializer getSerializer() {
+        return serializer;
+    }
+    /**
+     * Sets the serializer used to convert stored objects to bytes.
+     * @param serializer serializer
+     * @since 3.2.0
+     */
+    public void setSerializer(IDataStoreSerializer serializer) {
+        this.serializer = serializer;
+    }
 
     @Override
     public void init(Crawler crawler) {
@@ -103,8 +303,33 @@ public class MongoDataStoreEngine
                 .build());
 
         database = client.getDatabase(dbName);
+        if (StringUtils.isNotBlank(writeConcern)) {
+            WriteConcern wc = WriteConcern.valueOf(writeConcern.trim());
+            if (wc == null) {
+                throw new DataStoreException(
+                        "Unsupported write concern: " + writeConcern);
+            }
+            database = database.withWriteConcern(wc);
+        } else if (crawler.getCrawlerConfig().getDataStoreDurability()
+                == DataStoreDurability.STRICT) {
+            database = database.withWriteConcern(WriteConcern.JOURNALED);
+        }
+        if (StringUtils.isNotBlank(readPreference)) {
+            database = database.withReadPreference(
+                    ReadPreference.valueOf(readPreference.trim()));
+        }
 
         storeTypes = database.getCollection(STORE_TYPES_KEY);
+        if (writeBufferSize > 0 && writeBufferFlushInterval > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, crawler.getId() + "#mongoflusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::checkpoint,
+                    writeBufferFlushInterval, writeBufferFlushInterval,
+                    TimeUnit.MILLISECONDS);
+        }
         LOG.info("MongoDB data store engine initialized.");
     }
 
@@ -117,10 +342,16 @@ public class MongoDataStoreEngine
 
     @Override
     public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
         if (client != null) {
             LOG.info("Closing MongoDB data store engine...");
+            checkpoint();
             client.close();
         }
+        stores.clear();
         client = null;
         database = null;
         LOG.info("MongoDB data store engine closed.");
@@ -130,11 +361,33 @@ public class MongoDataStoreEngine
     public <T> IDataStore<T> openStore(String name, Class<? extends T> type) {
         storeTypes.replaceOne(idFilter(name), new Document().append(
                 "id", name).append("type", type.getName()));
-        return new MongoDataStore<>(database, name, type);
+        MongoDataStore<T> store = new MongoDataStore<>(database, name, type,
+                serializer, batchSize, preserveOrderOnUpsert, writeBufferSize);
+        stores.add(store);
+        return store;
+    }
+
+    @Override
+    public void checkpoint() {
+        for (MongoDataStore<?> store : stores) {
+            try {
+                store.flush();
+            } catch (RuntimeException e) {
+                LOG.error("Could not write buffered documents of "
+                        + "data store \"{}\".", store.getName(), e);
+            }
+        }
     }
 
     @Override
     public boolean dropStore(String name) {
+        stores.removeIf(store -> {
+            if (name.equals(store.getName())) {
+                store.discardWrites();
+                return true;
+            }
+            return false;
+        });
         if (colExists(name)) {
             database.getCollection(name).drop();
             storeTypes.deleteOne(idFilter(name));
@@ -154,6 +407,11 @@ public class MongoDataStoreEngine
         return targetExists;
     }
 
+    @Override
+    public void truncateStore(IDataStore<?> dataStore) {
+        ((MongoDataStore<?>) dataStore).truncate();
+    }
+
     @Override
     public Set<String> getStoreNames() {
         return new HashSet<>(IteratorUtils.toList(
@@ -182,11 +440,31 @@ public class MongoDataStoreEngine
     public void loadFromXML(XML xml) {
         setConnectionString(
                 xml.getString("connectionString", getConnectionString()));
+        setBatchSize(xml.getInteger("batchSize", getBatchSize()));
+        setPreserveOrderOnUpsert(xml.getBoolean(
+                "preserveOrderOnUpsert", isPreserveOrderOnUpsert()));
+        setWriteConcern(xml.getString("writeConcern", getWriteConcern()));
+        setReadPreference(
+                xml.getString("readPreference", getReadPreference()));
+        setWriteBufferSize(
+                xml.getInteger("writeBufferSize", getWriteBufferSize()));
+        setWriteBufferFlushInterval(xml.getDurationMillis(
+                "writeBufferFlushInterval", getWriteBufferFlushInterval()));
+        setSerializer(xml.getObjectImpl(
+                IDataStoreSerializer.class, "serializer", getSerializer()));
     }
 
     @Override
     public void saveToXML(XML xml) {
         xml.addElement("connectionString", getConnectionString());
+        xml.addElement("batchSize", getBatchSize());
+        xml.addElement("preserveOrderOnUpsert", isPreserveOrderOnUpsert());
+        xml.addElement("writeConcern", getWriteConcern());
+        xml.addElement("readPreference", getReadPreference());
+        xml.addElement("writeBufferSize", getWriteBufferSize());
+        xml.addElement(
+                "writeBufferFlushInterval", getWriteBufferFlushInterval());
+        xml.addElement("serializer", getSerializer());
     }
 
     private boolean colExists(String name) {
@@ -0,0 +1,65 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.mvstore;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.BasicDataType;
+
+/**
+ * MVStore key type for binary keys, compared as unsigned bytes.
+ * @since 3.2.0
+ */
+class ByteArrayKeyType extends BasicDataType<byte[]> {
+
+    static final ByteArrayKeyType INSTANCE = new ByteArrayKeyType();
+
+    // array object header and length
+    private static final int ARRAY_OVERHEAD = 24;
+
+    private ByteArrayKeyType() {
+        super();
+    }
+
+    @Override
+    public int getMemory(byte[] obj) {
+        return ARRAY_OVERHEAD + obj.length;
+    }
+
+    @Override
+    public void write(WriteBuffer buff, byte[] obj) {
+        buff.putVarInt(obj.length).put(obj);
+    }
+
+    @Override
+    public byte[] read(ByteBuffer buff) {
+        byte[] bytes = new byte[DataUtils.readVarInt(buff)];
+        buff.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public int compare(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+
+    @Override
+    public byte[][] createStorage(int size) {
+        return new byte[size][];
+    }
+}
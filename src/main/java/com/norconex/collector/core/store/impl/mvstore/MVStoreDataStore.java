@@ -16,25 +16,48 @@ package com.norconex.collector.core.store.impl.mvstore;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.function.BiPredicate;
 
+import org.h2.mvstore.Cursor;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
+import org.h2.mvstore.type.DataType;
 
+import com.norconex.collector.core.store.DataStorePartitions;
 import com.norconex.collector.core.store.IDataStore;
 
 public class MVStoreDataStore<T> implements IDataStore<T> {
 
-    private final MVMap<String, T> map;
+    private MVMap<String, T> map;
     private String name;
+    private final DataType<T> valueType;
+    // commit after every write (strict durability)
+    private final boolean commitOnWrite;
 
-    MVStoreDataStore(MVStore mvstore, String name) {
+    // null value type uses MVStore default one (Java serialization)
+    MVStoreDataStore(MVStore mvstore, String name,
+            DataType<T> valueType, boolean commitOnWrite) {
         super();
         requireNonNull(mvstore, "'mvstore' must not be null.");
         this.name = requireNonNull(name, "'name' must not be null.");
-        map = mvstore.openMap(name);
+        this.valueType = valueType;
+        this.commitOnWrite = commitOnWrite;
+        map = openMap(mvstore, name);
+    }
+    private MVMap<String, T> openMap(MVStore mvstore, String mapName) {
+        if (valueType == null) {
+            return mvstore.openMap(mapName);
+        }
+        return mvstore.openMap(mapName,
+                new MVMap.Builder<String, T>().valueType(valueType));
     }
 
     @Override
@@ -47,6 +70,17 @@ public class MVStoreDataStore<T> implements IDataStore<T> {
         name = newName;
         return oldName;
     }
+    // Copies all records to a new map in the given file, used from then
+    // on. The previous map is left for the caller to remove.
+    String moveTo(MVStore file, String newName) {
+        String oldName = name;
+        MVMap<String, T> newMap = openMap(file, newName);
+        newMap.putAll(map);
+        file.commit();
+        map = newMap;
+        name = newName;
+        return oldName;
+    }
 
     @Override
     public void save(String id, T object) {
@@ -55,6 +89,7 @@ public class MVStoreDataStore<T> implements IDataStore<T> {
         // If issues arise, re-introduce cloning.
         //    map.put(id, BeanUtil.clone(object))
         map.put(id, object);
+        commit();
     }
 
     @Override
@@ -83,7 +118,9 @@ public class MVStoreDataStore<T> implements IDataStore<T> {
 
     @Override
     public boolean delete(String id) {
-        return map.remove(id) != null;
+        boolean deleted = map.remove(id) != null;
+        commit();
+        return deleted;
     }
 
     @Override
@@ -91,11 +128,58 @@ public class MVStoreDataStore<T> implements IDataStore<T> {
         String id = map.firstKey();
         if (id != null) {
             T removed = map.remove(id);
+            commit();
             return Optional.ofNullable(removed);
         }
         return Optional.empty();
     }
 
+    @Override
+    public void saveAll(Map<String, T> objects) {
+        objects.forEach(map::put);
+        commit();
+    }
+
+    @Override
+    public Map<String, T> findAll(Collection<String> ids) {
+        Map<String, T> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            T obj = map.get(id);
+            if (obj != null) {
+                found.put(id, obj);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long deleteAll(Collection<String> ids) {
+        long count = 0;
+        for (String id : ids) {
+            if (map.remove(id) != null) {
+                count++;
+            }
+        }
+        commit();
+        return count;
+    }
+
+    @Override
+    public List<T> deleteFirst(int maxCount) {
+        // Walk the keys once instead of looking up the first key for each
+        // removal. Keys removed concurrently by other threads are skipped.
+        List<T> deleted = new ArrayList<>();
+        Iterator<String> it = map.keyIterator(null);
+        while (deleted.size() < maxCount && it.hasNext()) {
+            T removed = map.remove(it.next());
+            if (removed != null) {
+                deleted.add(removed);
+            }
+        }
+        commit();
+        return deleted;
+    }
+
     @Override
     public boolean isEmpty() {
         return map.isEmpty();
@@ -104,6 +188,7 @@ public class MVStoreDataStore<T> implements IDataStore<T> {
     @Override
     public void clear() {
         map.clear();
+        commit();
     }
 
     @Override
@@ -122,7 +207,45 @@ public class MVStoreDataStore<T> implements IDataStore<T> {
         return true;
     }
 
+    @Override
+    public boolean forEachParallel(
+            int parallelism, BiPredicate<String, T> predicate) {
+        // Split keys are looked up by index, which MVStore does without
+        // walking the entries.
+        long size = map.sizeAsLong();
+        List<String> splitKeys = new ArrayList<>();
+        for (int i = 1; i < parallelism && size > parallelism; i++) {
+            String key = map.getKey(size * i / parallelism);
+            if (key != null && (splitKeys.isEmpty() || key.compareTo(
+                    splitKeys.get(splitKeys.size() - 1)) > 0)) {
+                splitKeys.add(key);
+            }
+        }
+        return DataStorePartitions.forEach(
+                splitKeys, parallelism, this::forEachInRange, predicate);
+    }
+    private boolean forEachInRange(
+            String fromKey, String toKey, BiPredicate<String, T> predicate) {
+        Cursor<String, T> cursor = map.cursor(fromKey);
+        while (cursor.hasNext()) {
+            String key = cursor.next();
+            if (toKey != null && key.compareTo(toKey) >= 0) {
+                break;
+            }
+            if (!predicate.test(key, cursor.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     MVMap<String, T> getMVMap() {
         return map;
     }
+
+    private void commit() {
+        if (commitOnWrite) {
+            map.store.commit();
+        }
+    }
 }
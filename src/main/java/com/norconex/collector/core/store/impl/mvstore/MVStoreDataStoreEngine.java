@@ -17,10 +17,21 @@ package com.norconex.collector.core.store.impl.mvstore;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
@@ -32,13 +43,102 @@ import org.slf4j.LoggerFactory;
 
 import com.norconex.collector.core.CollectorException;
 import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.store.DataStoreDurability;
 import com.norconex.collector.core.store.DataStoreException;
 import com.norconex.collector.core.store.IDataStore;
 import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.IDataStoreSerializer;
+import com.norconex.collector.core.store.impl.serializer.BinaryDataStoreSerializer;
+import com.norconex.commons.lang.file.FileUtil;
 import com.norconex.commons.lang.unit.DataUnit;
 import com.norconex.commons.lang.xml.IXMLConfigurable;
 import com.norconex.commons.lang.xml.XML;
 
+/**
+ * <p>
+ * Data store engine using an embedded H2 MVStore for storing crawl data.
+ * </p>
+ * <p>
+ * The crawler data store durability is honored as follows:
+ * <code>STRICT</code> commits after every write,
+ * <code>PERIODIC</code> relies on the MVStore auto-commit delay, and
+ * <code>ON_CHECKPOINT</code> disables auto-commit.
+ * All but <code>STRICT</code> also commit on checkpoints.
+ * </p>
+ * <p>
+ * By default, all data stores are kept in a single MVStore file.
+ * Data stores can be spread over many files ("shards"), so their
+ * writes do not contend on the same file. A data store can also
+ * be given its own configuration, in which case it gets its own file
+ * (e.g., higher compression for rarely modified stores). A renamed data
+ * store is moved to the file of its new name, copying its records
+ * when it was in another file. Swapped data stores (e.g., when processed
+ * references become cached ones on startup) keep their files instead.
+ * </p>
+ * <p>
+ * Stored objects are written with Java serialization unless a
+ * serializer is configured (e.g., {@link BinaryDataStoreSerializer}).
+ * Changing the serializer requires starting from a clean data store.
+ * </p>
+ * <p>
+ * A background task periodically rewrites file chunks holding little
+ * live data, writing up to a maximum number of bytes each time, so
+ * files do not keep growing as queued references come and go.
+ * It can be limited to a daily time window (e.g., at night).
+ * Compacting files again when closing the engine is optional.
+ * </p>
+ *
+ * {@nx.xml.usage
+ * <dataStoreEngine class="MVStoreDataStoreEngine">
+ *   <pageSplitSize>(Page size before splitting it.)</pageSplitSize>
+ *   <compress>[0|1|2] (None, light, or high compression.)</compress>
+ *   <cacheConcurrency>(Number of cache segments.)</cacheConcurrency>
+ *   <cacheSize>(Read cache size.)</cacheSize>
+ *   <autoCompactFillRate>
+ *     (Percentage of live data under which file chunks get compacted.)
+ *   </autoCompactFillRate>
+ *   <autoCommitBufferSize>
+ *     (Size of unsaved changes before they are written.)
+ *   </autoCommitBufferSize>
+ *   <autoCommitDelay>(Maximum delay before writing changes.)</autoCommitDelay>
+ *   <shards>
+ *     (Number of files data stores are spread over. Default is 1.)
+ *   </shards>
+ *   <serializer class="(IDataStoreSerializer implementation)"/>
+ *   <compactInterval>
+ *     (How often to compact files. Zero disables background compaction.
+ *     Default is 1 minute.)
+ *   </compactInterval>
+ *   <compactFillRate>
+ *     (Percentage of live data under which file chunks get rewritten.
+ *     Default is 50.)
+ *   </compactFillRate>
+ *   <compactWriteLimit>
+ *     (Maximum amount of data rewritten per file each time.
+ *     Default is 16 MB.)
+ *   </compactWriteLimit>
+ *   <compactWindowStart>
+ *     (Time of day from which background compaction can run,
+ *     as HH:mm. Default is any time.)
+ *   </compactWindowStart>
+ *   <compactWindowEnd>
+ *     (Time of day until which background compaction can run,
+ *     as HH:mm. Default is any time.)
+ *   </compactWindowEnd>
+ *   <compactOnClose>
+ *     [true|false]
+ *     (Whether to compact files when closing. Default is true.)
+ *   </compactOnClose>
+ *   <stores>
+ *     <!-- Repeat as needed. Same options as above, from
+ *          "pageSplitSize" to "autoCommitDelay". -->
+ *     <store name="(data store name)">
+ *       <compress>2</compress>
+ *     </store>
+ *   </stores>
+ * </dataStoreEngine>
+ * }
+ */
 public class MVStoreDataStoreEngine
         implements IDataStoreEngine, IXMLConfigurable {
 
@@ -47,21 +147,227 @@ public class MVStoreDataStoreEngine
 
     private static final String STORE_TYPES_KEY =
             MVStoreDataStoreEngine.class.getSimpleName() + "--storetypes";
+    private static final String STORE_FILES_KEY =
+            MVStoreDataStoreEngine.class.getSimpleName() + "--storefiles";
+
+    public static final long DEFAULT_COMPACT_INTERVAL = 60_000;
+    public static final int DEFAULT_COMPACT_FILL_RATE = 50;
+    public static final long DEFAULT_COMPACT_WRITE_LIMIT = 16L * 1024 * 1024;
+    // Maximum time spent compacting each file when closing.
+    private static final int CLOSE_COMPACT_TIME = 5 * 1000;
+
+    private static final String MAIN_FILE = "mvstore";
+    private static final String SHARD_FILE_PREFIX = MAIN_FILE + "-shard";
+    private static final String STORE_FILE_PREFIX = MAIN_FILE + "-store-";
 
     private final MVStoreDataStoreConfig cfg = new MVStoreDataStoreConfig();
+    private final Map<String, MVStoreDataStoreConfig> storeConfigs =
+            new HashMap<>();
+    private int shards = 1;
+    private IDataStoreSerializer serializer;
+    private long compactInterval = DEFAULT_COMPACT_INTERVAL;
+    private int compactFillRate = DEFAULT_COMPACT_FILL_RATE;
+    private long compactWriteLimit = DEFAULT_COMPACT_WRITE_LIMIT;
+    private LocalTime compactWindowStart;
+    private LocalTime compactWindowEnd;
+    private boolean compactOnClose = true;
 
     private MVStore mvstore;
+    // Open files, by file name (including the main one). Concurrent,
+    // as also read by the compactor.
+    private final Map<String, MVStore> files = new ConcurrentHashMap<>();
+    private ScheduledExecutorService compactor;
     private Path engineDir;
+    private DataStoreDurability durability;
 
     private MVMap<String, Class<?>> storeTypes;
+    // File names of data stores not in the main file.
+    private MVMap<String, String> storeFiles;
 
     public MVStoreDataStoreConfig getConfiguration() {
         return cfg;
     }
+    /**
+     * Gets the configuration of a data store having its own file.
+     * @param storeName data store name
+     * @return configuration or <code>null</code> if the data store
+     *     uses the engine configuration
+     * @since 3.2.0
+     */
+    public MVStoreDataStoreConfig getStoreConfiguration(String storeName) {
+        return storeConfigs.get(storeName);
+    }
+    /**
+     * Sets the configuration of a data store, giving it its own file
+     * when first created.
+     * @param storeName data store name
+     * @param storeConfig configuration (<code>null</code> to use the
+     *     engine configuration)
+     * @since 3.2.0
+     */
+    public void setStoreConfiguration(
+            String storeName, MVStoreDataStoreConfig storeConfig) {
+        if (storeConfig == null) {
+            storeConfigs.remove(storeName);
+        } else {
+            storeConfigs.put(storeName, storeConfig);
+        }
+    }
+    /**
+     * Gets the names of data stores having their own configuration.
+     * @return data store names
+     * @since 3.2.0
+     */
+    public Set<String> getConfiguredStoreNames() {
+        return new HashSet<>(storeConfigs.keySet());
+    }
+    /**
+     * Gets the number of files data stores without their own
+     * configuration are spread over.
+     * @return number of shards
+     * @since 3.2.0
+     */
+    public int getShards() {
+        return shards;
+    }
+    /**
+     * Sets the number of files data stores without their own
+     * configuration are spread over. Existing data stores remain
+     * in their file.
+     * @param shards number of shards
+     * @since 3.2.0
+     */
+    public void setShards(int shards) {
+        this.shards = Math.max(1, shards);
+    }
+    /**
+     * Gets the serializer used to write stored objects.
+     * @return serializer or <code>null</code> for Java serialization
+     * @since 3.2.0
+     */
+    public IDataStoreSerializer getSerializer() {
+        return serializer;
+    }
+    /**
+     * Sets the serializer used to write stored objects.
+     * @param serializer serializer or <code>null</code> for Java
+     *     serialization
+     * @since 3.2.0
+     */
+    public void setSerializer(IDataStoreSerializer serializer) {
+        this.serializer = serializer;
+    }
+    /**
+     * Gets how often files are compacted in the background,
+     * in milliseconds.
+     * @return compaction interval
+     * @since 3.2.0
+     */
+    public long getCompactInterval() {
+        return compactInterval;
+    }
+    /**
+     * Sets how often files are compacted in the background,
+     * in milliseconds. Zero disables background compaction.
+     * @param compactInterval compaction interval
+     * @since 3.2.0
+     */
+    public void setCompactInterval(long compactInterval) {
+        this.compactInterval = compactInterval;
+    }
+    /**
+     * Gets the percentage of live data in a file chunk under which
+     * the chunk gets rewritten by background compaction.
+     * @return compaction fill rate
+     * @since 3.2.0
+     */
+    public int getCompactFillRate() {
+        return compactFillRate;
+    }
+    /**
+     * Sets the percentage of live data in a file chunk under which
+     * the chunk gets rewritten by background compaction.
+     * @param compactFillRate compaction fill rate
+     * @since 3.2.0
+     */
+    public void setCompactFillRate(int compactFillRate) {
+        this.compactFillRate = compactFillRate;
+    }
+    /**
+     * Gets the maximum number of bytes rewritten per file by each
+     * background compaction.
+     * @return compaction write limit
+     * @since 3.2.0
+     */
+    public long getCompactWriteLimit() {
+        return compactWriteLimit;
+    }
+    /**
+     * Sets the maximum number of bytes rewritten per file by each
+     * background compaction.
+     * @param compactWriteLimit compaction write limit
+     * @since 3.2.0
+     */
+    public void setCompactWriteLimit(long compactWriteLimit) {
+        this.compactWriteLimit = compactWriteLimit;
+    }
+    /**
+     * Gets the time of day from which background compaction can run.
+     * @return window start time or <code>null</code> if not limited
+     * @since 3.2.0
+     */
+    public LocalTime getCompactWindowStart() {
+        return compactWindowStart;
+    }
+    /**
+     * Sets the time of day from which background compaction can run.
+     * The window can span midnight (e.g., from 22:00 to 06:00).
+     * @param compactWindowStart window start time or <code>null</code>
+     *     if not limited
+     * @since 3.2.0
+     */
+    public void setCompactWindowStart(LocalTime compactWindowStart) {
+        this.compactWindowStart = compactWindowStart;
+    }
+    /**
+     * Gets the time of day until which background compaction can run.
+     * @return window end time or <code>null</code> if not limited
+     * @since 3.2.0
+     */
+    public LocalTime getCompactWindowEnd() {
+        return compactWindowEnd;
+    }
+    /**
+     * Sets the time of day until which background compaction can run.
+     * @param compactWindowEnd window end time or <code>null</code>
+     *     if not limited
+     * @since 3.2.0
+     */
+    public void setCompactWindowEnd(LocalTime compactWindowEnd) {
+        this.compactWindowEnd = compactWindowEnd;
+    }
+    /**
+     * Gets whether files are compacted when closing the engine.
+     * @return <code>true</code> if compacting on close
+     * @since 3.2.0
+     */
+    public boolean isCompactOnClose() {
+        return compactOnClose;
+    }
+    /**
+     * Sets whether files are compacted when closing the engine.
+     * Disabling it makes crawler shutdown faster.
+     * @param compactOnClose <code>true</code> to compact on close
+     * @since 3.2.0
+     */
+    public void setCompactOnClose(boolean compactOnClose) {
+        this.compactOnClose = compactOnClose;
+    }
 
     @Override
     public void init(Crawler crawler) {
 
+        durability = crawler.getCrawlerConfig().getDataStoreDurability();
         engineDir = crawler.getWorkDir().resolve("datastore");
         try {
             FileUtils.forceMkdir(engineDir.toFile());
@@ -71,49 +377,131 @@ public class MVStoreDataStoreEngine
                             + engineDir, e);
         }
 
+        mvstore = openFile(MAIN_FILE);
+        storeTypes = mvstore.openMap(STORE_TYPES_KEY);
+        storeFiles = mvstore.openMap(STORE_FILES_KEY);
+
+        mvstore.commit();
+
+        if (compactInterval > 0) {
+            compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, crawler.getId() + "#compactor");
+                t.setDaemon(true);
+                return t;
+            });
+            compactor.scheduleWithFixedDelay(this::compact,
+                    compactInterval, compactInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Rewrites sparse chunks of each open file, within the I/O budget.
+    void compact() {
+        if (!isInCompactWindow(LocalTime.now())) {
+            return;
+        }
+        for (MVStore file : files.values()) {
+            try {
+                if (!file.isClosed()) {
+                    file.compact(compactFillRate,
+                            (int) Math.min(compactWriteLimit,
+                                    Integer.MAX_VALUE));
+                }
+            } catch (RuntimeException e) {
+                // file may have been closed meanwhile
+                LOG.debug("Could not compact data store file.", e);
+            }
+        }
+    }
+    boolean isInCompactWindow(LocalTime time) {
+        if (compactWindowStart == null || compactWindowEnd == null) {
+            return true;
+        }
+        if (!compactWindowStart.isAfter(compactWindowEnd)) {
+            return !time.isBefore(compactWindowStart)
+                    && time.isBefore(compactWindowEnd);
+        }
+        // spans midnight
+        return !time.isBefore(compactWindowStart)
+                || time.isBefore(compactWindowEnd);
+    }
+    private MVStore openFile(String fileName) {
+        MVStoreDataStoreConfig fileCfg = fileConfig(fileName);
         MVStore.Builder builder = new MVStore.Builder();
-        if (cfg.getPageSplitSize() != null) {
+        if (fileCfg.getPageSplitSize() != null) {
             //MVStore expects it as bytes
-            builder.pageSplitSize(asInt(cfg.getPageSplitSize()));
+            builder.pageSplitSize(asInt(fileCfg.getPageSplitSize()));
         }
-        if (Integer.valueOf(1).equals(cfg.getCompress())) {
+        if (Integer.valueOf(1).equals(fileCfg.getCompress())) {
             builder.compress();
         }
-        if (Integer.valueOf(2).equals(cfg.getCompress())) {
+        if (Integer.valueOf(2).equals(fileCfg.getCompress())) {
             builder.compressHigh();
         }
-        if (cfg.getCacheConcurrency() != null) {
-            builder.cacheConcurrency(cfg.getCacheConcurrency());
+        if (fileCfg.getCacheConcurrency() != null) {
+            builder.cacheConcurrency(fileCfg.getCacheConcurrency());
         }
-        if (cfg.getCacheSize() != null) {
+        if (fileCfg.getCacheSize() != null) {
             //MVStore expects it as megabytes
-            builder.cacheSize(
-                    DataUnit.B.to(cfg.getCacheSize(), DataUnit.MB).intValue());
+            builder.cacheSize(DataUnit.B.to(
+                    fileCfg.getCacheSize(), DataUnit.MB).intValue());
         }
-        if (cfg.getAutoCompactFillRate() != null) {
-            builder.autoCompactFillRate(cfg.getAutoCompactFillRate());
+        if (fileCfg.getAutoCompactFillRate() != null) {
+            builder.autoCompactFillRate(fileCfg.getAutoCompactFillRate());
         }
-        if (cfg.getAutoCommitBufferSize() != null) {
+        if (fileCfg.getAutoCommitBufferSize() != null) {
             //MVStore expects it as kilobytes
             builder.autoCommitBufferSize(DataUnit.B.to(
-                    cfg.getAutoCommitBufferSize(), DataUnit.KB).intValue());
+                    fileCfg.getAutoCommitBufferSize(), DataUnit.KB).intValue());
         }
-        if (Long.valueOf(0).equals(cfg.getAutoCommitDelay())) {
+        if (Long.valueOf(0).equals(fileCfg.getAutoCommitDelay())
+                || durability == DataStoreDurability.ON_CHECKPOINT) {
             builder.autoCommitDisabled();
         }
         builder.fileName(
-                engineDir.resolve("mvstore").toAbsolutePath().toString());
+                engineDir.resolve(fileName).toAbsolutePath().toString());
 
-        mvstore = builder.open();
+        MVStore file = builder.open();
 
-        if (cfg.getAutoCommitDelay() != null) {
+        if (fileCfg.getAutoCommitDelay() != null
+                && durability != DataStoreDurability.ON_CHECKPOINT) {
             //MVStore expects it as milliseconds
-            mvstore.setAutoCommitDelay(cfg.getAutoCommitDelay().intValue());
+            file.setAutoCommitDelay(fileCfg.getAutoCommitDelay().intValue());
         }
-
-        storeTypes = mvstore.openMap(STORE_TYPES_KEY);
-
-        mvstore.commit();
+        files.put(fileName, file);
+        return file;
+    }
+    // Files created for a data store keep using its configuration.
+    private MVStoreDataStoreConfig fileConfig(String fileName) {
+        for (Entry<String, MVStoreDataStoreConfig> en
+                : storeConfigs.entrySet()) {
+            if (storeFileName(en.getKey()).equals(fileName)) {
+                return en.getValue();
+            }
+        }
+        return cfg;
+    }
+    private String storeFileName(String storeName) {
+        return STORE_FILE_PREFIX + FileUtil.toSafeFileName(storeName);
+    }
+    // File of an existing data store, or where a new one would go.
+    MVStore file(String storeName) {
+        return fileNamed(storeFiles.get(storeName));
+    }
+    // null for the main file
+    private MVStore fileNamed(String fileName) {
+        if (fileName == null) {
+            return mvstore;
+        }
+        MVStore file = files.get(fileName);
+        return file != null ? file : openFile(fileName);
+    }
+    // null for the main file
+    private String newFileName(String storeName) {
+        if (storeConfigs.containsKey(storeName)) {
+            return storeFileName(storeName);
+        }
+        int shard = Math.floorMod(storeName.hashCode(), shards);
+        return shard == 0 ? null : SHARD_FILE_PREFIX + shard;
     }
     private Integer asInt(Long l) {
         if (l == null) {
@@ -144,51 +532,192 @@ public class MVStoreDataStoreEngine
     @Override
     public synchronized void close() {
         LOG.info("Closing data store engine...");
-        if (mvstore != null && !mvstore.isClosed()) {
-            LOG.info("Compacting data store...");
-            mvstore.compactFile(5 * 1000);
-            mvstore.close();
+        if (compactor != null) {
+            compactor.shutdownNow();
+            try {
+                compactor.awaitTermination(
+                        CLOSE_COMPACT_TIME, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            compactor = null;
         }
+        for (MVStore file : files.values()) {
+            if (!file.isClosed()) {
+                if (compactOnClose) {
+                    LOG.info("Compacting data store...");
+                    file.compactFile(CLOSE_COMPACT_TIME);
+                }
+                file.close();
+            }
+        }
+        files.clear();
         mvstore = null;
         engineDir = null;
         LOG.info("Data store engine closed.");
     }
     @Override
+    public synchronized void checkpoint() {
+        for (MVStore file : files.values()) {
+            if (!file.isClosed()) {
+                file.commit();
+            }
+        }
+    }
+    @Override
     public synchronized <T> IDataStore<T> openStore(
             String name, Class<? extends T> type) {
+        registerStore(name, type);
+        return new MVStoreDataStore<>(file(name), name,
+                serializer == null
+                        ? null : new SerializerDataType<T>(serializer, type),
+                durability == DataStoreDurability.STRICT);
+    }
+    /**
+     * Opens a data store keyed by the 128-bit fingerprint of each id,
+     * stored as 16 bytes instead of the id itself.
+     * Records are read in the order they were first saved.
+     * @param <T> type of stored objects
+     * @param name data store name
+     * @param type type of stored objects
+     * @return data store
+     * @since 3.2.0
+     */
+    public synchronized <T> IDataStore<T> openFingerprintStore(
+            String name, Class<? extends T> type) {
+        registerStore(name, type);
+        return new MVStoreFingerprintDataStore<>(file(name), name,
+                serializer == null
+                        ? null : new SerializerDataType<T>(serializer, type),
+                durability == DataStoreDurability.STRICT);
+    }
+    private void registerStore(String name, Class<?> type) {
         storeTypes.put(name, type);
-        return new MVStoreDataStore<>(mvstore,  name);
+        if (!storeFiles.containsKey(name) && !mvstore.hasMap(name)) {
+            String fileName = newFileName(name);
+            if (fileName != null) {
+                storeFiles.put(name, fileName);
+            }
+        }
     }
     @Override
     public synchronized boolean dropStore(String name) {
-        if (mvstore.hasMap(name)) {
-            mvstore.removeMap(name);
+        if (removeMaps(file(name), name)) {
             if (STORE_TYPES_KEY.equals(name)) {
                 storeTypes = null;
             } else {
                 storeTypes.remove(name);
+                storeFiles.remove(name);
             }
             return true;
         }
         return false;
     }
 
+    // A renamed data store goes to the file a new data store with that
+    // name would get (e.g., its own configured file), its records being
+    // copied when in another file. The source maps are only removed once
+    // the new file is recorded. An existing data store with the new name
+    // is replaced.
     @Override
-    public boolean renameStore(IDataStore<?> store, String newName) {
-        MVStoreDataStore<?> mvDateStore = (MVStoreDataStore<?>) store;
-        boolean hadMap = false;
-        if (mvstore.hasMap(newName)) {
-            hadMap = true;
+    public synchronized boolean renameStore(
+            IDataStore<?> store, String newName) {
+        String oldName = store.getName();
+        MVStore sourceFile = file(oldName);
+        String targetFileName = newFileName(newName);
+        MVStore targetFile = fileNamed(targetFileName);
+        boolean hadMap = removeMaps(file(newName), newName);
+        hadMap |= removeMaps(targetFile, newName);
+        boolean moved = sourceFile != targetFile;
+        if (moved) {
+            if (store instanceof MVStoreFingerprintDataStore) {
+                ((MVStoreFingerprintDataStore<?>) store).moveTo(
+                        targetFile, newName);
+            } else {
+                ((MVStoreDataStore<?>) store).moveTo(targetFile, newName);
+            }
+        } else {
+            renameMaps(store, newName);
+        }
+        storeTypes.put(newName, storeTypes.remove(oldName));
+        storeFiles.remove(oldName);
+        if (targetFileName != null) {
+            storeFiles.put(newName, targetFileName);
+        } else {
+            storeFiles.remove(newName);
+        }
+        if (moved) {
+            mvstore.commit();
+            removeMaps(sourceFile, oldName);
+            sourceFile.commit();
         }
-        storeTypes.put(newName, storeTypes.remove(mvDateStore.rename(newName)));
         return hadMap;
     }
+    // Data stores keep their maps in their own file, only their names and
+    // recorded files being swapped, so no records are copied. The
+    // temporary name only exists in a file holding both.
+    @Override
+    public synchronized void swapStores(
+            IDataStore<?> dataStore1, IDataStore<?> dataStore2) {
+        String name1 = dataStore1.getName();
+        String name2 = dataStore2.getName();
+        MVStore file1 = file(name1);
+        MVStore file2 = file(name2);
+        if (file1 == file2) {
+            renameMaps(dataStore1, name1 + "_swap");
+            renameMaps(dataStore2, name1);
+            renameMaps(dataStore1, name2);
+        } else {
+            renameMaps(dataStore1, name2);
+            renameMaps(dataStore2, name1);
+        }
+        swapValues(storeTypes, name1, name2);
+        swapValues(storeFiles, name1, name2);
+        mvstore.commit();
+        file1.commit();
+        file2.commit();
+    }
+    private static void renameMaps(IDataStore<?> store, String newName) {
+        if (store instanceof MVStoreFingerprintDataStore) {
+            ((MVStoreFingerprintDataStore<?>) store).rename(newName);
+        } else {
+            ((MVStoreDataStore<?>) store).rename(newName);
+        }
+    }
+    private static <V> void swapValues(
+            MVMap<String, V> map, String key1, String key2) {
+        V value1 = map.remove(key1);
+        V value2 = map.remove(key2);
+        if (value1 != null) {
+            map.put(key2, value1);
+        }
+        if (value2 != null) {
+            map.put(key1, value2);
+        }
+    }
+
+    // Removes a data store maps from a file, returning whether it existed.
+    private static boolean removeMaps(MVStore file, String name) {
+        String indexName = name + MVStoreFingerprintDataStore.INDEX_SUFFIX;
+        if (file.hasMap(indexName)) {
+            file.removeMap(indexName);
+        }
+        if (file.hasMap(name)) {
+            file.removeMap(name);
+            return true;
+        }
+        return false;
+    }
 
     @Override
-    public Set<String> getStoreNames() {
+    public synchronized Set<String> getStoreNames() {
         // a fresh map instance is returned, so safe to remove entry.
         Set<String> names = mvstore.getMapNames();
+        names.addAll(storeFiles.keySet());
         names.remove(STORE_TYPES_KEY);
+        names.remove(STORE_FILES_KEY);
+        names.removeIf(
+                n -> n.endsWith(MVStoreFingerprintDataStore.INDEX_SUFFIX));
         return names;
     }
     @Override
@@ -198,6 +727,35 @@ public class MVStoreDataStoreEngine
 
     @Override
     public void loadFromXML(XML xml) {
+        loadConfigFromXML(xml, cfg);
+        setShards(xml.getInteger("shards", getShards()));
+        setSerializer(xml.getObjectImpl(
+                IDataStoreSerializer.class, "serializer", getSerializer()));
+        setCompactInterval(
+                xml.getDurationMillis("compactInterval", compactInterval));
+        setCompactFillRate(
+                xml.getInteger("compactFillRate", compactFillRate));
+        setCompactWriteLimit(
+                xml.getDataSize("compactWriteLimit", compactWriteLimit));
+        setCompactWindowStart(toLocalTime(
+                xml.getString("compactWindowStart"), compactWindowStart));
+        setCompactWindowEnd(toLocalTime(
+                xml.getString("compactWindowEnd"), compactWindowEnd));
+        setCompactOnClose(xml.getBoolean("compactOnClose", compactOnClose));
+        for (XML storeXML : xml.getXMLList("stores/store")) {
+            MVStoreDataStoreConfig storeCfg = new MVStoreDataStoreConfig();
+            loadConfigFromXML(storeXML, storeCfg);
+            setStoreConfiguration(storeXML.getString("@name"), storeCfg);
+        }
+    }
+    private static LocalTime toLocalTime(String value, LocalTime defValue) {
+        if (StringUtils.isBlank(value)) {
+            return defValue;
+        }
+        return LocalTime.parse(value.trim());
+    }
+    private static void loadConfigFromXML(
+            XML xml, MVStoreDataStoreConfig cfg) {
         cfg.setPageSplitSize(
                 xml.getDataSize("pageSplitSize", cfg.getPageSplitSize()));
         cfg.setCompress(xml.getInteger("compress", cfg.getCompress()));
@@ -214,6 +772,26 @@ public class MVStoreDataStoreEngine
 
     @Override
     public void saveToXML(XML xml) {
+        saveConfigToXML(xml, cfg);
+        xml.addElement("shards", getShards());
+        xml.addElement("serializer", getSerializer());
+        xml.addElement("compactInterval", compactInterval);
+        xml.addElement("compactFillRate", compactFillRate);
+        xml.addElement("compactWriteLimit", compactWriteLimit);
+        xml.addElement("compactWindowStart",
+                Objects.toString(compactWindowStart, null));
+        xml.addElement("compactWindowEnd",
+                Objects.toString(compactWindowEnd, null));
+        xml.addElement("compactOnClose", compactOnClose);
+        if (!storeConfigs.isEmpty()) {
+            XML storesXML = xml.addElement("stores");
+            storeConfigs.forEach((name, storeCfg) -> saveConfigToXML(
+                    storesXML.addElement("store").setAttribute("name", name),
+                    storeCfg));
+        }
+    }
+    private static void saveConfigToXML(
+            XML xml, MVStoreDataStoreConfig cfg) {
         xml.addElement("pageSplitSize", cfg.getPageSplitSize());
         xml.addElement("compress", cfg.getCompress());
         xml.addElement("cacheConcurrency", cfg.getCacheConcurrency());
@@ -0,0 +1,319 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.mvstore;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.LongDataType;
+
+import com.norconex.collector.core.doc.CrawlDocInfo;
+import com.norconex.collector.core.store.DataStoreException;
+import com.norconex.collector.core.store.DataStorePartitions;
+import com.norconex.collector.core.store.IDataStore;
+
+/**
+ * MVStore data store keying records with the 128-bit fingerprint
+ * (MD5 digest) of their id, kept as 16 bytes. Records are stored under
+ * their insertion sequence followed by their fingerprint, so they are
+ * read in insertion order (FIFO). A second map holds the sequence of
+ * each fingerprint, needed to find records by id. Keys of both maps
+ * take about 48 bytes per record, which is smaller than most references
+ * but not all.
+ * @param <T> type of stored objects
+ * @since 3.2.0
+ */
+public class MVStoreFingerprintDataStore<T> implements IDataStore<T> {
+
+    // Name suffix of the map holding the sequence of each fingerprint.
+    static final String INDEX_SUFFIX = "#fingerprints";
+
+    private static final int FINGERPRINT_LENGTH = 16;
+    private static final int KEY_LENGTH = Long.BYTES + FINGERPRINT_LENGTH;
+    private static final Base64.Encoder ENCODER =
+            Base64.getUrlEncoder().withoutPadding();
+
+    // sequence + fingerprint -> object
+    private MVMap<byte[], T> map;
+    // fingerprint -> sequence
+    private MVMap<byte[], Long> index;
+    private final AtomicLong sequence = new AtomicLong();
+    private String name;
+    private final DataType<T> valueType;
+    // commit after every write (strict durability)
+    private final boolean commitOnWrite;
+
+    // null value type uses MVStore default one (Java serialization)
+    MVStoreFingerprintDataStore(MVStore mvstore, String name,
+            DataType<T> valueType, boolean commitOnWrite) {
+        super();
+        requireNonNull(mvstore, "'mvstore' must not be null.");
+        this.name = requireNonNull(name, "'name' must not be null.");
+        this.valueType = valueType;
+        this.commitOnWrite = commitOnWrite;
+        map = openMap(mvstore, name);
+        index = openIndex(mvstore, name);
+        byte[] lastKey = map.lastKey();
+        if (lastKey != null) {
+            sequence.set(ByteBuffer.wrap(lastKey).getLong());
+        }
+    }
+    private MVMap<byte[], T> openMap(MVStore mvstore, String mapName) {
+        MVMap.Builder<byte[], T> builder = new MVMap.Builder<byte[], T>()
+                .keyType(ByteArrayKeyType.INSTANCE);
+        if (valueType != null) {
+            builder.valueType(valueType);
+        }
+        return mvstore.openMap(mapName, builder);
+    }
+    private static MVMap<byte[], Long> openIndex(
+            MVStore mvstore, String mapName) {
+        return mvstore.openMap(mapName + INDEX_SUFFIX,
+                new MVMap.Builder<byte[], Long>()
+                        .keyType(ByteArrayKeyType.INSTANCE)
+                        .valueType(LongDataType.INSTANCE));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+    String rename(String newName) {
+        String oldName = name;
+        map.store.renameMap(map, newName);
+        index.store.renameMap(index, newName + INDEX_SUFFIX);
+        name = newName;
+        return oldName;
+    }
+    // Copies all records and their index to new maps in the given file,
+    // used from then on. Previous maps are left for the caller to remove.
+    synchronized String moveTo(MVStore file, String newName) {
+        String oldName = name;
+        MVMap<byte[], T> newMap = openMap(file, newName);
+        MVMap<byte[], Long> newIndex = openIndex(file, newName);
+        newMap.putAll(map);
+        newIndex.putAll(index);
+        file.commit();
+        map = newMap;
+        index = newIndex;
+        name = newName;
+        return oldName;
+    }
+
+    @Override
+    public synchronized void save(String id, T object) {
+        put(fingerprint(id), object);
+        commit();
+    }
+
+    @Override
+    public Optional<T> find(String id) {
+        byte[] fp = fingerprint(id);
+        Long seq = index.get(fp);
+        if (seq == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(map.get(key(seq, fp)));
+    }
+
+    @Override
+    public Optional<T> findFirst() {
+        byte[] key = map.firstKey();
+        if (key != null) {
+            return Optional.ofNullable(map.get(key));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return index.containsKey(fingerprint(id));
+    }
+
+    @Override
+    public long count() {
+        return map.sizeAsLong();
+    }
+
+    @Override
+    public synchronized boolean delete(String id) {
+        boolean deleted = remove(fingerprint(id));
+        commit();
+        return deleted;
+    }
+
+    @Override
+    public Optional<T> deleteFirst() {
+        return deleteFirst(1).stream().findFirst();
+    }
+
+    @Override
+    public synchronized void saveAll(Map<String, T> objects) {
+        objects.forEach((id, obj) -> put(fingerprint(id), obj));
+        commit();
+    }
+
+    @Override
+    public Map<String, T> findAll(Collection<String> ids) {
+        Map<String, T> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            find(id).ifPresent(obj -> found.put(id, obj));
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized long deleteAll(Collection<String> ids) {
+        long count = 0;
+        for (String id : ids) {
+            if (remove(fingerprint(id))) {
+                count++;
+            }
+        }
+        commit();
+        return count;
+    }
+
+    @Override
+    public synchronized List<T> deleteFirst(int maxCount) {
+        List<T> deleted = new ArrayList<>();
+        Iterator<byte[]> it = map.keyIterator(null);
+        while (deleted.size() < maxCount && it.hasNext()) {
+            byte[] key = it.next();
+            T removed = map.remove(key);
+            if (removed != null) {
+                index.remove(fingerprintOf(key));
+                deleted.add(removed);
+            }
+        }
+        commit();
+        return deleted;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public synchronized void clear() {
+        map.clear();
+        index.clear();
+        commit();
+    }
+
+    @Override
+    public void close() {
+        //NOOP, Closed implicitly when engine is closed.
+    }
+
+    // Original ids are obtained from stored objects when possible,
+    // else the encoded fingerprint is returned.
+    @Override
+    public boolean forEach(BiPredicate<String, T> predicate) {
+        return forEachInRange(null, null, predicate);
+    }
+
+    @Override
+    public boolean forEachParallel(
+            int parallelism, BiPredicate<String, T> predicate) {
+        long size = map.sizeAsLong();
+        List<byte[]> splitKeys = new ArrayList<>();
+        for (int i = 1; i < parallelism && size > parallelism; i++) {
+            byte[] key = map.getKey(size * i / parallelism);
+            if (key != null && (splitKeys.isEmpty() || Arrays.compareUnsigned(
+                    key, splitKeys.get(splitKeys.size() - 1)) > 0)) {
+                splitKeys.add(key);
+            }
+        }
+        return DataStorePartitions.forEach(
+                splitKeys, parallelism, this::forEachInRange, predicate);
+    }
+    private boolean forEachInRange(
+            byte[] fromKey, byte[] toKey, BiPredicate<String, T> predicate) {
+        Cursor<byte[], T> cursor = map.cursor(fromKey);
+        while (cursor.hasNext()) {
+            byte[] key = cursor.next();
+            if (toKey != null && Arrays.compareUnsigned(key, toKey) >= 0) {
+                break;
+            }
+            T obj = cursor.getValue();
+            if (!predicate.test(originalId(key, obj), obj)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Existing records keep their position.
+    private void put(byte[] fp, T object) {
+        Long seq = index.get(fp);
+        if (seq == null) {
+            seq = sequence.incrementAndGet();
+            index.put(fp, seq);
+        }
+        map.put(key(seq, fp), object);
+    }
+    private boolean remove(byte[] fp) {
+        Long seq = index.remove(fp);
+        return seq != null && map.remove(key(seq, fp)) != null;
+    }
+
+    private static byte[] fingerprint(String id) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(id.getBytes(UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new DataStoreException("MD5 digest not supported.", e);
+        }
+    }
+    private static byte[] key(long seq, byte[] fp) {
+        return ByteBuffer.allocate(KEY_LENGTH).putLong(seq).put(fp).array();
+    }
+    private static byte[] fingerprintOf(byte[] key) {
+        return Arrays.copyOfRange(key, Long.BYTES, KEY_LENGTH);
+    }
+    private static String originalId(byte[] key, Object obj) {
+        if (obj instanceof CrawlDocInfo) {
+            return ((CrawlDocInfo) obj).getReference();
+        }
+        return ENCODER.encodeToString(fingerprintOf(key));
+    }
+
+    private void commit() {
+        if (commitOnWrite) {
+            map.store.commit();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.mvstore;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.BasicDataType;
+
+import com.norconex.collector.core.store.IDataStoreSerializer;
+
+/**
+ * MVStore value type writing objects with a data store serializer
+ * instead of Java serialization.
+ * @param <T> type of stored objects
+ * @since 3.2.0
+ */
+class SerializerDataType<T> extends BasicDataType<T> {
+
+    // Rough in-memory size of a stored object, used by MVStore to
+    // decide when to write pages. Actual size is only known once
+    // serialized.
+    private static final int ESTIMATED_MEMORY = 512;
+
+    private final IDataStoreSerializer serializer;
+    private final Class<? extends T> type;
+
+    SerializerDataType(
+            IDataStoreSerializer serializer, Class<? extends T> type) {
+        this.serializer = requireNonNull(
+                serializer, "'serializer' must not be null.");
+        this.type = requireNonNull(type, "'type' must not be null.");
+    }
+
+    @Override
+    public int getMemory(T obj) {
+        return ESTIMATED_MEMORY;
+    }
+
+    @Override
+    public void write(WriteBuffer buff, T obj) {
+        byte[] bytes = serializer.toBytes(obj);
+        buff.putVarInt(bytes.length).put(bytes);
+    }
+
+    @Override
+    public T read(ByteBuffer buff) {
+        byte[] bytes = new byte[DataUtils.readVarInt(buff)];
+        buff.get(bytes);
+        return serializer.fromBytes(bytes, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T[] createStorage(int size) {
+        return (T[]) new Object[size];
+    }
+}
@@ -0,0 +1,415 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.serializer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.store.DataStoreException;
+import com.norconex.collector.core.store.IDataStoreSerializer;
+
+/**
+ * <p>
+ * Serializes objects to a compact binary format. This is the default
+ * serializer of data store engines relying on one.
+ * </p>
+ * <p>
+ * Each record holds a format version followed by the object
+ * fields, each written as a 4-byte field id, a type marker, and its value
+ * (variable-length numbers, UTF-8 strings, dates as
+ * epoch values). A field id is derived from the field name and the
+ * name of the class declaring it, so a field hiding a
+ * superclass field of the same name is kept separately. Fields are
+ * matched by id against the class when read back, so adding or removing
+ * fields from a class does not prevent reading existing records
+ * (moving a field to another class does). Field types without a binary
+ * representation are written as JSON.
+ * </p>
+ * <p>
+ * Objects without a no-argument constructor, or from the Java runtime
+ * (e.g., strings), are entirely written as JSON. Records not in
+ * binary format (e.g., created with {@link JsonDataStoreSerializer}) are
+ * read as JSON.
+ * </p>
+ *
+ * {@nx.xml.usage
+ * <serializer class="BinaryDataStoreSerializer"/>
+ * }
+ *
+ * @since 3.2.0
+ */
+public class BinaryDataStoreSerializer implements IDataStoreSerializer {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(BinaryDataStoreSerializer.class);
+
+    // cannot be the first byte of a UTF-8 JSON document
+    static final byte MAGIC = (byte) 0xB7;
+    static final byte VERSION = 2;
+    // fields identified by name, in most specific class first
+    private static final byte VERSION_FIELD_NAMES = 1;
+
+    private static final byte T_NULL = 0;
+    private static final byte T_STRING = 1;
+    private static final byte T_INT = 2;
+    private static final byte T_LONG = 3;
+    private static final byte T_TRUE = 4;
+    private static final byte T_FALSE = 5;
+    private static final byte T_DOUBLE = 6;
+    private static final byte T_FLOAT = 7;
+    private static final byte T_CHAR = 8;
+    private static final byte T_ENUM = 9;
+    private static final byte T_ZONED_DATE_TIME = 10;
+    private static final byte T_INSTANT = 11;
+    private static final byte T_JSON = 12;
+
+    private static final Map<Class<?>, Schema> SCHEMAS =
+            new ConcurrentHashMap<>();
+
+    private static final JsonDataStoreSerializer JSON =
+            new JsonDataStoreSerializer();
+
+    @Override
+    public byte[] toBytes(Object object) {
+        Schema schema = object == null ? null : schema(object.getClass());
+        if (schema == null) {
+            return JSON.toBytes(object);
+        }
+        Output out = new Output();
+        out.write(MAGIC);
+        out.write(VERSION);
+        try {
+            for (Entry<Integer, Field> en : schema.fieldsById.entrySet()) {
+                Field field = en.getValue();
+                out.writeInt(en.getKey());
+                writeValue(out, field, field.get(object));
+            }
+        } catch (IllegalAccessException e) {
+            throw new DataStoreException(
+                    "Could not serialize " + object.getClass(), e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public <T> T fromBytes(byte[] bytes, Class<T> type) {
+        if (bytes == null || bytes.length == 0 || bytes[0] != MAGIC) {
+            return JSON.fromBytes(bytes, type);
+        }
+        if (bytes[1] > VERSION) {
+            throw new DataStoreException("Unsupported binary record "
+                    + "version " + bytes[1] + " for " + type + ".");
+        }
+        Schema schema = schema(type);
+        if (schema == null) {
+            throw new DataStoreException(
+                    "Cannot deserialize binary record to " + type + ".");
+        }
+        boolean byName = bytes[1] == VERSION_FIELD_NAMES;
+        ByteBuffer in = ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+        try {
+            T object = type.cast(schema.constructor.newInstance());
+            while (in.hasRemaining()) {
+                Object key = byName ? readString(in) : in.getInt();
+                Field field = byName
+                        ? schema.fieldsByName.get(key)
+                        : schema.fieldsById.get(key);
+                Object value = readValue(in, field);
+                if (field == null) {
+                    LOG.trace("Ignoring unknown field '{}' for {}.",
+                            key, type);
+                } else if (value != null || !field.getType().isPrimitive()) {
+                    field.set(object, convert(value, field.getType()));
+                }
+            }
+            return object;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new DataStoreException(
+                    "Could not deserialize binary record to " + type + ".", e);
+        }
+    }
+
+    //--- Write ----------------------------------------------------------------
+
+    private static void writeValue(Output out, Field field, Object value) {
+        Class<?> type = ClassUtils.primitiveToWrapper(field.getType());
+        if (value == null) {
+            out.write(T_NULL);
+        } else if (value instanceof String) {
+            out.write(T_STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? T_TRUE : T_FALSE);
+        } else if (value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            out.write(T_INT);
+            out.writeVarLong(((Number) value).longValue());
+        } else if (value instanceof Long) {
+            out.write(T_LONG);
+            out.writeVarLong((Long) value);
+        } else if (value instanceof Double) {
+            out.write(T_DOUBLE);
+            out.writeLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Float) {
+            out.write(T_FLOAT);
+            out.writeInt(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Character) {
+            out.write(T_CHAR);
+            out.writeVarLong((Character) value);
+        } else if (value instanceof Enum && type.isEnum()) {
+            out.write(T_ENUM);
+            out.writeString(((Enum<?>) value).name());
+        } else if (value instanceof ZonedDateTime) {
+            ZonedDateTime zdt = (ZonedDateTime) value;
+            out.write(T_ZONED_DATE_TIME);
+            out.writeVarLong(zdt.toEpochSecond());
+            out.writeVarLong(zdt.getNano());
+            out.writeString(zdt.getZone().getId());
+        } else if (value instanceof Instant) {
+            Instant instant = (Instant) value;
+            out.write(T_INSTANT);
+            out.writeVarLong(instant.getEpochSecond());
+            out.writeVarLong(instant.getNano());
+        } else {
+            out.write(T_JSON);
+            out.writeString(JsonDataStoreSerializer.GSON.toJson(
+                    value, field.getGenericType()));
+        }
+    }
+
+    //--- Read -----------------------------------------------------------------
+
+    // field is null when unknown, in which case the value is only skipped
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object readValue(ByteBuffer in, Field field) {
+        byte tag = in.get();
+        switch (tag) {
+        case T_NULL:
+            return null;
+        case T_STRING:
+            return readString(in);
+        case T_TRUE:
+            return Boolean.TRUE;
+        case T_FALSE:
+            return Boolean.FALSE;
+        case T_INT:
+        case T_LONG:
+            return readVarLong(in);
+        case T_DOUBLE:
+            return Double.longBitsToDouble(in.getLong());
+        case T_FLOAT:
+            return Float.intBitsToFloat(in.getInt());
+        case T_CHAR:
+            return (char) readVarLong(in);
+        case T_ENUM:
+            String name = readString(in);
+            if (field == null || !field.getType().isEnum()) {
+                return name;
+            }
+            return Enum.valueOf((Class<Enum>) field.getType(), name);
+        case T_ZONED_DATE_TIME:
+            long zdtSeconds = readVarLong(in);
+            long zdtNanos = readVarLong(in);
+            return ZonedDateTime.ofInstant(
+                    Instant.ofEpochSecond(zdtSeconds, zdtNanos),
+                    ZoneId.of(readString(in)));
+        case T_INSTANT:
+            long seconds = readVarLong(in);
+            return Instant.ofEpochSecond(seconds, readVarLong(in));
+        case T_JSON:
+            String jsonValue = readString(in);
+            if (field == null) {
+                return null;
+            }
+            return JsonDataStoreSerializer.GSON.fromJson(
+                    jsonValue, field.getGenericType());
+        default:
+            throw new DataStoreException(
+                    "Unsupported binary record value type: " + tag);
+        }
+    }
+
+    // numbers are all read as long
+    private static Object convert(Object value, Class<?> type) {
+        if (!(value instanceof Long)) {
+            return value;
+        }
+        Class<?> wrapper = ClassUtils.primitiveToWrapper(type);
+        long l = (Long) value;
+        if (wrapper == Integer.class) {
+            return (int) l;
+        }
+        if (wrapper == Short.class) {
+            return (short) l;
+        }
+        if (wrapper == Byte.class) {
+            return (byte) l;
+        }
+        return value;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    // zig-zag encoded variable-length number
+    private static long readVarLong(ByteBuffer in) {
+        long raw = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            raw |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    //--- Schema ---------------------------------------------------------------
+
+    // null if the class cannot be serialized in binary
+    private static Schema schema(Class<?> type) {
+        Schema schema = SCHEMAS.computeIfAbsent(type, Schema::of);
+        return schema.constructor == null ? null : schema;
+    }
+
+    private static class Schema {
+        private static final Schema NONE = new Schema(
+                null, Collections.emptyMap(), Collections.emptyMap());
+        private final Constructor<?> constructor;
+        private final Map<Integer, Field> fieldsById;
+        // version 1 records
+        private final Map<String, Field> fieldsByName;
+        private Schema(Constructor<?> constructor,
+                Map<Integer, Field> fieldsById,
+                Map<String, Field> fieldsByName) {
+            this.constructor = constructor;
+            this.fieldsById = fieldsById;
+            this.fieldsByName = fieldsByName;
+        }
+        private static Schema of(Class<?> type) {
+            if (type.isPrimitive() || type.isArray() || type.isEnum()
+                    || type.isInterface()
+                    || Modifier.isAbstract(type.getModifiers())
+                    || type.getName().startsWith("java")) {
+                return NONE;
+            }
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                Map<Integer, Field> fieldsById = new LinkedHashMap<>();
+                Map<String, Field> fieldsByName = new HashMap<>();
+                for (Class<?> c = type; c != null && c != Object.class;
+                        c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        int mod = field.getModifiers();
+                        if (!Modifier.isStatic(mod)
+                                && !Modifier.isTransient(mod)
+                                && !field.isSynthetic()) {
+                            field.setAccessible(true);
+                            Field dup = fieldsById.put(fieldId(field), field);
+                            if (dup != null) {
+                                LOG.debug("{} will be serialized as JSON: "
+                                        + "fields {} and {} have the same id.",
+                                        type, dup, field);
+                                return NONE;
+                            }
+                            fieldsByName.putIfAbsent(field.getName(), field);
+                        }
+                    }
+                }
+                return new Schema(constructor, fieldsById, fieldsByName);
+            } catch (NoSuchMethodException | RuntimeException e) {
+                LOG.debug("{} will be serialized as JSON: {}",
+                        type, e.getMessage());
+                return NONE;
+            }
+        }
+    }
+
+    // String hash codes are the same on every JVM
+    private static int fieldId(Field field) {
+        return (field.getDeclaringClass().getName()
+                + '#' + field.getName()).hashCode();
+    }
+
+    //--- Output ---------------------------------------------------------------
+
+    private static class Output extends ByteArrayOutputStream {
+        private Output() {
+            super(256);
+        }
+        private void writeString(String s) {
+            byte[] bytes = s.getBytes(UTF_8);
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+        private void writeVarLong(long value) {
+            long raw = (value << 1) ^ (value >> 63);
+            while ((raw & ~0x7FL) != 0) {
+                write((int) ((raw & 0x7F) | 0x80));
+                raw >>>= 7;
+            }
+            write((int) raw);
+        }
+        private void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+        private void writeInt(int value) {
+            for (int i = 3; i >= 0; i--) {
+                write(value >>> (i * 8));
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
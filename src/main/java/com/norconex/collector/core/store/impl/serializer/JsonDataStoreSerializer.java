@@ -0,0 +1,102 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.serializer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.norconex.collector.core.store.IDataStoreSerializer;
+
+/**
+ * <p>
+ * Serializes objects as UTF-8 JSON text, using Gson. Slower and larger
+ * than {@link BinaryDataStoreSerializer}, but human-readable,
+ * which can help when debugging.
+ * </p>
+ *
+ * {@nx.xml.usage
+ * <serializer class="JsonDataStoreSerializer"/>
+ * }
+ *
+ * @since 3.2.0
+ */
+public class JsonDataStoreSerializer implements IDataStoreSerializer {
+
+    // Use a GsonBuilder and register a TypeAdapter for java.time.ZonedDateTime
+    // to avoid illegal reflective access errors under the Java module system.
+    static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(
+                    ZonedDateTime.class, new ZonedDateTimeTypeAdapter())
+            .create();
+
+    @Override
+    public byte[] toBytes(Object object) {
+        return GSON.toJson(object).getBytes(UTF_8);
+    }
+
+    @Override
+    public <T> T fromBytes(byte[] bytes, Class<T> type) {
+        return GSON.fromJson(new String(bytes, UTF_8), type);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+
+    // TypeAdapter for ZonedDateTime serializing to/from ISO-8601 string
+    private static class ZonedDateTimeTypeAdapter
+            extends TypeAdapter<ZonedDateTime> {
+        @Override
+        public void write(JsonWriter out, ZonedDateTime value)
+                throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(value.toString());
+            }
+        }
+        @Override
+        public ZonedDateTime read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return ZonedDateTime.parse(in.nextString());
+        }
+    }
+}
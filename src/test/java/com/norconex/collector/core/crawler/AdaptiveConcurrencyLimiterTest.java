@@ -0,0 +1,78 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.crawler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testIncreaseDecrease() {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(1, 4);
+        Assertions.assertEquals(1, limiter.getLimit());
+
+        // steady latency at full use: grows up to max
+        for (int i = 0; i < 50; i++) {
+            saturate(limiter, 100, true);
+        }
+        Assertions.assertEquals(4, limiter.getLimit());
+
+        // errors: shrinks down to min
+        for (int i = 0; i < 50; i++) {
+            saturate(limiter, 100, false);
+        }
+        Assertions.assertEquals(1, limiter.getLimit());
+
+        // grows again, then a few slow references do not affect it
+        for (int i = 0; i < 50; i++) {
+            saturate(limiter, 100, true);
+        }
+        Assertions.assertEquals(4, limiter.getLimit());
+        for (int i = 0; i < 100; i++) {
+            saturate(limiter, i % 20 == 0 ? 1000 : 100, true);
+        }
+        Assertions.assertEquals(4, limiter.getLimit());
+
+        // but most references getting slower shrinks it
+        for (int i = 0; i < AdaptiveConcurrencyLimiter.WINDOW_SIZE; i++) {
+            saturate(limiter, 1000, true);
+        }
+        Assertions.assertTrue(limiter.getLimit() < 4);
+    }
+
+    @Test
+    void testCancelledAcquire() {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(1, 1);
+        Assertions.assertTrue(limiter.acquire(() -> false));
+        Assertions.assertFalse(limiter.acquire(() -> true));
+        limiter.release(-1, true);
+        Assertions.assertTrue(limiter.acquire(() -> true));
+    }
+
+    // Acquires up to the current limit then releases them all.
+    private static void saturate(AdaptiveConcurrencyLimiter limiter,
+            long latency, boolean success) {
+        int count = limiter.getLimit();
+        for (int i = 0; i < count; i++) {
+            Assertions.assertTrue(limiter.acquire(() -> true));
+        }
+        for (int i = 0; i < count; i++) {
+            limiter.release(latency, success);
+        }
+    }
+}
@@ -20,6 +20,9 @@ import org.junit.jupiter.api.Test;
 import com.norconex.collector.core.checksum.impl.GenericMetadataChecksummer;
 import com.norconex.collector.core.checksum.impl.MD5DocumentChecksummer;
 import com.norconex.collector.core.crawler.CrawlerConfig.OrphansStrategy;
+import com.norconex.collector.core.queue.impl.GenericQueuePrioritizer;
+import com.norconex.collector.core.store.DataStoreDurability;
+import com.norconex.commons.lang.text.TextMatcher;
 import com.norconex.commons.lang.xml.XML;
 
 
@@ -35,9 +38,25 @@ public class CrawlerConfigTest {
         c.setMaxDocuments(33);
         c.setMetadataChecksummer(new GenericMetadataChecksummer());
         c.setNumThreads(3);
+        c.setVirtualThreads(true);
+        c.setMaxVirtualThreads(500);
+        c.setAdaptiveThreads(true);
+        c.setMinThreads(2);
+        c.setCommitThreads(4);
+        c.setCommitQueueSize(20);
         c.setDocumentDeduplicate(true);
         c.setMetadataDeduplicate(true);
         c.setOrphansStrategy(OrphansStrategy.IGNORE);
+        c.setMemoryQueue(true);
+        c.setPollBatchSize(50);
+        c.setReferenceIndex(true);
+        GenericQueuePrioritizer prioritizer = new GenericQueuePrioritizer();
+        prioritizer.setDefaultPriority(1);
+        prioritizer.addRule(TextMatcher.regex(".*/news/.*"), 9);
+        c.setQueuePrioritizer(prioritizer);
+        c.setDataStoreDurability(DataStoreDurability.ON_CHECKPOINT);
+        c.setDataStoreCheckpointInterval(10000);
+        c.setDataStoreStaged(true);
         XML.assertWriteRead(c, "crawler");
     }
 
@@ -0,0 +1,62 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.crawler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PipelineStageTest {
+
+    @Test
+    void testBackPressureAndClose() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger done = new AtomicInteger();
+        PipelineStage stage = new PipelineStage("test", "commit", 1, 1);
+
+        // one running, one queued
+        for (int i = 0; i < 2; i++) {
+            stage.submit(() -> {
+                await(release);
+                done.incrementAndGet();
+            });
+        }
+
+        // queue is full: submitting waits until there is room
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread submitter = new Thread(() -> {
+            stage.submit(done::incrementAndGet);
+            submitted.countDown();
+        });
+        submitter.start();
+        Assertions.assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        Assertions.assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        stage.close();
+        Assertions.assertEquals(3, done.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
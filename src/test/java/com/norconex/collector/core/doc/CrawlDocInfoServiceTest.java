@@ -0,0 +1,197 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.doc;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.collector.core.MockCollector;
+import com.norconex.collector.core.MockCollectorConfig;
+import com.norconex.collector.core.crawler.MockCrawler;
+import com.norconex.collector.core.crawler.MockCrawlerConfig;
+import com.norconex.collector.core.queue.IQueuePrioritizer;
+
+// Tests with the in-memory queue, unless stated otherwise.
+class CrawlDocInfoServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testQueuePollProcessed() {
+        inNewSession(service -> {
+            Assertions.assertFalse(service.open());
+            service.queue(new CrawlDocInfo("ref1"));
+            service.queueAll(List.of(
+                    new CrawlDocInfo("ref2"), new CrawlDocInfo("ref3")));
+            Assertions.assertEquals(3, service.getQueueCount());
+
+            List<CrawlDocInfo> polled = service.pollQueue(2);
+            Assertions.assertEquals(2, polled.size());
+            Assertions.assertEquals("ref1", polled.get(0).getReference());
+            Assertions.assertEquals("ref2", polled.get(1).getReference());
+            Assertions.assertEquals(2, service.getActiveCount());
+
+            polled.forEach(service::processed);
+            Assertions.assertEquals(0, service.getActiveCount());
+            Assertions.assertEquals(2, service.getProcessedCount());
+            Assertions.assertEquals("ref3",
+                    service.pollQueue().get().getReference());
+            Assertions.assertTrue(service.pollQueue().isEmpty());
+        });
+    }
+
+    @Test
+    void testDuplicates() {
+        inNewSession(service -> {
+            service.open();
+            service.queue(new CrawlDocInfo("ref1"));
+            service.queue(new CrawlDocInfo("ref1"));
+            service.queueAll(List.of(
+                    new CrawlDocInfo("ref1"), new CrawlDocInfo("ref2")));
+
+            List<CrawlDocInfo> polled = service.pollQueue(10);
+            Assertions.assertEquals(2, polled.size());
+
+            // requeued once only, even if requested twice
+            service.requeue(polled);
+            service.requeue(polled);
+            Assertions.assertEquals(2, service.pollQueue(10).size());
+            Assertions.assertTrue(service.pollQueue().isEmpty());
+        });
+    }
+
+    @Test
+    void testResume() {
+        inNewSession(service -> {
+            service.open();
+            service.queueAll(List.of(new CrawlDocInfo("ref1"),
+                    new CrawlDocInfo("ref2"), new CrawlDocInfo("ref3")));
+            service.processed(service.pollQueue().get());
+            // left active, as if the crawler stopped abruptly
+            service.pollQueue();
+        });
+        inNewSession(service -> {
+            Assertions.assertTrue(service.open());
+            Assertions.assertEquals(2, service.getQueueCount());
+            Assertions.assertEquals(1, service.getProcessedCount());
+            Assertions.assertEquals(2, service.pollQueue(10).size());
+            Assertions.assertTrue(service.pollQueue().isEmpty());
+        });
+    }
+
+    @Test
+    void testResumeWithoutPrioritizer() {
+        // "high" references have a higher priority
+        IQueuePrioritizer prioritizer =
+                d -> d.getReference().startsWith("high") ? 5 : 0;
+        for (boolean memoryQueue : new boolean[] {true, false}) {
+            inNewSession(memoryQueue, prioritizer, service -> {
+                service.open();
+                service.queueAll(List.of(new CrawlDocInfo("low1"),
+                        new CrawlDocInfo("high1"), new CrawlDocInfo("high2")));
+                // left active, as if the crawler stopped abruptly
+                Assertions.assertEquals(
+                        "high1", service.pollQueue().get().getReference());
+            });
+            inNewSession(memoryQueue, null, service -> {
+                Assertions.assertTrue(service.open());
+                Assertions.assertEquals(3, service.getQueueCount());
+                List<CrawlDocInfo> polled = service.pollQueue(10);
+                Assertions.assertEquals(3, polled.size());
+                polled.forEach(service::processed);
+                Assertions.assertTrue(service.pollQueue().isEmpty());
+            });
+            // nothing left behind
+            inNewSession(memoryQueue, null, service -> {
+                Assertions.assertFalse(service.open());
+                Assertions.assertTrue(service.isQueueEmpty());
+            });
+        }
+    }
+
+    @Test
+    void testCountsWithStoreQueue() {
+        assertCountsMatchStore(false);
+    }
+
+    @Test
+    void testCountsWithMemoryQueue() {
+        assertCountsMatchStore(true);
+    }
+
+    // Saving the same references again is only reflected in counters
+    // obtained from the data store when resuming, unless queued in memory.
+    private void assertCountsMatchStore(boolean memoryQueue) {
+        inNewSession(memoryQueue, service -> {
+            service.open();
+            service.queue(new CrawlDocInfo("ref1"));
+            service.queue(new CrawlDocInfo("ref1"));
+            service.queueAll(List.of(new CrawlDocInfo("ref1"),
+                    new CrawlDocInfo("ref2"), new CrawlDocInfo("ref3")));
+            if (memoryQueue) {
+                Assertions.assertEquals(3, service.getQueueCount());
+            }
+
+            List<CrawlDocInfo> polled = service.pollQueue(2);
+            service.requeue(polled.subList(0, 1));
+            service.requeue(polled.subList(0, 1));
+            if (memoryQueue) {
+                Assertions.assertEquals(2, service.getQueueCount());
+            }
+            Assertions.assertEquals(1, service.getActiveCount());
+
+            service.processed(polled.get(1));
+            service.processed(polled.get(1));
+            Assertions.assertEquals(0, service.getActiveCount());
+        });
+        inNewSession(memoryQueue, service -> {
+            Assertions.assertTrue(service.open());
+            Assertions.assertEquals(2, service.getQueueCount());
+            Assertions.assertEquals(0, service.getActiveCount());
+            Assertions.assertEquals(1, service.getProcessedCount());
+        });
+    }
+
+    private void inNewSession(Consumer<CrawlDocInfoService> c) {
+        inNewSession(true, c);
+    }
+    private void inNewSession(
+            boolean memoryQueue, Consumer<CrawlDocInfoService> c) {
+        inNewSession(memoryQueue, null, c);
+    }
+    private void inNewSession(boolean memoryQueue,
+            IQueuePrioritizer prioritizer, Consumer<CrawlDocInfoService> c) {
+        MockCollectorConfig collConfig = new MockCollectorConfig();
+        collConfig.setWorkDir(tempDir);
+        MockCrawlerConfig crawlConfig = new MockCrawlerConfig();
+        crawlConfig.setId("test");
+        crawlConfig.setMemoryQueue(memoryQueue);
+        crawlConfig.setQueuePrioritizer(prioritizer);
+        MockCrawler crawler = new MockCrawler(
+                crawlConfig, new MockCollector(collConfig));
+        try {
+            crawler.initMockCrawler();
+            c.accept(crawler.getDocInfoService());
+        } finally {
+            crawler.destroyMockCrawler();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.doc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PriorityLevelQueueTest {
+
+    @Test
+    void testPollOrder() {
+        // priority is the first character
+        PriorityLevelQueue<String> queue = new PriorityLevelQueue<>(
+                9, s -> Character.getNumericValue(s.charAt(0)));
+        Assertions.assertTrue(queue.isEmpty());
+
+        queue.addAll(List.of("0a", "5a", "9a", "0b", "5b", "9b"));
+        Assertions.assertEquals(6, queue.size());
+        Assertions.assertEquals("9a", queue.peek());
+        Assertions.assertEquals(
+                List.of("9a", "9b", "5a", "5b", "0a", "0b"),
+                new ArrayList<>(queue));
+
+        List<String> polled = new ArrayList<>();
+        String s;
+        while ((s = queue.poll()) != null) {
+            polled.add(s);
+        }
+        Assertions.assertEquals(
+                List.of("9a", "9b", "5a", "5b", "0a", "0b"), polled);
+        Assertions.assertTrue(queue.isEmpty());
+    }
+}
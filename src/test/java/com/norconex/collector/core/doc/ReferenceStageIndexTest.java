@@ -0,0 +1,54 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.doc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.core.doc.CrawlDocInfo.Stage;
+
+class ReferenceStageIndexTest {
+
+    @Test
+    void testPutGet() {
+        ReferenceStageIndex index = new ReferenceStageIndex();
+        Assertions.assertNull(index.get("http://example.com/a"));
+
+        index.put("http://example.com/a", Stage.QUEUED);
+        Assertions.assertEquals(Stage.QUEUED,
+                index.get("http://example.com/a"));
+
+        index.put("http://example.com/a", Stage.ACTIVE);
+        index.put("http://example.com/a", Stage.PROCESSED);
+        Assertions.assertEquals(Stage.PROCESSED,
+                index.get("http://example.com/a"));
+        Assertions.assertEquals(1, index.size());
+    }
+
+    @Test
+    void testGrow() {
+        // enough entries to force every segment to grow a few times
+        ReferenceStageIndex index = new ReferenceStageIndex();
+        for (int i = 0; i < 200_000; i++) {
+            index.put("http://example.com/" + i, Stage.QUEUED);
+        }
+        Assertions.assertEquals(200_000, index.size());
+        for (int i = 0; i < 200_000; i++) {
+            Assertions.assertEquals(Stage.QUEUED,
+                    index.get("http://example.com/" + i));
+        }
+        Assertions.assertNull(index.get("http://example.com/none"));
+    }
+}
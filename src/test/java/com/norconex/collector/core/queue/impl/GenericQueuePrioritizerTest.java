@@ -0,0 +1,49 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.queue.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.core.doc.CrawlDocInfo;
+import com.norconex.commons.lang.text.TextMatcher;
+import com.norconex.commons.lang.xml.XML;
+
+class GenericQueuePrioritizerTest {
+
+    @Test
+    void testGetPriority() {
+        GenericQueuePrioritizer p = prioritizer();
+        Assertions.assertEquals(9, p.getPriority(
+                new CrawlDocInfo("http://example.com/news/a.html")));
+        Assertions.assertEquals(5, p.getPriority(
+                new CrawlDocInfo("http://example.com/b.html")));
+        Assertions.assertEquals(1, p.getPriority(
+                new CrawlDocInfo("http://example.com/c.pdf")));
+    }
+
+    @Test
+    void testWriteRead() {
+        XML.assertWriteRead(prioritizer(), "queuePrioritizer");
+    }
+
+    private GenericQueuePrioritizer prioritizer() {
+        GenericQueuePrioritizer p = new GenericQueuePrioritizer();
+        p.setDefaultPriority(1);
+        p.addRule(TextMatcher.regex(".*/news/.*"), 9);
+        p.addRule(TextMatcher.wildcard("*.html"), 5);
+        return p;
+    }
+}
@@ -16,6 +16,12 @@ package com.norconex.collector.core.store;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Assertions;
@@ -216,13 +222,209 @@ public abstract class AbstractDataStoreEngineTest {
         });
     }
 
+    @Test
+    void testSaveAllFindAll() {
+        Map<String, TestObject> batch = threePojos();
+        inNewStoreSession((store) -> {
+            store.saveAll(batch);
+        });
+        inNewStoreSession((store) -> {
+            Assertions.assertEquals(3, store.count());
+            Map<String, TestObject> found = store.findAll(Arrays.asList(
+                    "areference", "creference", "zreference"));
+            Assertions.assertEquals(2, found.size());
+            Assertions.assertEquals(
+                    batch.get("areference"), found.get("areference"));
+            Assertions.assertEquals(
+                    batch.get("creference"), found.get("creference"));
+        });
+    }
+
+    @Test
+    void testDeleteAll() {
+        inNewStoreSession((store) -> {
+            store.saveAll(threePojos());
+        });
+        inNewStoreSession((store) -> {
+            Assertions.assertEquals(2, store.deleteAll(Arrays.asList(
+                    "areference", "breference", "zreference")));
+        });
+        inNewStoreSession((store) -> {
+            Assertions.assertEquals(1, store.count());
+            Assertions.assertTrue(store.exists("creference"));
+        });
+    }
+
+    @Test
+    void testDeleteFirstBatch() {
+        Map<String, TestObject> batch = threePojos();
+        inNewStoreSession((store) -> {
+            store.saveAll(batch);
+        });
+        inNewStoreSession((store) -> {
+            List<TestObject> deleted = store.deleteFirst(2);
+            Assertions.assertEquals(2, deleted.size());
+            Assertions.assertTrue(batch.values().containsAll(deleted));
+            Assertions.assertEquals(1, store.count());
+        });
+        inNewStoreSession((store) -> {
+            Assertions.assertEquals(1, store.deleteFirst(5).size());
+            Assertions.assertTrue(store.deleteFirst(5).isEmpty());
+            Assertions.assertTrue(store.isEmpty());
+        });
+    }
+
+    @Test
+    void testForEachParallel() {
+        Map<String, TestObject> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            String ref = "reference" + i;
+            batch.put(ref, new TestObject(ref, i, "checksum" + i, "parent"));
+        }
+        inNewStoreSession((store) -> {
+            store.saveAll(batch);
+        });
+        inNewStoreSession((store) -> {
+            Set<String> ids = ConcurrentHashMap.newKeySet();
+            Assertions.assertTrue(store.forEachParallel(4, (k, v) -> {
+                Assertions.assertEquals(batch.get(k), v);
+                Assertions.assertTrue(ids.add(k));
+                return true;
+            }));
+            Assertions.assertEquals(batch.keySet(), ids);
+
+            // stopping early
+            Assertions.assertFalse(
+                    store.forEachParallel(4, (k, v) -> false));
+        });
+    }
+
+    @Test
+    void testStagedMoves() {
+        inNewStagedStoreSession((store) -> {
+            store.saveAll("queued", threePojos());
+        });
+        inNewStagedStoreSession((store) -> {
+            List<TestObject> polled = store.moveFirst("queued", "active", 2);
+            Assertions.assertEquals(2, polled.size());
+            Assertions.assertEquals(1, store.count("queued"));
+            Assertions.assertEquals(2, store.count("active"));
+
+            TestObject processed = polled.get(0);
+            processed.setCount(99);
+            Assertions.assertTrue(store.move(processed.getReference(),
+                    processed, "active", "processed"));
+            Assertions.assertFalse(
+                    store.exists("active", processed.getReference()));
+            Assertions.assertEquals(processed, store.find(
+                    "processed", processed.getReference()).get());
+
+            TestObject requeued = polled.get(1);
+            Assertions.assertEquals(1, store.moveAll(
+                    Map.of(requeued.getReference(), requeued),
+                    "active", "queued"));
+            Assertions.assertTrue(store.isEmpty("active"));
+            Assertions.assertEquals(2, store.count("queued"));
+        });
+        inNewStagedStoreSession((store) -> {
+            Assertions.assertEquals(1, store.moveAll("processed", "cached"));
+            Assertions.assertTrue(store.isEmpty("processed"));
+            Assertions.assertEquals(1, store.count("cached"));
+            Assertions.assertEquals(2, store.count("queued"));
+        });
+    }
+
+    // An object left in the target stage (e.g., active when resuming)
+    // must not prevent moving the same object from the source stage.
+    @Test
+    void testStagedMoveFirstToExisting() {
+        inNewStagedStoreSession((store) -> {
+            TestObject stale = new TestObject(
+                    obj.getReference(), 1, "stale", "parent");
+            store.save("active", obj.getReference(), stale);
+            store.saveAll("queued", threePojos());
+
+            List<TestObject> polled = store.moveFirst("queued", "active", 10);
+            Assertions.assertEquals(3, polled.size());
+            Assertions.assertTrue(store.isEmpty("queued"));
+            Assertions.assertEquals(3, store.count("active"));
+            Assertions.assertEquals(obj,
+                    store.find("active", obj.getReference()).get());
+        });
+    }
+
+    @Test
+    void testTruncateSwapStores() {
+        inNewEngineSession(engine -> {
+            try (IDataStore<TestObject> store1 = engine.openStore(
+                    TEST_STORE_NAME + "1", TestObject.class);
+                    IDataStore<TestObject> store2 = engine.openStore(
+                            TEST_STORE_NAME + "2", TestObject.class)) {
+                store1.saveAll(threePojos());
+                store2.save(obj.getReference(), obj);
+
+                engine.swapStores(store1, store2);
+                Assertions.assertEquals(TEST_STORE_NAME + "2",
+                        store1.getName());
+                Assertions.assertEquals(TEST_STORE_NAME + "1",
+                        store2.getName());
+                Assertions.assertEquals(3, store1.count());
+                Assertions.assertEquals(1, store2.count());
+
+                engine.truncateStore(store1);
+                Assertions.assertTrue(store1.isEmpty());
+                store1.save(obj.getReference(), obj);
+                Assertions.assertTrue(store1.exists(obj.getReference()));
+            }
+        });
+        inNewEngineSession(engine -> {
+            try (IDataStore<TestObject> store = engine.openStore(
+                    TEST_STORE_NAME + "1", TestObject.class)) {
+                Assertions.assertEquals(1, store.count());
+            }
+        });
+    }
+
+    private Map<String, TestObject> threePojos() {
+        Map<String, TestObject> batch = new LinkedHashMap<>();
+        batch.put("areference", obj);
+        batch.put("breference",
+                new TestObject("breference", 67, "blah", "ipsum"));
+        batch.put("creference",
+                new TestObject("creference", 68, "dolor", "sit"));
+        return batch;
+    }
+
     private void savePojo(TestObject testPojo) {
         inNewStoreSession((store) -> {
             store.save(testPojo.getReference(), testPojo);
         });
     }
 
-    private void inNewStoreSession(Consumer<IDataStore<TestObject>> c) {
+    protected void inNewStoreSession(Consumer<IDataStore<TestObject>> c) {
+        inNewEngineSession(engine -> {
+            try (IDataStore<TestObject> store =
+                    engine.openStore(TEST_STORE_NAME, TestObject.class)) {
+                c.accept(store);
+            }
+        });
+    }
+
+    // Uses one data store per stage when not supported by the engine.
+    protected void inNewStagedStoreSession(
+            Consumer<IStagedDataStore<TestObject>> c) {
+        inNewEngineSession(engine -> {
+            try (IStagedDataStore<TestObject> store = engine.openStagedStore(
+                    TEST_STORE_NAME + "Staged", TestObject.class)
+                    .orElseGet(() -> new PerStageDataStore<>(
+                            engine, TEST_STORE_NAME + "Staged",
+                            TestObject.class, TestObject::getReference))) {
+                c.accept(store);
+            }
+        });
+    }
+
+    protected void inNewEngineSession(Consumer<IDataStoreEngine> c) {
         IDataStoreEngine engine = createEngine();
         MockCollectorConfig collConfig = new MockCollectorConfig();
         collConfig.setWorkDir(tempFolder.resolve("storeEngine"));
@@ -233,10 +435,7 @@ public abstract class AbstractDataStoreEngineTest {
         try {
             crawler.initMockCrawler();
             LOG.debug("Start data store test...");
-            try (IDataStore<TestObject> store =
-                    engine.openStore(TEST_STORE_NAME, TestObject.class)) {
-                c.accept(store);
-            }
+            c.accept(engine);
             LOG.debug("Data store test done.");
         } finally {
             crawler.destroyMockCrawler();
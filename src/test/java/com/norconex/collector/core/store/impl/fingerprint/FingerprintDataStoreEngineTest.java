@@ -0,0 +1,72 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.fingerprint;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.core.store.AbstractDataStoreEngineTest;
+import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.TestObject;
+import com.norconex.collector.core.store.impl.mvstore.MVStoreDataStoreEngine;
+import com.norconex.commons.lang.xml.XML;
+
+public class FingerprintDataStoreEngineTest
+        extends AbstractDataStoreEngineTest {
+
+    @Override
+    protected IDataStoreEngine createEngine() {
+        return new FingerprintDataStoreEngine(new MVStoreDataStoreEngine());
+    }
+
+    // Fingerprints are not ordered, but records are read in the order
+    // they were first saved.
+    @Test
+    void testFifoOrder() {
+        Map<String, TestObject> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            String ref = "reference" + i;
+            batch.put(ref, new TestObject(ref, i, "checksum" + i, "parent"));
+        }
+        List<String> expected = new ArrayList<>(batch.keySet());
+        expected.add("afterReopen");
+        inNewStoreSession(store -> store.saveAll(batch));
+        inNewStoreSession(store -> {
+            // updating keeps the original position
+            store.save("reference0", batch.get("reference0"));
+            store.save("afterReopen", new TestObject(
+                    "afterReopen", 0, "checksum", "parent"));
+        });
+        inNewStoreSession(store -> {
+            Assertions.assertTrue(store.exists("reference50"));
+            List<String> actual = new ArrayList<>();
+            store.deleteFirst(200).forEach(
+                    obj -> actual.add(obj.getReference()));
+            Assertions.assertEquals(expected, actual);
+            Assertions.assertFalse(store.exists("reference50"));
+        });
+    }
+
+    @Test
+    void testWriteRead() {
+        XML.assertWriteRead(new FingerprintDataStoreEngine(
+                new MVStoreDataStoreEngine()), "dataStoreEngine");
+    }
+}
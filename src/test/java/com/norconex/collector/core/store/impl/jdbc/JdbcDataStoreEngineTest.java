@@ -14,13 +14,26 @@
  */
 package com.norconex.collector.core.store.impl.jdbc;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.norconex.collector.core.store.AbstractDataStoreEngineTest;
+import com.norconex.collector.core.store.IDataStore;
 import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.TestObject;
 import com.norconex.commons.lang.map.Properties;
 
 public class JdbcDataStoreEngineTest extends AbstractDataStoreEngineTest {
@@ -28,6 +41,10 @@ public class JdbcDataStoreEngineTest extends AbstractDataStoreEngineTest {
     private static final Logger LOG =
             LoggerFactory.getLogger(JdbcDataStoreEngineTest.class);
 
+    // added to the default datasource configuration by some tests
+    private final Properties datasourceConfig = new Properties();
+    private int fetchSize = JdbcDataStoreEngine.DEFAULT_FETCH_SIZE;
+
     @Override
     protected IDataStoreEngine createEngine() {
         return Assertions.assertDoesNotThrow(() -> {
@@ -37,8 +54,124 @@ public class JdbcDataStoreEngineTest extends AbstractDataStoreEngineTest {
             JdbcDataStoreEngine engine = new JdbcDataStoreEngine();
             Properties cfg = new Properties();
             cfg.add("jdbcUrl", connStr);
+            cfg.putAll(datasourceConfig);
             engine.setConfigProperties(cfg);
+            engine.setFetchSize(fetchSize);
             return engine;
         });
     }
+
+    // Records saved right after a large batch, or after reopening the
+    // store, must be read after that batch.
+    @Test
+    void testFifoOrder() {
+        Map<String, TestObject> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            String ref = "reference" + i;
+            batch.put(ref, new TestObject(ref, i, "checksum" + i, "parent"));
+        }
+        List<String> expected = new ArrayList<>(batch.keySet());
+        expected.add("afterBatch");
+        expected.add("afterReopen");
+        inNewStoreSession(store -> {
+            store.saveAll(batch);
+            store.save("afterBatch", new TestObject(
+                    "afterBatch", 0, "checksum", "parent"));
+        });
+        inNewStoreSession(store -> {
+            store.save("afterReopen", new TestObject(
+                    "afterReopen", 0, "checksum", "parent"));
+        });
+        inNewStoreSession(store -> {
+            List<String> actual = new ArrayList<>();
+            store.deleteFirst(2000).forEach(
+                    obj -> actual.add(obj.getReference()));
+            Assertions.assertEquals(expected, actual);
+        });
+    }
+
+    // Renaming tables is not transactional on H2, so swaps interrupted
+    // after the first or second rename must be recovered on startup.
+    @Test
+    void testRecoverInterruptedSwap() {
+        // stopped after first rename: reverted
+        interruptSwap(1);
+        assertStoreCounts(3, 1);
+        // stopped after second rename: completed
+        interruptSwap(2);
+        assertStoreCounts(1, 3);
+    }
+    private void interruptSwap(int renames) {
+        inNewEngineSession(engine -> {
+            JdbcDataStoreEngine jdbcEngine = (JdbcDataStoreEngine) engine;
+            try (IDataStore<TestObject> store1 = engine.openStore(
+                    "swap1", TestObject.class);
+                    IDataStore<TestObject> store2 = engine.openStore(
+                            "swap2", TestObject.class);
+                    JdbcDataStore<String> storeTypes = new JdbcDataStore<>(
+                            jdbcEngine, "_storetypes", String.class)) {
+                store1.clear();
+                store2.clear();
+                for (int i = 0; i < 3; i++) {
+                    store1.save("ref" + i, new TestObject(
+                            "ref" + i, i, "checksum", "parent"));
+                }
+                store2.save("ref", new TestObject(
+                        "ref", 0, "checksum", "parent"));
+                storeTypes.save("swap1_swap", "swap2");
+                List<String> statements = List.of(
+                        "ALTER TABLE " + jdbcEngine.tableName("swap1")
+                        + " RENAME TO " + jdbcEngine.tableName("swap1_swap"),
+                        "ALTER TABLE " + jdbcEngine.tableName("swap2")
+                        + " RENAME TO " + jdbcEngine.tableName("swap1"));
+                try (Connection conn = jdbcEngine.getConnection();
+                        Statement stmt = conn.createStatement()) {
+                    for (int i = 0; i < renames; i++) {
+                        stmt.executeUpdate(statements.get(i));
+                    }
+                } catch (SQLException e) {
+                    Assertions.fail(e);
+                }
+            }
+        });
+    }
+    private void assertStoreCounts(long count1, long count2) {
+        inNewEngineSession(engine -> {
+            Assertions.assertFalse(engine.getStoreNames().stream()
+                    .anyMatch(n -> n.equalsIgnoreCase("swap1_swap")));
+            try (IDataStore<TestObject> store1 = engine.openStore(
+                    "swap1", TestObject.class);
+                    IDataStore<TestObject> store2 = engine.openStore(
+                            "swap2", TestObject.class)) {
+                Assertions.assertEquals(count1, store1.count());
+                Assertions.assertEquals(count2, store2.count());
+            }
+        });
+    }
+
+    // Predicates using the store from more threads than there are
+    // pooled connections must not wait for a connection forever,
+    // including when moving the records being iterated over.
+    @Test
+    void testForEachParallelExceedingPoolSize() {
+        datasourceConfig.add("maximumPoolSize", "2");
+        datasourceConfig.add("connectionTimeout", "5000");
+        fetchSize = 5;
+        Map<String, TestObject> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            String ref = "reference" + i;
+            batch.put(ref, new TestObject(ref, i, "checksum" + i, "parent"));
+        }
+        inNewStagedStoreSession(store -> {
+            store.saveAll("cached", batch);
+            Set<String> ids = ConcurrentHashMap.newKeySet();
+            Assertions.assertTrue(store.forEachParallel("cached", 4, (k, v) -> {
+                Assertions.assertTrue(ids.add(k));
+                return store.move(k, v, "cached", "queued");
+            }));
+            Assertions.assertEquals(batch.keySet(), ids);
+            Assertions.assertTrue(store.isEmpty("cached"));
+            Assertions.assertEquals(100, store.count("queued"));
+        });
+    }
 }
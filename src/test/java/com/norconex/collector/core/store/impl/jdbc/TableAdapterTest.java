@@ -0,0 +1,91 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.core.store.impl.jdbc.TableAdapter.Dequeue;
+import com.norconex.collector.core.store.impl.jdbc.TableAdapter.Upsert;
+
+class TableAdapterTest {
+
+    @Test
+    void testDetect() {
+        TableAdapter h2 = TableAdapter.detect("jdbc:h2:file:./test");
+        Assertions.assertEquals(Dequeue.DELETE_DELTA_TABLE, h2.dequeue());
+        Assertions.assertEquals(Upsert.MERGE, h2.upsert());
+
+        TableAdapter pg = TableAdapter.detect("jdbc:postgresql://host/db");
+        Assertions.assertEquals(Dequeue.DELETE_RETURNING, pg.dequeue());
+        Assertions.assertEquals(Upsert.ON_CONFLICT, pg.upsert());
+
+        TableAdapter mysql = TableAdapter.detect("jdbc:mysql://host/db");
+        Assertions.assertEquals(Dequeue.SELECT_SKIP_LOCKED, mysql.dequeue());
+        Assertions.assertEquals(Upsert.ON_DUPLICATE_KEY, mysql.upsert());
+    }
+
+    @Test
+    void testDatabaseVersion() {
+        TableAdapter mysql = TableAdapter.detect("jdbc:mysql://host/db");
+        Assertions.assertEquals(Dequeue.SELECT_SKIP_LOCKED, mysql
+                .withDatabaseVersion("MySQL", 8, 0).dequeue());
+        Assertions.assertEquals(Dequeue.SELECT_THEN_DELETE, mysql
+                .withDatabaseVersion("MySQL", 5, 7).dequeue());
+        Assertions.assertEquals(Dequeue.SELECT_SKIP_LOCKED, mysql
+                .withDatabaseVersion("MariaDB", 10, 6).dequeue());
+        Assertions.assertEquals(Dequeue.SELECT_THEN_DELETE, mysql
+                .withDatabaseVersion("MariaDB", 10, 5).dequeue());
+
+        // other dequeue options do not depend on the version
+        TableAdapter pg = TableAdapter.detect("jdbc:postgresql://host/db");
+        Assertions.assertEquals(Dequeue.DELETE_RETURNING, pg
+                .withDatabaseVersion("PostgreSQL", 9, 4).dequeue());
+    }
+
+    @Test
+    void testUpsertSql() {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("stage", "VARCHAR(32)");
+        columns.put("id", "VARCHAR(2048)");
+        columns.put("data", "BLOB");
+
+        Assertions.assertEquals("INSERT INTO tbl (stage, id, data) "
+                + "VALUES (?, ?, ?) ON CONFLICT (stage, id) "
+                + "DO UPDATE SET data = EXCLUDED.data, json = NULL",
+                TableAdapter.detect("jdbc:postgresql://host/db")
+                        .upsertSql("tbl", columns, 2, "json"));
+
+        Assertions.assertEquals("INSERT INTO tbl (stage, id, data) "
+                + "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE "
+                + "data = VALUES(data)",
+                TableAdapter.detect("jdbc:mysql://host/db")
+                        .upsertSql("tbl", columns, 2));
+
+        Assertions.assertEquals("MERGE INTO tbl AS t USING (SELECT "
+                + "CAST(? AS VARCHAR(32)) AS stage, "
+                + "CAST(? AS VARCHAR(2048)) AS id, "
+                + "CAST(? AS BLOB) AS data FROM DUAL) AS s "
+                + "ON t.stage = s.stage AND t.id = s.id "
+                + "WHEN NOT MATCHED THEN INSERT (stage, id, data) "
+                + "VALUES (s.stage, s.id, s.data) "
+                + "WHEN MATCHED THEN UPDATE SET t.data = s.data",
+                TableAdapter.detect("jdbc:h2:file:./test")
+                        .upsertSql("tbl", columns, 2));
+    }
+}
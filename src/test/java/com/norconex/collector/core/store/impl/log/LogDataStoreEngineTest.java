@@ -0,0 +1,114 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.collector.core.store.AbstractDataStoreEngineTest;
+import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.TestObject;
+import com.norconex.collector.core.store.impl.serializer.BinaryDataStoreSerializer;
+import com.norconex.collector.core.store.impl.serializer.JsonDataStoreSerializer;
+import com.norconex.commons.lang.xml.XML;
+
+public class LogDataStoreEngineTest extends AbstractDataStoreEngineTest {
+
+    @Override
+    protected IDataStoreEngine createEngine() {
+        LogDataStoreEngine engine = new LogDataStoreEngine();
+        // small segments to have tests span many of them
+        engine.setSegmentSize(1024);
+        return engine;
+    }
+
+    @Test
+    void testCompactAndReplay(@TempDir Path dir) throws IOException {
+        LogDataStore<TestObject> store = new LogDataStore<>(dir, "test",
+                TestObject.class, new BinaryDataStoreSerializer(), 1024);
+        for (int i = 0; i < 100; i++) {
+            store.save("ref" + i, new TestObject("ref" + i, i, "a", "b"));
+        }
+        // delete every other one, except the first, then compact
+        for (int i = 1; i < 100; i += 2) {
+            store.delete("ref" + i);
+        }
+        Path oldest = dir.resolve("000000000001.log");
+        Assertions.assertTrue(Files.exists(oldest));
+        store.compact(100);
+        Assertions.assertFalse(Files.exists(oldest));
+        Assertions.assertEquals(
+                98, store.find("ref98").get().getCount());
+        store.closeSegments();
+
+        store = new LogDataStore<>(dir, "test",
+                TestObject.class, new BinaryDataStoreSerializer(), 1024);
+        Assertions.assertEquals(50, store.count());
+        Assertions.assertEquals(
+                "ref0", store.findFirst().get().getReference());
+        Assertions.assertEquals(98, store.find("ref98").get().getCount());
+        Assertions.assertFalse(store.exists("ref99"));
+        store.closeSegments();
+    }
+
+    @Test
+    void testCompactLongLivedRecord(@TempDir Path dir) throws IOException {
+        LogDataStore<TestObject> store = new LogDataStore<>(dir, "test",
+                TestObject.class, new BinaryDataStoreSerializer(), 1024);
+        // a long-lived record in the oldest segment
+        store.save("keep", new TestObject("keep", 1, "a", "b"));
+        for (int i = 0; i < 200; i++) {
+            store.save("ref" + i, new TestObject("ref" + i, i, "a", "b"));
+            store.delete("ref" + i);
+        }
+        Assertions.assertTrue(segmentCount(dir) > 10);
+        store.compact(50);
+        Assertions.assertTrue(segmentCount(dir) <= 2);
+        store.closeSegments();
+
+        store = new LogDataStore<>(dir, "test",
+                TestObject.class, new BinaryDataStoreSerializer(), 1024);
+        Assertions.assertEquals(1, store.count());
+        Assertions.assertEquals(1, store.find("keep").get().getCount());
+        store.closeSegments();
+    }
+
+    @Test
+    void testCleanUninitialized() {
+        Assertions.assertFalse(new LogDataStoreEngine().clean());
+    }
+
+    @Test
+    void testWriteRead() {
+        LogDataStoreEngine engine = new LogDataStoreEngine();
+        engine.setSegmentSize(1000);
+        engine.setCompactFillRate(30);
+        engine.setCompactInterval(5000);
+        engine.setSerializer(new JsonDataStoreSerializer());
+        XML.assertWriteRead(engine, "dataStoreEngine");
+    }
+
+    private static long segmentCount(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
@@ -14,6 +14,13 @@
  */
 package com.norconex.collector.core.store.impl.mongodb;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testcontainers.containers.MongoDBContainer;
@@ -23,6 +30,7 @@ import org.testcontainers.utility.DockerImageName;
 
 import com.norconex.collector.core.store.AbstractDataStoreEngineTest;
 import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.TestObject;
 
 @Testcontainers(disabledWithoutDocker = true)
 class MongoDataStoreEngineTest extends AbstractDataStoreEngineTest {
@@ -34,6 +42,9 @@ class MongoDataStoreEngineTest extends AbstractDataStoreEngineTest {
     static MongoDBContainer mongoDBContainer =
             new MongoDBContainer(DockerImageName.parse("mongo:4.2.0"));
 
+    private boolean preserveOrderOnUpsert;
+    private int writeBufferSize;
+
     @Override
     protected IDataStoreEngine createEngine() {
         String connStr = "mongodb://"
@@ -43,6 +54,60 @@ class MongoDataStoreEngineTest extends AbstractDataStoreEngineTest {
         LOG.info("Creating new Mongo data store engine using: {}", connStr);
         MongoDataStoreEngine engine = new MongoDataStoreEngine();
         engine.setConnectionString(connStr);
+        engine.setPreserveOrderOnUpsert(preserveOrderOnUpsert);
+        engine.setWriteBufferSize(writeBufferSize);
         return engine;
     }
+
+    @Test
+    void testFifoOrder() {
+        // re-saved object moves to the back
+        Assertions.assertEquals(List.of(
+                "ref1", "ref2", "ref3", "ref4", "ref0"), saveAndPollAll());
+    }
+
+    @Test
+    void testPreserveOrderOnUpsert() {
+        preserveOrderOnUpsert = true;
+        Assertions.assertEquals(List.of(
+                "ref0", "ref1", "ref2", "ref3", "ref4"), saveAndPollAll());
+    }
+
+    @Test
+    void testWriteBuffer() {
+        writeBufferSize = 10;
+        Assertions.assertEquals(List.of(
+                "ref1", "ref2", "ref3", "ref4", "ref0"), saveAndPollAll());
+
+        inNewStoreSession(store -> {
+            TestObject obj = new TestObject("ref", 1, "checksum", "parent");
+            store.save("ref", obj);
+            Assertions.assertTrue(store.exists("ref"));
+            Assertions.assertEquals(obj, store.find("ref").get());
+            Assertions.assertTrue(store.delete("ref"));
+            Assertions.assertFalse(store.exists("ref"));
+            store.save("ref", obj);
+        });
+        // written on close
+        inNewStoreSession(store -> {
+            Assertions.assertEquals(1, store.count());
+        });
+    }
+
+    // Saves 5 objects, saving the first one again.
+    private List<String> saveAndPollAll() {
+        Map<String, TestObject> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            String ref = "ref" + i;
+            batch.put(ref, new TestObject(ref, i, "checksum" + i, "parent"));
+        }
+        inNewStoreSession(store -> {
+            store.saveAll(batch);
+            store.save("ref0", batch.get("ref0"));
+        });
+        List<String> refs = new ArrayList<>();
+        inNewStoreSession(store -> store.deleteFirst(10).forEach(
+                obj -> refs.add(obj.getReference())));
+        return refs;
+    }
 }
@@ -0,0 +1,52 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.mvstore;
+
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.core.store.AbstractDataStoreEngineTest;
+import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.impl.serializer.BinaryDataStoreSerializer;
+import com.norconex.commons.lang.xml.XML;
+
+// Data stores spread over many files, one with its own configuration.
+class MVStoreDataStoreEngineShardedTest
+        extends AbstractDataStoreEngineTest {
+
+    @Override
+    protected IDataStoreEngine createEngine() {
+        return shardedEngine();
+    }
+
+    @Test
+    void testWriteRead() {
+        XML.assertWriteRead(shardedEngine(), "dataStoreEngine");
+    }
+
+    private MVStoreDataStoreEngine shardedEngine() {
+        MVStoreDataStoreEngine engine = new MVStoreDataStoreEngine();
+        engine.setShards(3);
+        engine.setSerializer(new BinaryDataStoreSerializer());
+        MVStoreDataStoreConfig storeCfg = new MVStoreDataStoreConfig();
+        storeCfg.setCompress(2);
+        engine.setStoreConfiguration(TEST_STORE_NAME, storeCfg);
+        engine.setCompactWindowStart(LocalTime.of(22, 0));
+        engine.setCompactWindowEnd(LocalTime.of(6, 30));
+        engine.setCompactOnClose(false);
+        return engine;
+    }
+}
@@ -14,14 +14,86 @@
  */
 package com.norconex.collector.core.store.impl.mvstore;
 
+import java.time.LocalTime;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
 import com.norconex.collector.core.store.AbstractDataStoreEngineTest;
+import com.norconex.collector.core.store.IDataStore;
 import com.norconex.collector.core.store.IDataStoreEngine;
+import com.norconex.collector.core.store.TestObject;
 
 public class MVStoreDataStoreEngineTest extends AbstractDataStoreEngineTest {
 
+    // data store given its own configuration (and file) by some tests
+    private String configuredStore;
+
     @Override
     protected IDataStoreEngine createEngine() {
-        return new MVStoreDataStoreEngine();
+        MVStoreDataStoreEngine engine = new MVStoreDataStoreEngine();
+        if (configuredStore != null) {
+            engine.setStoreConfiguration(
+                    configuredStore, new MVStoreDataStoreConfig());
+        }
+        return engine;
+    }
+
+    // A data store renamed to a configured one must be moved to the
+    // configured store file, with both maps of fingerprint stores.
+    @Test
+    void testRenameToConfiguredStore() {
+        configuredStore = "cached";
+        TestObject obj = new TestObject("ref", 1, "checksum", "parent");
+        inNewEngineSession(engine -> {
+            MVStoreDataStoreEngine mvEngine = (MVStoreDataStoreEngine) engine;
+            IDataStore<TestObject> store =
+                    engine.openStore("processed", TestObject.class);
+            store.save("ref", obj);
+            Assertions.assertFalse(engine.renameStore(store, "cached"));
+            Assertions.assertEquals("cached", store.getName());
+            Assertions.assertEquals(obj, store.find("ref").get());
+            Assertions.assertTrue(mvEngine.file("cached").hasMap("cached"));
+            Assertions.assertFalse(
+                    mvEngine.file("processed").hasMap("processed"));
+            Assertions.assertNotSame(
+                    mvEngine.file("processed"), mvEngine.file("cached"));
+
+            IDataStore<TestObject> fpStore = mvEngine.openFingerprintStore(
+                    "processedfp", TestObject.class);
+            fpStore.save("ref", obj);
+            Assertions.assertTrue(engine.renameStore(fpStore, "cached"));
+            Assertions.assertEquals(obj, fpStore.find("ref").get());
+            Assertions.assertTrue(mvEngine.file("cached").hasMap(
+                    "cached" + MVStoreFingerprintDataStore.INDEX_SUFFIX));
+            Assertions.assertFalse(
+                    mvEngine.file("processedfp").hasMap("processedfp"));
+        });
+        inNewEngineSession(engine -> {
+            IDataStore<TestObject> store = ((MVStoreDataStoreEngine) engine)
+                    .openFingerprintStore("cached", TestObject.class);
+            Assertions.assertEquals(obj, store.find("ref").get());
+            Assertions.assertEquals(Set.of("cached"), engine.getStoreNames());
+        });
+    }
+
+    @Test
+    void testCompactWindow() {
+        MVStoreDataStoreEngine engine = new MVStoreDataStoreEngine();
+        Assertions.assertTrue(engine.isInCompactWindow(LocalTime.NOON));
+
+        engine.setCompactWindowStart(LocalTime.of(9, 0));
+        engine.setCompactWindowEnd(LocalTime.of(17, 0));
+        Assertions.assertTrue(engine.isInCompactWindow(LocalTime.NOON));
+        Assertions.assertFalse(engine.isInCompactWindow(LocalTime.of(17, 0)));
+
+        // spanning midnight
+        engine.setCompactWindowStart(LocalTime.of(22, 0));
+        engine.setCompactWindowEnd(LocalTime.of(6, 0));
+        Assertions.assertFalse(engine.isInCompactWindow(LocalTime.NOON));
+        Assertions.assertTrue(engine.isInCompactWindow(LocalTime.of(23, 0)));
+        Assertions.assertTrue(engine.isInCompactWindow(LocalTime.of(5, 0)));
     }
 
 }
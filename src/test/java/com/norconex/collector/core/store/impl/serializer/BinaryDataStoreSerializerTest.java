@@ -0,0 +1,84 @@
+/* Copyright 2026 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.core.store.impl.serializer;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.core.doc.CrawlState;
+import com.norconex.collector.core.store.TestObject;
+import com.norconex.commons.lang.file.ContentType;
+
+class BinaryDataStoreSerializerTest {
+
+    private final BinaryDataStoreSerializer serializer =
+            new BinaryDataStoreSerializer();
+
+    @Test
+    void testRoundTrip() {
+        TestObject obj = testObject();
+        byte[] bytes = serializer.toBytes(obj);
+        Assertions.assertEquals(
+                obj, serializer.fromBytes(bytes, TestObject.class));
+        // should be smaller than the same object as JSON
+        Assertions.assertTrue(bytes.length
+                < new JsonDataStoreSerializer().toBytes(obj).length);
+    }
+
+    @Test
+    void testJsonFallback() {
+        // non-bean types
+        Assertions.assertEquals("abc", serializer.fromBytes(
+                serializer.toBytes("abc"), String.class));
+
+        // records written as JSON by prior versions
+        TestObject obj = testObject();
+        byte[] json = new JsonDataStoreSerializer().toBytes(obj);
+        Assertions.assertEquals(
+                obj, serializer.fromBytes(json, TestObject.class));
+    }
+
+    @Test
+    void testHiddenField() {
+        Child child = new Child();
+        child.value = "child";
+        ((Parent) child).value = "parent";
+        Child read = serializer.fromBytes(
+                serializer.toBytes(child), Child.class);
+        Assertions.assertEquals("child", read.value);
+        Assertions.assertEquals("parent", ((Parent) read).value);
+    }
+
+    private static TestObject testObject() {
+        TestObject obj = new TestObject(
+                "http://example.com/a", 42, "checksum", "parent");
+        obj.setValid(true);
+        obj.setState(CrawlState.MODIFIED);
+        obj.setContentType(ContentType.HTML);
+        obj.setCrawlDate(ZonedDateTime.of(
+                2026, 1, 2, 3, 4, 5, 6, ZoneId.of("America/Toronto")));
+        return obj;
+    }
+
+    static class Parent {
+        String value;
+    }
+    static class Child extends Parent {
+        String value;
+    }
+}